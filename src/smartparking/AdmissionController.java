@@ -0,0 +1,80 @@
+package smartparking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Admission control for the booking queue: bounded capacity plus per-user token bucket rate limits
+public class AdmissionController {
+    private static final TokenBucket UNLIMITED = new TokenBucket(0, 0); // Bucket of users exempt from rate limits
+
+    private final int maxQueued; // Hard bound on requests waiting in the booking queue
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // Token bucket per user, refilled lazily on each request
+    private static class TokenBucket {
+        private final double ratePerMilli;
+        private final double burst;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, double burst) {
+            this.ratePerMilli = ratePerSecond / 1000.0;
+            this.burst = burst;
+            this.tokens = burst;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        synchronized boolean tryTake(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerMilli);
+            lastRefill = now;
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+    }
+
+    // Constructor
+    public AdmissionController(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    // Check the per-user request rate; requests without a profile (system simulation) are not limited
+    public boolean tryAcquireRate(String userId, UserProfile profile) {
+        if (profile == null) return true;
+        TokenBucket bucket = buckets.computeIfAbsent(userId, k -> switch (profile.getRole()) {
+            case REGULAR -> new TokenBucket(1, 3);
+            case VIP -> new TokenBucket(2, 5);
+            case CORPORATE -> new TokenBucket(5, 10);
+        });
+        return bucket == UNLIMITED || bucket.tryTake(System.currentTimeMillis());
+    }
+
+    // Exempt a user from rate limits (stress harnesses whose synthetic users book far faster than people do)
+    public void exempt(String userId) {
+        buckets.put(userId, UNLIMITED);
+    }
+
+    // Reserve a place in the booking queue, false when the queue is at capacity
+    public boolean tryReserveSlot() {
+        while (true) {
+            int current = queued.get();
+            if (current >= maxQueued) return false;
+            if (queued.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    // Release a queue place after the request left the queue
+    public void releaseSlot() {
+        queued.decrementAndGet();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+}
@@ -0,0 +1,68 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Session of a remote API client: notifications and prompts wait in a small inbox until the client polls
+// Per-session state is one fixed ring, a cursor and the set of expiries awaiting acknowledgment
+public class ApiSession implements UserSession {
+    private static final int INBOX_SIZE = 32;
+
+    private final String userId;
+    private final MessageRing inbox = new MessageRing(INBOX_SIZE);
+    private final Set<String> pendingExpiries = ConcurrentHashMap.newKeySet();
+    private long cursor; // Next inbox position the client has not read yet
+    private volatile boolean abortBooking; // Set when the client's hold expired mid-booking
+
+    // Constructor
+    public ApiSession(String userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public String getUserId() {
+        return userId;
+    }
+
+    @Override
+    public void deliverNotifications(List<String> messages) {
+        for (String message : messages) inbox.add(message);
+    }
+
+    @Override
+    public void showAlert(String message) {
+        inbox.add("ALERT: " + message);
+    }
+
+    @Override
+    public void promptExpiry(List<String> spotIds) {
+        pendingExpiries.addAll(spotIds);
+        inbox.add("EXPIRED: " + String.join(", ", spotIds));
+    }
+
+    @Override
+    public void closeBookingDialogs() {
+        abortBooking = true;
+    }
+
+    // Return messages the client has not seen yet
+    public synchronized List<String> drainInbox() {
+        List<String> messages = new ArrayList<>();
+        cursor = inbox.readFrom(cursor, messages);
+        return messages;
+    }
+
+    // Spots whose expiry this client still has to acknowledge
+    public Set<String> getPendingExpiries() {
+        return pendingExpiries;
+    }
+
+    // Check and reset the aborted-booking flag
+    public boolean consumeBookingAbort() {
+        boolean aborted = abortBooking;
+        abortBooking = false;
+        return aborted;
+    }
+}
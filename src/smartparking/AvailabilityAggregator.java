@@ -0,0 +1,237 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+// Free spot counts per lot and zone across an engine, for "nearest lot with a free spot" answers
+// Counts are kept incrementally from each lot's status transitions, so nothing polls the lots. Each lot knows its
+// nearest neighbours; on every publish tick the nearest neighbour that still has free spots becomes the lot's
+// spill-over target, and a snapshot goes to listeners. Ticks run at a fixed rate and only when something changed,
+// so the publish rate stays bounded however many lots report transitions.
+public class AvailabilityAggregator {
+    private static final int NEIGHBOURS = 16; // Nearest lots remembered per lot as spill-over candidates
+    private static final int ZONES = ParkingAnalytics.ZONES.length;
+
+    private final ScheduledExecutorService scheduler;
+    private final long publishMillis;
+    private final ConcurrentMap<String, LotState> lots = new ConcurrentHashMap<>();
+    private final List<LotState> registered = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicInteger publishCount = new AtomicInteger();
+    private volatile Snapshot published = new Snapshot(Collections.emptyMap(), 0);
+
+    // Live counts and spill-over links of one lot
+    private static final class LotState {
+        final String lotId;
+        final double x;
+        final double y;
+        final AtomicIntegerArray free = new AtomicIntegerArray(ZONES);
+        final AtomicInteger totalFree = new AtomicInteger();
+        volatile LotState[] neighbours = new LotState[0]; // Nearest first; replaced under the aggregator lock
+        volatile LotState spillTarget; // Nearest neighbour with free spots as of the last publish
+
+        LotState(String lotId, double x, double y) {
+            this.lotId = lotId;
+            this.x = x;
+            this.y = y;
+        }
+
+        double distanceTo(LotState other) {
+            return Math.hypot(x - other.x, y - other.y);
+        }
+
+        // Zone with the most free spots, or the preferred zone while it has any
+        int bestZone(int preferred) {
+            if (preferred >= 0 && free.get(preferred) > 0) return preferred;
+            int best = 0;
+            for (int z = 1; z < ZONES; z++) {
+                if (free.get(z) > free.get(best)) best = z;
+            }
+            return best;
+        }
+    }
+
+    // Where a request should go
+    public static class Recommendation {
+        public final String lotId;
+        public final String zone;
+        public final int freeSpots; // Free spots in that zone when recommended
+        public final boolean spilled; // True if the requested lot was full
+
+        Recommendation(String lotId, String zone, int freeSpots, boolean spilled) {
+            this.lotId = lotId;
+            this.zone = zone;
+            this.freeSpots = freeSpots;
+            this.spilled = spilled;
+        }
+
+        @Override
+        public String toString() {
+            return lotId + "/" + zone + " (" + freeSpots + " free" + (spilled ? ", spill-over" : "") + ")";
+        }
+    }
+
+    // Published view of every lot: free spots per zone, in ParkingAnalytics.ZONES order
+    public static class Snapshot {
+        public final Map<String, int[]> freeByLot;
+        public final long timestamp;
+
+        Snapshot(Map<String, int[]> freeByLot, long timestamp) {
+            this.freeByLot = freeByLot;
+            this.timestamp = timestamp;
+        }
+    }
+
+    // Constructor: publishes at most once per interval on the given scheduler once started
+    public AvailabilityAggregator(ScheduledExecutorService scheduler, long publishMillis) {
+        this.scheduler = scheduler;
+        this.publishMillis = publishMillis;
+    }
+
+    // Begin publishing; kept out of the constructor so the task never sees a partly built instance
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::publish, publishMillis, publishMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Start tracking a lot located at (x, y); all of its spots are counted free until transitions say otherwise
+    public synchronized void register(ParkingLotManager lot, double x, double y) {
+        LotState state = new LotState(lot.getLotId(), x, y);
+        for (int z = 0; z < ZONES; z++) {
+            int[] range = lot.getZoneRange(ParkingAnalytics.ZONES[z]);
+            state.free.set(z, range[1] - range[0]);
+            state.totalFree.addAndGet(range[1] - range[0]);
+        }
+
+        // Own neighbours, then offer the new lot to every existing lot's neighbour list
+        List<LotState> nearest = new ArrayList<>(registered);
+        nearest.sort(Comparator.comparingDouble(state::distanceTo));
+        state.neighbours = nearest.subList(0, Math.min(NEIGHBOURS, nearest.size())).toArray(new LotState[0]);
+        for (LotState other : registered) {
+            other.neighbours = withNeighbour(other, state);
+            other.spillTarget = nearestWithFreeSpots(other); // Usable before the next publish
+        }
+        state.spillTarget = nearestWithFreeSpots(state);
+
+        lots.put(state.lotId, state);
+        registered.add(state);
+        lot.getEventBus().subscribeLot(event -> onTransition(state, event));
+        dirty.set(true);
+    }
+
+    // Listener for published snapshots; runs on the publish tick, so it must not block
+    public void subscribe(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+    }
+
+    // Best lot and zone for a request at lotId, preferring the given zone (null for any): the lot itself while it
+    // has free spots, otherwise its published spill-over target. Constant time; null if nothing is known to be free.
+    public Recommendation recommend(String lotId, String zone) {
+        LotState origin = lots.get(lotId);
+        if (origin == null) return null;
+        if (origin.totalFree.get() <= 0) return recommendSpillOver(lotId, zone);
+        return recommendIn(origin, zone, false);
+    }
+
+    // Best zone in the lot's spill-over target, even if the lot itself still counts free spots (its counts may lag
+    // a burst of bookings). Null until a publish found a neighbour with free spots, or if that one filled up since.
+    public Recommendation recommendSpillOver(String lotId, String zone) {
+        LotState origin = lots.get(lotId);
+        LotState target = origin == null ? null : origin.spillTarget;
+        return target == null ? null : recommendIn(target, zone, true);
+    }
+
+    private static Recommendation recommendIn(LotState lot, String zone, boolean spilled) {
+        int z = lot.bestZone(ParkingAnalytics.zoneIndex(zone));
+        int free = lot.free.get(z);
+        return free > 0 ? new Recommendation(lot.lotId, ParkingAnalytics.ZONES[z], free, spilled) : null;
+    }
+
+    // Live free spots in a lot's zone ("*" for the whole lot), -1 for unknown lots
+    public int getFreeSpots(String lotId, String zone) {
+        LotState state = lots.get(lotId);
+        if (state == null) return -1;
+        if ("*".equals(zone)) return state.totalFree.get();
+        int z = ParkingAnalytics.zoneIndex(zone);
+        return z < 0 ? -1 : state.free.get(z);
+    }
+
+    public Snapshot getPublished() {
+        return published;
+    }
+
+    // Snapshots published so far, for checking the publish rate
+    public int getPublishCount() {
+        return publishCount.get();
+    }
+
+    // Fold one transition into the counts: only changes into or out of "available" matter
+    private void onTransition(LotState state, SpotStatusEvent event) {
+        String previous = event.getPreviousStatus();
+        boolean wasFree = previous == null || SpotStatus.AVAILABLE.equals(previous); // No status yet means available
+        boolean isFree = SpotStatus.AVAILABLE.equals(event.getStatus());
+        if (wasFree == isFree) return;
+        int z = ParkingAnalytics.zoneIndex(event.getSpotId());
+        if (z < 0) return;
+        int delta = isFree ? 1 : -1;
+        state.free.addAndGet(z, delta);
+        state.totalFree.addAndGet(delta);
+        dirty.set(true);
+    }
+
+    // Publish tick: refresh spill-over targets and hand a snapshot to listeners, only if counts changed
+    void publish() {
+        if (!dirty.getAndSet(false)) return;
+        Map<String, int[]> freeByLot = new LinkedHashMap<>();
+        for (LotState state : registered) {
+            state.spillTarget = nearestWithFreeSpots(state);
+            int[] free = new int[ZONES];
+            for (int z = 0; z < ZONES; z++) free[z] = state.free.get(z);
+            freeByLot.put(state.lotId, free);
+        }
+        Snapshot snapshot = new Snapshot(Collections.unmodifiableMap(freeByLot), System.currentTimeMillis());
+        published = snapshot;
+        publishCount.incrementAndGet();
+        for (Consumer<Snapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException ex) {
+                System.err.println("⚠️ Availability listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    private static LotState nearestWithFreeSpots(LotState lot) {
+        for (LotState neighbour : lot.neighbours) {
+            if (neighbour.totalFree.get() > 0) return neighbour;
+        }
+        return null;
+    }
+
+    // Neighbour list of a lot with the candidate inserted in distance order, capped at NEIGHBOURS
+    private static LotState[] withNeighbour(LotState lot, LotState candidate) {
+        LotState[] current = lot.neighbours;
+        double distance = lot.distanceTo(candidate);
+        if (current.length == NEIGHBOURS && distance >= lot.distanceTo(current[NEIGHBOURS - 1])) return current;
+        int at = 0;
+        while (at < current.length && lot.distanceTo(current[at]) <= distance) at++;
+        LotState[] updated = Arrays.copyOf(current, Math.min(NEIGHBOURS, current.length + 1));
+        System.arraycopy(current, at, updated, at + 1, updated.length - at - 1);
+        updated[at] = candidate;
+        return updated;
+    }
+}
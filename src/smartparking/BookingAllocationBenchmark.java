@@ -0,0 +1,83 @@
+package smartparking;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+// Allocation benchmark for the callback booking path: book and release spots in a loop and report bytes
+// allocated per booking on the booking threads (caller and engine workers) and across the whole JVM
+// Usage: java -cp SmartParking.jar smartparking.BookingAllocationBenchmark [warmupBookings] [measuredBookings]
+public class BookingAllocationBenchmark {
+    private static volatile boolean done;
+    private static volatile boolean lastResult;
+    private static Thread caller;
+
+    public static void main(String[] args) {
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int measured = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        ParkingLotManager manager = ParkingLotManager.getInstance();
+        caller = Thread.currentThread();
+
+        // Preallocated per spot so the loop itself allocates nothing
+        int spotCount = manager.getSpotCount();
+        String[] spotIds = new String[spotCount];
+        String[][] releaseArgs = new String[spotCount][];
+        for (int i = 0; i < spotCount; i++) {
+            spotIds[i] = manager.getSpotId(i);
+            releaseArgs[i] = new String[]{spotIds[i]};
+        }
+        BookingCallback callback = (spotId, success) -> {
+            lastResult = success;
+            done = true;
+            LockSupport.unpark(caller);
+        };
+
+        run(manager, spotIds, releaseArgs, callback, warmup);
+        long[] ids = findThreads("EngineWorker", Thread.currentThread().threadId());
+        long pathBefore = sum(threads.getThreadAllocatedBytes(ids));
+        long totalBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        int failures = run(manager, spotIds, releaseArgs, callback, measured);
+        long elapsed = System.nanoTime() - start;
+        long pathBytes = sum(threads.getThreadAllocatedBytes(ids)) - pathBefore;
+        long totalBytes = threads.getTotalThreadAllocatedBytes() - totalBefore;
+
+        System.out.printf("bookings=%d failures=%d (%.0f bookings/s)%n", measured, failures, measured / (elapsed / 1e9));
+        System.out.printf("booking path (caller + engine workers): %.1f bytes/booking%n", pathBytes / (double) measured);
+        System.out.printf("whole JVM (incl. status fan-out to event bus, analytics, dashboards): %.1f bytes/booking%n",
+            totalBytes / (double) measured);
+        System.exit(0);
+    }
+
+    // Book each spot in turn through the callback API, wait for the result, then release it
+    private static int run(ParkingLotManager manager, String[] spotIds, String[][] releaseArgs,
+                           BookingCallback callback, int bookings) {
+        int failures = 0;
+        for (int n = 0; n < bookings; n++) {
+            int spot = n % spotIds.length;
+            done = false;
+            manager.bookSpot(spotIds[spot], 1, "1 hour", false, "system", callback);
+            while (!done) LockSupport.parkNanos(100_000);
+            if (!lastResult) failures++;
+            manager.releaseSpotsNow("system", releaseArgs[spot]);
+        }
+        return failures;
+    }
+
+    // IDs of the given thread plus every thread whose name starts with the prefix
+    private static long[] findThreads(String prefix, long caller) {
+        return LongStream.concat(LongStream.of(caller),
+            Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(prefix))
+                .mapToLong(Thread::threadId)).toArray();
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) total += value;
+        return total;
+    }
+}
@@ -0,0 +1,86 @@
+package smartparking;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Local load test for the booking API: concurrent keep-alive clients issue a status/zones/book/cancel mix
+// and the run reports requests per second and latency percentiles
+// Usage: java -cp SmartParking.jar smartparking.BookingApiLoadTest [clients] [seconds]
+public class BookingApiLoadTest {
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        System.setProperty("sun.net.httpserver.nodelay", "true"); // See BookingApiServer
+        ParkingLotManager manager = ParkingLotManager.getInstance();
+        BookingApiServer server = new BookingApiServer(manager, 0);
+        server.start();
+        String base = "http://127.0.0.1:" + server.getPort() + "/api";
+        String[] spots = manager.getSpotIds();
+
+        ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long[][] latencies = new long[clients][];
+        AtomicInteger errors = new AtomicInteger();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            clientThreads.submit(() -> {
+                Random random = new Random(client);
+                String user = "load-" + client;
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    String spot = spots[random.nextInt(spots.length)];
+                    int pick = random.nextInt(10);
+                    HttpRequest request = switch (pick) {
+                        case 0, 1 -> post(base + "/book?spot=" + spot + "&user=" + user + "&hours=1");
+                        case 2 -> post(base + "/cancel?spot=" + spot + "&user=" + user);
+                        case 3 -> HttpRequest.newBuilder(URI.create(base + "/zones")).build();
+                        default -> HttpRequest.newBuilder(URI.create(base + "/status?spot=" + spot + "&user=" + user)).build();
+                    };
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() >= 500) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        if (errors.incrementAndGet() == 1) e.printStackTrace();
+                    }
+                    if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = System.nanoTime() - start;
+                }
+                latencies[client] = Arrays.copyOf(samples, n);
+                return null;
+            });
+        }
+        clientThreads.shutdown();
+        clientThreads.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        server.stop();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("clients=%d duration=%ds requests=%d throughput=%.0f req/s errors=%d%n",
+            clients, seconds, all.length, all.length / (double) seconds, errors.get());
+        System.out.printf("latency p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+            percentile(all, 50), percentile(all, 99), percentile(all, 99.9), all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        System.exit(0);
+    }
+
+    private static HttpRequest post(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
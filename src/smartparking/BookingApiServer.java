@@ -0,0 +1,484 @@
+package smartparking;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Embedded HTTP/JSON booking API for kiosks, mobile apps and gate controllers
+// Each exchange runs on its own virtual thread; booking results are written when the future completes,
+// so no thread waits on the booking queue. Connections are kept alive by the JDK server.
+// Launchers should set -Dsun.net.httpserver.nodelay=true (Main and the API tools do): headers and body are written
+// separately, and without TCP_NODELAY each response waits on delayed ACKs. It is JVM-wide, so the server does not
+// set it itself.
+//
+//   POST /api/users?user=ID&role=REGULAR|VIP|CORPORATE
+//   POST /api/session?user=ID[&action=close]    open (or close) a session to receive own prompts
+//   GET  /api/notifications?user=ID             unread messages and expiries awaiting acknowledgment
+//   POST /api/ack?spot=A1&user=ID               acknowledge an expired booking
+//   POST /api/book?spot=A1&user=ID&hours=2[&priority=true][&requestId=R]   a retried requestId gets the first result
+//   POST /api/book?user=ID&hours=2[&zone=A][&priority=true]   any free spot; spills over to the nearest lot when full
+//   POST /api/cancel?spot=A1&user=ID[&requestId=R]
+//   POST /api/extend?spot=A1&user=ID[&minutes=30]   extend a running booking in place
+//   POST /api/hold?spot=A1&user=ID[&millis=60000]
+//   POST /api/reserve?user=ID&start=MS&end=MS&(spot=A1|zone=A)   advance reservation (epoch millis)
+//   POST /api/reserve?action=cancel&spot=A1&id=N&user=ID   only the reservation's owner can cancel it
+//   GET  /api/status?spot=A1[&user=ID]
+//   GET  /api/zones
+//   GET  /api/events[?zone=A][&since=SEQ]   server-sent events; Last-Event-ID is honoured on reconnect
+public class BookingApiServer {
+    private final ParkingLotManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Constructor: binds to loopback on the given port (0 picks a free port)
+    public BookingApiServer(ParkingLotManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/users", this::handleRegister);
+        server.createContext("/api/session", this::handleSession);
+        server.createContext("/api/notifications", this::handleNotifications);
+        server.createContext("/api/ack", this::handleAck);
+        server.createContext("/api/book", this::handleBook);
+        server.createContext("/api/cancel", this::handleCancel);
+        server.createContext("/api/extend", this::handleExtend);
+        server.createContext("/api/hold", this::handleHold);
+        server.createContext("/api/reserve", this::handleReserve);
+        server.createContext("/api/status", this::handleStatus);
+        server.createContext("/api/zones", this::handleZones);
+        server.createContext("/api/events", this::handleEvents);
+    }
+
+    // Start accepting requests
+    public void start() {
+        server.start();
+        System.out.println("Booking API listening on http://127.0.0.1:" + getPort() + "/api");
+    }
+
+    // Stop the server, letting in-flight exchanges finish for up to a second
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleRegister(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String userId = params.get("user");
+        UserProfile.Role role;
+        try {
+            role = UserProfile.Role.valueOf(params.getOrDefault("role", "REGULAR").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, error("unknown role"));
+            return;
+        }
+        if (userId == null || userId.isBlank()) {
+            sendJson(exchange, 400, error("user is required"));
+            return;
+        }
+        manager.registerUser(new UserProfile(userId, role));
+        sendJson(exchange, 200, "{\"user\":" + quote(userId) + ",\"role\":" + quote(role.name()) + "}");
+    }
+
+    private void handleSession(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String userId = params.get("user");
+        if (userId == null || userId.isBlank()) {
+            sendJson(exchange, 400, error("user is required"));
+            return;
+        }
+        boolean close = "close".equals(params.get("action"));
+        if (close) {
+            if (manager.getSession(userId) instanceof ApiSession) manager.unregisterSession(userId);
+        } else if (!(manager.getSession(userId) instanceof ApiSession)) {
+            manager.registerSession(new ApiSession(userId));
+        }
+        sendJson(exchange, 200, "{\"user\":" + quote(userId) + ",\"session\":" + !close + "}");
+    }
+
+    private void handleNotifications(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) return;
+        ApiSession session = apiSession(exchange);
+        if (session == null) return;
+
+        StringBuilder json = new StringBuilder("{\"messages\":[");
+        List<String> messages = session.drainInbox();
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(quote(messages.get(i)));
+        }
+        json.append("],\"pendingExpiries\":[");
+        boolean first = true;
+        for (String spotId : session.getPendingExpiries()) {
+            if (!first) json.append(',');
+            json.append(quote(spotId));
+            first = false;
+        }
+        json.append("],\"bookingAborted\":").append(session.consumeBookingAbort()).append('}');
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private void handleAck(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        ApiSession session = apiSession(exchange);
+        if (session == null) return;
+        String spotId = queryParams(exchange).get("spot");
+        if (spotId == null || !session.getPendingExpiries().remove(spotId)) {
+            sendJson(exchange, 404, error("no expired booking to acknowledge for this spot"));
+            return;
+        }
+        manager.acknowledgeExpiry(spotId, session.getUserId());
+        sendJson(exchange, 202, "{\"spot\":" + quote(spotId) + ",\"acknowledged\":true}");
+    }
+
+    // Resolve the caller's API session or answer 404
+    private ApiSession apiSession(HttpExchange exchange) throws IOException {
+        UserSession session = manager.getSession(queryParams(exchange).get("user"));
+        if (session instanceof ApiSession apiSession) return apiSession;
+        sendJson(exchange, 404, error("no open session for this user"));
+        return null;
+    }
+
+    private void handleBook(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String spotId = params.get("spot");
+        String userId = params.get("user");
+        int hours;
+        try {
+            hours = Integer.parseInt(params.getOrDefault("hours", "1"));
+        } catch (NumberFormatException e) {
+            hours = -1;
+        }
+        if (userId == null || hours < 1 || hours > 24) {
+            sendJson(exchange, 400, error("user and hours (1-24) are required"));
+            return;
+        }
+
+        String label = hours == 1 ? "1 hour" : hours + " hours";
+        boolean priority = Boolean.parseBoolean(params.get("priority"));
+        if (spotId == null) {
+            // No spot named: the engine picks a free one here, or in the nearest lot with room once this one is full
+            CompletableFuture<ParkingEngine.Placement> placement = manager.getEngine()
+                .bookNearest(manager.getLotId(), params.get("zone"), hours, label, priority, userId);
+            respondWithPlacement(exchange, placement);
+            return;
+        }
+        respondWhenDone(exchange, manager.bookSpot(spotId, hours, label, priority, userId, params.get("requestId")),
+            spotId, "booked");
+    }
+
+    private void handleCancel(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String spotId = params.get("spot");
+        String userId = params.get("user");
+        if (spotId == null || userId == null) {
+            sendJson(exchange, 400, error("spot and user are required"));
+            return;
+        }
+        String holder = manager.getBookedBy(spotId);
+        if (holder != null && !holder.equals(userId)) {
+            sendJson(exchange, 403, error("spot is booked by another user"));
+            return;
+        }
+        // The manager checks the holder again, atomically with the cancel; this check only picks the status code
+        respondWhenDone(exchange, manager.cancelBooking(spotId, userId, params.get("requestId")), spotId, "cancelled");
+    }
+
+    private void handleExtend(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String spotId = params.get("spot");
+        String userId = params.get("user");
+        long minutes;
+        try {
+            minutes = Long.parseLong(params.getOrDefault("minutes", "30"));
+        } catch (NumberFormatException e) {
+            minutes = -1;
+        }
+        if (spotId == null || userId == null || minutes <= 0) {
+            sendJson(exchange, 400, error("spot, user and positive minutes are required"));
+            return;
+        }
+        boolean extended = manager.extendBooking(spotId, userId, minutes * 60 * 1000L);
+        sendJson(exchange, 200, "{\"spot\":" + quote(spotId) + ",\"extended\":" + extended
+            + ",\"expires\":" + manager.getBookingExpiry(spotId) + "}");
+    }
+
+    private void handleHold(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String spotId = params.get("spot");
+        String userId = params.get("user");
+        long millis;
+        try {
+            millis = Long.parseLong(params.getOrDefault("millis", "60000"));
+        } catch (NumberFormatException e) {
+            millis = -1;
+        }
+        if (spotId == null || userId == null || millis <= 0) {
+            sendJson(exchange, 400, error("spot, user and a positive millis are required"));
+            return;
+        }
+        boolean held = manager.trySoftLock(spotId, userId, millis);
+        sendJson(exchange, 200, "{\"spot\":" + quote(spotId) + ",\"held\":" + held + "}");
+    }
+
+    // Reserve a future window: spot= a specific spot, or zone= to take any spot free for the whole window.
+    // action=cancel with spot and id cancels a reservation that has not started.
+    private void handleReserve(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        Map<String, String> params = queryParams(exchange);
+        String spotId = params.get("spot");
+        String userId = params.get("user");
+        if ("cancel".equals(params.get("action"))) {
+            long id;
+            try {
+                id = Long.parseLong(params.getOrDefault("id", "-1"));
+            } catch (NumberFormatException e) {
+                id = -1;
+            }
+            if (spotId == null || userId == null || id < 0) {
+                sendJson(exchange, 400, error("spot, user and id are required"));
+                return;
+            }
+            boolean cancelled = manager.cancelReservation(spotId, id, userId);
+            sendJson(exchange, 200, "{\"spot\":" + quote(spotId) + ",\"cancelled\":" + cancelled + "}");
+            return;
+        }
+
+        long start;
+        long end;
+        try {
+            start = Long.parseLong(params.getOrDefault("start", "-1"));
+            end = Long.parseLong(params.getOrDefault("end", "-1"));
+        } catch (NumberFormatException e) {
+            start = end = -1;
+        }
+        if (userId == null || start < 0 || end <= start || (spotId == null && params.get("zone") == null)) {
+            sendJson(exchange, 400, error("user, start < end (epoch millis) and spot or zone are required"));
+            return;
+        }
+        if (spotId == null) spotId = manager.findFreeSpot(params.get("zone"), start, end);
+        long id = spotId == null ? -1 : manager.reserveSpot(spotId, userId, start, end);
+        sendJson(exchange, 200, "{\"spot\":" + (spotId == null ? "null" : quote(spotId))
+            + ",\"reserved\":" + (id >= 0) + ",\"id\":" + id + "}");
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) return;
+        Map<String, String> params = queryParams(exchange);
+        String spotId = params.get("spot");
+        if (spotId == null) {
+            sendJson(exchange, 400, error("spot is required"));
+            return;
+        }
+        String status = manager.getSpotStatus(spotId, params.get("user"));
+        sendJson(exchange, 200, "{\"spot\":" + quote(spotId) + ",\"status\":" + quote(status) + "}");
+    }
+
+    private void handleZones(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) return;
+        StringBuilder json = new StringBuilder("{");
+        for (String zone : ParkingAnalytics.ZONES) {
+            String[] spots = manager.getSpotsInZone(zone);
+            int free = 0;
+            for (String spotId : spots) {
+                if (!manager.isBooked(spotId) && !manager.isSoftLocked(spotId)) free++;
+            }
+            if (json.length() > 1) json.append(',');
+            json.append(quote(zone)).append(":{\"free\":").append(free).append(",\"total\":").append(spots.length).append('}');
+        }
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    // Stream spot transitions as server-sent events until the client disconnects
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) return;
+        Map<String, String> params = queryParams(exchange);
+        String zone = params.get("zone");
+        if (zone != null && ParkingAnalytics.zoneIndex(zone) < 0) {
+            sendJson(exchange, 400, error("unknown zone"));
+            return;
+        }
+        long lastSeq;
+        try {
+            String resume = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            lastSeq = Long.parseLong(resume != null ? resume : params.getOrDefault("since", "-1"));
+        } catch (NumberFormatException e) {
+            lastSeq = -1;
+        }
+
+        SpotEventPublisher publisher = manager.getEventPublisher();
+        SpotEventPublisher.Subscription subscription = publisher.subscribe(zone);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+
+            long delivered = lastSeq;
+            if (lastSeq >= 0) {
+                List<SpotEventPublisher.SpotEvent> missed = new ArrayList<>();
+                if (publisher.replay(subscription, lastSeq, missed)) {
+                    delivered = writeEvents(out, missed, delivered);
+                } else {
+                    // Too old or ahead of this server: resync, and count from the current sequence rather than the
+                    // client's, which would otherwise filter out every new event below it
+                    delivered = writeSnapshot(out, zone, publisher.getLastSequence());
+                }
+                out.flush();
+            }
+
+            while (!subscription.isClosed()) {
+                List<SpotEventPublisher.SpotEvent> batch = new ArrayList<>(subscription.poll(15, TimeUnit.SECONDS));
+                SpotEventPublisher.skipUpTo(batch, delivered);
+                if (batch.isEmpty()) {
+                    out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    delivered = writeEvents(out, batch, delivered);
+                }
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Dashboard disconnected or server stopping
+        } finally {
+            subscription.close();
+            exchange.close();
+        }
+    }
+
+    private static long writeEvents(OutputStream out, List<SpotEventPublisher.SpotEvent> events, long delivered) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (SpotEventPublisher.SpotEvent event : events) {
+            sb.append("id: ").append(event.seq).append("\nevent: spot\ndata: ").append(event.toJson()).append("\n\n");
+            delivered = Math.max(delivered, event.seq);
+        }
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return delivered;
+    }
+
+    // Full zone state sent when a client resumes from a sequence that is not in history (too old, or pre-restart)
+    private long writeSnapshot(OutputStream out, String zone, long seq) throws IOException {
+        StringBuilder data = new StringBuilder("{\"seq\":").append(seq).append(",\"spots\":{");
+        boolean first = true;
+        for (String z : ParkingAnalytics.ZONES) {
+            if (zone != null && !zone.equals(z)) continue;
+            for (String spotId : manager.getSpotsInZone(z)) {
+                if (!first) data.append(',');
+                data.append(quote(spotId)).append(':').append(quote(manager.getSpotStatus(spotId)));
+                first = false;
+            }
+        }
+        data.append("}}");
+        out.write(("id: " + seq + "\nevent: snapshot\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        return seq;
+    }
+
+    // Complete the exchange on the server's executor, never on the engine worker that finished the future,
+    // so a slow client cannot stall booking drains
+    private void respondWhenDone(HttpExchange exchange, CompletableFuture<Boolean> future, String spotId, String field) {
+        future.whenCompleteAsync((success, error) -> {
+            try {
+                if (error != null) {
+                    sendJson(exchange, 500, error(String.valueOf(error.getMessage())));
+                } else {
+                    sendJson(exchange, 200, "{\"spot\":" + quote(spotId) + ",\"" + field + "\":" + success + "}");
+                }
+            } catch (IOException e) {
+                exchange.close(); // Client went away
+            }
+        }, executor);
+    }
+
+    // Like respondWhenDone, for a booking whose lot and spot the engine chose
+    private void respondWithPlacement(HttpExchange exchange, CompletableFuture<ParkingEngine.Placement> future) {
+        future.whenCompleteAsync((placement, error) -> {
+            try {
+                if (error != null) {
+                    sendJson(exchange, 500, error(String.valueOf(error.getMessage())));
+                } else if (placement == null) {
+                    sendJson(exchange, 200, "{\"booked\":false}");
+                } else {
+                    sendJson(exchange, 200, "{\"lot\":" + quote(placement.lotId) + ",\"spot\":" + quote(placement.spotId)
+                        + ",\"booked\":true,\"spilled\":" + placement.spilled + "}");
+                }
+            } catch (IOException e) {
+                exchange.close(); // Client went away
+            }
+        }, executor);
+    }
+
+    private boolean requireMethod(HttpExchange exchange, String method) throws IOException {
+        if (method.equals(exchange.getRequestMethod())) return true;
+        exchange.getResponseHeaders().set("Allow", method);
+        sendJson(exchange, 405, error("use " + method));
+        return false;
+    }
+
+    // Send a JSON body with an explicit length so the connection can be reused
+    private static void sendJson(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                       URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    // Minimal JSON string quoting
+    static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
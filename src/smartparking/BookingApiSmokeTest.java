@@ -0,0 +1,90 @@
+package smartparking;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+// End-to-end check of the booking API on a private lot: a user books a spot through the API, another user
+// is refused the cancel, the owner cancels it through the API, and the manager refuses a cancel by anyone
+// but the holder; a reservation likewise can only be cancelled by its owner. A booking without a spot gets any
+// free one, and a dashboard resuming the event stream from a sequence the server never reached (it restarted) is
+// resynced with a snapshot. Exits with status 1 on the first failure.
+// Usage: java -cp SmartParking.jar smartparking.BookingApiSmokeTest
+public class BookingApiSmokeTest {
+    private static HttpClient http;
+    private static String base;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true"); // See BookingApiServer
+        ParkingLotManager manager = new ParkingEngine(2, 1).createLot("api-smoke");
+        BookingApiServer server = new BookingApiServer(manager, 0);
+        server.start();
+        base = "http://127.0.0.1:" + server.getPort() + "/api";
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String spot = manager.getSpotIds()[0];
+
+        boolean ok = true;
+        try {
+            ok &= expect(post("/users?user=smoke-owner&role=REGULAR"), 200, "\"user\":\"smoke-owner\"");
+            ok &= expect(post("/users?user=smoke-other&role=REGULAR"), 200, "\"user\":\"smoke-other\"");
+            ok &= expect(post("/book?spot=" + spot + "&user=smoke-owner&hours=1&requestId=b1"), 200, "\"booked\":true");
+            ok &= check("spot held by the owner", "smoke-owner".equals(manager.getBookedBy(spot)));
+            ok &= expect(post("/cancel?spot=" + spot + "&user=smoke-other&requestId=c1"), 403, "another user");
+            ok &= check("spot still booked after the refused cancel", manager.isBooked(spot));
+            ok &= expect(post("/cancel?spot=" + spot + "&user=smoke-owner&requestId=c2"), 200, "\"cancelled\":true");
+            ok &= check("spot free after the owner's cancel", !manager.isBooked(spot));
+            ok &= check("spot gone from the owner's bookings", manager.getUserBookingCount("smoke-owner") == 0);
+            ok &= expect(post("/book?spot=" + spot + "&user=smoke-owner&hours=1&requestId=b2"), 200, "\"booked\":true");
+            ok &= check("manager refuses another user's cancel", !manager.cancelBooking(spot, "smoke-other").get());
+            ok &= check("spot still booked by the owner", "smoke-owner".equals(manager.getBookedBy(spot)));
+            long start = System.currentTimeMillis() + 2 * 3_600_000L;
+            String reserve = "/reserve?spot=" + spot + "&user=smoke-owner&start=" + start + "&end=" + (start + 3_600_000L);
+            ok &= expect(post(reserve), 200, "\"reserved\":true");
+            long id = manager.getReservations(manager.getSpotIndex(spot)).get(0).id;
+            ok &= expect(post("/reserve?action=cancel&spot=" + spot + "&id=" + id + "&user=smoke-other"), 200,
+                "\"cancelled\":false");
+            ok &= check("reservation kept after another user's cancel", manager.getReservationCount(spot) == 1);
+            ok &= expect(post("/reserve?action=cancel&spot=" + spot + "&id=" + id + "&user=smoke-owner"), 200,
+                "\"cancelled\":true");
+            ok &= expect(post("/book?user=smoke-other&hours=1&zone=B"), 200, "\"booked\":true");
+            long ahead = manager.getEventPublisher().getLastSequence() + 1_000;
+            String resumed = firstEvent("/events?since=" + ahead);
+            ok &= check("resume from ahead of the server gets a snapshot", resumed.contains("event: snapshot"));
+        } finally {
+            server.stop();
+        }
+        System.out.println(ok ? "Booking API smoke test passed" : "Booking API smoke test FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static HttpResponse<String> post(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+            .POST(HttpRequest.BodyPublishers.noBody()).build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // First frame of an event stream; the stream itself stays open, so only that much is read
+    private static String firstEvent(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+        try (InputStream body = http.send(request, HttpResponse.BodyHandlers.ofInputStream()).body()) {
+            StringBuilder frame = new StringBuilder();
+            int c;
+            while ((c = body.read()) >= 0 && frame.indexOf("\n\n") < 0) frame.append((char) c);
+            return frame.toString();
+        }
+    }
+
+    private static boolean expect(HttpResponse<String> response, int status, String fragment) {
+        boolean passed = response.statusCode() == status && response.body().contains(fragment);
+        System.out.println((passed ? "ok   " : "FAIL ") + response.request().uri().getPath() + "?"
+            + response.request().uri().getQuery() + " -> " + response.statusCode() + " " + response.body());
+        return passed;
+    }
+
+    private static boolean check(String what, boolean passed) {
+        System.out.println((passed ? "ok   " : "FAIL ") + what);
+        return passed;
+    }
+}
@@ -0,0 +1,7 @@
+package smartparking;
+
+// Receives the outcome of a queued booking without allocating a future per request
+@FunctionalInterface
+public interface BookingCallback {
+    void onBookingResult(String spotId, boolean success);
+}
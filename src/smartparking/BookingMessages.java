@@ -0,0 +1,66 @@
+package smartparking;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Cached booking messages per spot, so the booking processor does not concatenate strings per request
+// Each message is rendered on first use, so spots that are never booked cost one empty slot per message kind.
+// Durations up to a day are cached; anything longer is built on demand.
+class BookingMessages {
+    private static final int MAX_CACHED_HOURS = 24;
+    private static final int HALF_HOUR = 0; // Duration slot for "30 minutes"; slots 1..24 are whole hours
+
+    private final AtomicReferenceArray<String> reserved;
+    private final AtomicReferenceArray<String> failed;
+    private final AtomicReferenceArray<String[]> booked; // Per spot, indexed by duration slot
+    private final List<String> spotIds;
+
+    BookingMessages(List<String> spotIds) {
+        this.spotIds = spotIds;
+        this.reserved = new AtomicReferenceArray<>(spotIds.size());
+        this.failed = new AtomicReferenceArray<>(spotIds.size());
+        this.booked = new AtomicReferenceArray<>(spotIds.size());
+    }
+
+    // "Slot A1 reserved."
+    String reserved(int spot) {
+        String message = reserved.get(spot);
+        if (message == null) {
+            message = "Slot " + spotIds.get(spot) + " reserved.";
+            reserved.set(spot, message); // Racing writers store equal strings
+        }
+        return message;
+    }
+
+    // "Booking failed for spot A1"
+    String failed(int spot) {
+        String message = failed.get(spot);
+        if (message == null) {
+            message = "Booking failed for spot " + spotIds.get(spot);
+            failed.set(spot, message);
+        }
+        return message;
+    }
+
+    // "Slot A1 booked for 2 hours."
+    String booked(int spot, int hours, boolean halfHour) {
+        if (!halfHour && (hours < 1 || hours > MAX_CACHED_HOURS)) return render(spot, hours, false);
+        String[] durations = booked.get(spot);
+        if (durations == null) {
+            booked.compareAndSet(spot, null, new String[MAX_CACHED_HOURS + 1]);
+            durations = booked.get(spot);
+        }
+        int slot = halfHour ? HALF_HOUR : hours;
+        String message = durations[slot];
+        if (message == null) {
+            message = render(spot, hours, halfHour);
+            durations[slot] = message; // Racing writers store equal strings; Strings are safe to publish racily
+        }
+        return message;
+    }
+
+    private String render(int spot, int hours, boolean halfHour) {
+        String readable = halfHour ? "30 minutes" : hours > 1 ? hours + " hours" : "1 hour";
+        return "Slot " + spotIds.get(spot) + " booked for " + readable + ".";
+    }
+}
@@ -0,0 +1,19 @@
+package smartparking;
+
+// An active booking as it travels between processes: which spot, whose, and until when (epoch millis)
+public class BookingRecord {
+    public final String spotId;
+    public final String userId;
+    public final long endMillis;
+
+    public BookingRecord(String spotId, String userId, long endMillis) {
+        this.spotId = spotId;
+        this.userId = userId;
+        this.endMillis = endMillis;
+    }
+
+    @Override
+    public String toString() {
+        return spotId + " by " + userId + " until " + endMillis;
+    }
+}
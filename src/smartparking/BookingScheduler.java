@@ -0,0 +1,240 @@
+package smartparking;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Multi-level booking scheduler: FIFO within a class, weighted round robin across classes,
+// and aging so that a request waiting longer than the aging threshold is served next regardless of class
+public class BookingScheduler<T> {
+    public static final int VIP = 0; // Also used for explicit priority requests
+    public static final int CORPORATE = 1;
+    public static final int REGULAR = 2;
+    private static final String[] CLASS_NAMES = {"VIP", "CORPORATE", "REGULAR"};
+
+    private final Ring[] queues;
+    private final int[] weights; // Consecutive dequeues granted to a class per round
+    private final long agingNanos; // Wait after which a request jumps the weighted order
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int currentClass; // Class currently holding the round robin turn
+    private int creditsLeft; // Dequeues left for the current class in this round
+    private int size;
+
+    // Per class wait time metrics (guarded by lock)
+    private final long[] served;
+    private final long[] totalWaitNanos;
+    private final long[] maxWaitNanos;
+    private final long[] aged; // Dequeues that happened through aging
+
+    // FIFO of items with their enqueue times in parallel arrays, so queueing allocates nothing once grown
+    // The arrays start empty and are sized by the first item, so the classes of an idle lot hold none
+    private static class Ring {
+        private static final int INITIAL_CAPACITY = 16; // A power of two, like every later capacity
+        private Object[] items = new Object[0];
+        private long[] enqueuedAt = new long[0];
+        private int head;
+        private int size;
+
+        void addLast(Object item, long time) {
+            if (size == items.length) grow();
+            int slot = (head + size) & (items.length - 1);
+            items[slot] = item;
+            enqueuedAt[slot] = time;
+            size++;
+        }
+
+        // Enqueue time of the head; only valid when not empty
+        long firstTime() {
+            return enqueuedAt[head];
+        }
+
+        Object pollFirst() {
+            Object item = items[head];
+            items[head] = null;
+            head = (head + 1) & (items.length - 1);
+            size--;
+            return item;
+        }
+
+        Object pollLast() {
+            int slot = (head + size - 1) & (items.length - 1);
+            Object item = items[slot];
+            items[slot] = null;
+            size--;
+            return item;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            int capacity = Math.max(INITIAL_CAPACITY, items.length * 2);
+            Object[] newItems = new Object[capacity];
+            long[] newTimes = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) & (items.length - 1);
+                newItems[i] = items[slot];
+                newTimes[i] = enqueuedAt[slot];
+            }
+            items = newItems;
+            enqueuedAt = newTimes;
+            head = 0;
+        }
+    }
+
+    // Constructor: weights are given per class in VIP, CORPORATE, REGULAR order
+    public BookingScheduler(int[] weights, long agingMillis) {
+        this.weights = weights.clone();
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        this.queues = new Ring[CLASS_NAMES.length];
+        for (int i = 0; i < queues.length; i++) queues[i] = new Ring();
+        this.served = new long[queues.length];
+        this.totalWaitNanos = new long[queues.length];
+        this.maxWaitNanos = new long[queues.length];
+        this.aged = new long[queues.length];
+        this.creditsLeft = this.weights[0];
+    }
+
+    // Map a user role (or an explicit priority flag) to a scheduling class
+    public static int classFor(UserProfile profile, boolean isPriority) {
+        if (isPriority) return VIP;
+        if (profile == null) return REGULAR;
+        return switch (profile.getRole()) {
+            case VIP -> VIP;
+            case CORPORATE -> CORPORATE;
+            case REGULAR -> REGULAR;
+        };
+    }
+
+    // Name of a scheduling class, e.g. for logs and recorded events
+    public static String className(int cls) {
+        return CLASS_NAMES[cls];
+    }
+
+    // Enqueue at the tail of its class: O(1)
+    public void offer(T item, int cls) {
+        lock.lock();
+        try {
+            queues[cls].addLast(item, System.nanoTime());
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Dequeue the next request, waiting up to the timeout: O(number of classes)
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (remaining <= 0) return null;
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return take(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Dequeue the next request without waiting, null if none is queued
+    public T poll() {
+        lock.lock();
+        try {
+            return size == 0 ? null : take(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Remove the newest request of the lowest non-empty class below the given class, used for load shedding
+    @SuppressWarnings("unchecked")
+    public T removeNewestBelow(int cls) {
+        lock.lock();
+        try {
+            for (int c = queues.length - 1; c > cls; c--) {
+                if (!queues[c].isEmpty()) {
+                    size--;
+                    return (T) queues[c].pollLast();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Summary of per-class wait times, e.g. for the monitor log
+    public String describeWaits() {
+        lock.lock();
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int c = 0; c < queues.length; c++) {
+                if (c > 0) sb.append(" | ");
+                long avgMs = served[c] == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos[c] / served[c]);
+                sb.append(CLASS_NAMES[c]).append(": queued ").append(queues[c].size())
+                  .append(", served ").append(served[c])
+                  .append(", avg wait ").append(avgMs).append(" ms")
+                  .append(", max wait ").append(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos[c])).append(" ms")
+                  .append(", aged ").append(aged[c]);
+            }
+            return sb.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Pick the next entry; caller holds the lock and guarantees size > 0
+    private T take(long now) {
+        // Aging: the oldest head past the threshold is served first
+        int agedClass = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int c = 0; c < queues.length; c++) {
+            if (queues[c].isEmpty()) continue;
+            long enqueuedAt = queues[c].firstTime();
+            if (now - enqueuedAt >= agingNanos && enqueuedAt < oldest) {
+                oldest = enqueuedAt;
+                agedClass = c;
+            }
+        }
+        if (agedClass >= 0) {
+            aged[agedClass]++;
+            return dequeue(agedClass, now);
+        }
+
+        // Weighted round robin: stay on a class until its credits run out or it empties
+        while (creditsLeft == 0 || queues[currentClass].isEmpty()) {
+            currentClass = (currentClass + 1) % queues.length;
+            creditsLeft = weights[currentClass];
+        }
+        creditsLeft--;
+        return dequeue(currentClass, now);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T dequeue(int cls, long now) {
+        long wait = now - queues[cls].firstTime();
+        T item = (T) queues[cls].pollFirst();
+        size--;
+        served[cls]++;
+        totalWaitNanos[cls] += wait;
+        if (wait > maxWaitNanos[cls]) maxWaitNanos[cls] = wait;
+        return item;
+    }
+}
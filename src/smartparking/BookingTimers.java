@@ -0,0 +1,92 @@
+package smartparking;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+// Shared deadline table for booking warnings, booking expiry, soft-lock expiry and reservation starts
+// Replaces a java.util.Timer (a thread plus two TimerTasks) per booking: deadlines are primitive slots indexed
+// by spot, and one tick on the shared scheduler fires whatever is due. Setting or clearing a deadline allocates nothing
+// once the table exists; it is created by the lot's first deadline, so an idle lot holds none and its ticks are empty.
+public class BookingTimers {
+    private static final int WARNING = 0;
+    private static final int EXPIRY = 1;
+    private static final int SOFT_LOCK = 2;
+    private static final int RESERVATION = 3; // Start of the spot's next advance reservation
+    private static final int KINDS = 4;
+
+    private final int spotCount;
+    private final IntFunction<ParkingSpot> spots; // Spot by index, called only for a deadline that fired
+    private final ScheduledExecutorService scheduler;
+    private final long tickMillis;
+    private volatile AtomicLongArray deadlines; // KINDS slots per spot, 0 when no deadline is set; null until needed
+
+    // Constructor: ticks on the given scheduler at a fixed interval once started
+    public BookingTimers(int spotCount, IntFunction<ParkingSpot> spots, ScheduledExecutorService scheduler,
+                         long tickMillis) {
+        this.spotCount = spotCount;
+        this.spots = spots;
+        this.scheduler = scheduler;
+        this.tickMillis = tickMillis;
+    }
+
+    // Begin ticking; kept out of the constructor so the task never sees a partly built instance
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void scheduleBooking(int index, long warningTime, long expiryTime) {
+        set(index, WARNING, warningTime);
+        set(index, EXPIRY, expiryTime);
+    }
+
+    public void cancelBooking(int index) {
+        set(index, WARNING, 0);
+        set(index, EXPIRY, 0);
+    }
+
+    public void scheduleSoftLock(int index, long expiryTime) {
+        set(index, SOFT_LOCK, expiryTime);
+    }
+
+    // Set the start of the spot's next reservation, 0 to clear
+    public void scheduleReservation(int index, long startTime) {
+        set(index, RESERVATION, startTime);
+    }
+
+    // Fire due deadlines; a deadline is claimed by compare-and-set so a booking replaced in the meantime is left alone
+    void tick() {
+        AtomicLongArray table = deadlines;
+        if (table == null) return; // Nothing was ever scheduled
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < spotCount; i++) {
+            int slot = i * KINDS;
+            if (claimDue(table, slot + WARNING, now) != 0) spots.apply(i).onWarningDue();
+            long expiry = claimDue(table, slot + EXPIRY, now);
+            if (expiry != 0) spots.apply(i).onExpiryDue(expiry);
+            if (claimDue(table, slot + SOFT_LOCK, now) != 0) spots.apply(i).onSoftLockDue();
+            if (claimDue(table, slot + RESERVATION, now) != 0) spots.apply(i).onReservationDue();
+        }
+    }
+
+    // The deadline in a slot if it is due and this call cleared it, 0 otherwise
+    private static long claimDue(AtomicLongArray table, int slot, long now) {
+        long deadline = table.get(slot);
+        return deadline != 0 && deadline <= now && table.compareAndSet(slot, deadline, 0) ? deadline : 0;
+    }
+
+    private void set(int index, int kind, long time) {
+        AtomicLongArray table = deadlines;
+        if (table == null) {
+            if (time == 0) return; // Clearing a deadline that was never set
+            table = table();
+        }
+        table.set(index * KINDS + kind, time);
+    }
+
+    private synchronized AtomicLongArray table() {
+        if (deadlines == null) deadlines = new AtomicLongArray(spotCount * KINDS);
+        return deadlines;
+    }
+}
@@ -0,0 +1,146 @@
+package smartparking;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local cluster harness: launches ClusterNode JVMs on loopback, grows the cluster from 1 to N nodes and measures
+// routed booking throughput at each size. Every join rebalances lots with their bookings; a sentinel booking per
+// lot checks that none is lost. Finally one node leaves gracefully and one is killed to show failover.
+// Usage: java -cp SmartParking.jar smartparking.ClusterBenchmark [maxNodes] [secondsPerStep] [clients] [lots]
+public class ClusterBenchmark {
+    private static final String SENTINEL = "sentinel"; // Holds spot A1 of every lot for the whole run
+
+    public static void main(String[] args) throws Exception {
+        int maxNodes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int lotCount = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+
+        List<Process> processes = new ArrayList<>();
+        List<Integer> ports = new ArrayList<>();
+        try (ClusterRouter router = new ClusterRouter(clients)) {
+            String[] lots = new String[lotCount];
+            for (int i = 0; i < lotCount; i++) lots[i] = "site-" + i;
+            String[] spots = ParkingLotManager.getInstance().getSpotIds(); // Same layout in every lot
+
+            for (int n = 1; n <= maxNodes; n++) {
+                Process process = launchNode();
+                processes.add(process);
+                ports.add(readPort(process));
+                long start = System.nanoTime();
+                router.addNode("127.0.0.1", ports.get(n - 1));
+                if (n == 1) {
+                    for (String lot : lots) {
+                        router.addLot(lot);
+                        router.bookSpot(lot, "A1", 24, false, SENTINEL, null);
+                    }
+                }
+                long rebalanceMillis = (System.nanoTime() - start) / 1_000_000;
+                double throughput = measure(router, lots, spots, clients, seconds);
+                System.out.printf("nodes=%d  %,.0f ops/s  (join + rebalance %d ms, sentinel bookings lost: %d)%n",
+                    n, throughput, rebalanceMillis, lostSentinels(router, lots));
+            }
+
+            if (maxNodes > 1) {
+                String leaving = router.getNodes().get(0);
+                router.removeNode(leaving);
+                System.out.printf("graceful leave of %s: sentinel bookings lost: %d%n", leaving, lostSentinels(router, lots));
+
+                // Kill the owner of the first lot; the next call detects it and fails the lot over
+                String victim = router.ownerOf(lots[0]);
+                int victimPort = Integer.parseInt(victim.substring(victim.indexOf(':') + 1));
+                processes.get(ports.indexOf(victimPort)).destroyForcibly().waitFor();
+                long start = System.nanoTime();
+                router.getSpotStatus(lots[0], "A1", null);
+                System.out.printf("killed %s: failover on next call took %d ms, now owned by %s; "
+                        + "sentinel bookings lost: %d (lots of a crashed node restart empty)%n",
+                    victim, (System.nanoTime() - start) / 1_000_000, router.ownerOf(lots[0]),
+                    lostSentinels(router, lots));
+            }
+        } finally {
+            for (Process process : processes) process.destroyForcibly();
+        }
+        System.exit(0);
+    }
+
+    // Book-then-cancel round trips on random lots and spots from many client threads; returns routed calls per second
+    private static double measure(ClusterRouter router, String[] lots, String[] spots, int clients, int seconds)
+            throws InterruptedException {
+        AtomicLong calls = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            String user = "client-" + c;
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                while (System.nanoTime() < end) {
+                    String lot = lots[random.nextInt(lots.length)];
+                    String spot = spots[1 + random.nextInt(spots.length - 1)]; // Never the sentinel's A1
+                    done++;
+                    if (router.bookSpot(lot, spot, 1, false, user, null)) {
+                        router.cancelBooking(lot, spot, user, null);
+                        done++;
+                    }
+                }
+                calls.addAndGet(done);
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        return calls.get() / (double) seconds;
+    }
+
+    // Sentinel spots that another user could book, i.e. whose booking did not survive
+    private static int lostSentinels(ClusterRouter router, String[] lots) {
+        int lost = 0;
+        for (String lot : lots) {
+            if (router.bookSpot(lot, "A1", 1, false, "probe", null)) {
+                lost++;
+                router.cancelBooking(lot, "A1", "probe", null);
+                router.bookSpot(lot, "A1", 24, false, SENTINEL, null); // Restore for the next check
+            }
+        }
+        return lost;
+    }
+
+    // Start a node JVM with this JVM's classpath
+    private static Process launchNode() throws IOException {
+        String java = System.getProperty("java.home") + "/bin/java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "smartparking.ClusterNode", "0")
+            .redirectErrorStream(true)
+            .start();
+    }
+
+    // Wait for the node's "READY <port>" line, then keep draining its output so it never blocks on a full pipe
+    private static int readPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("READY ")) {
+                Thread drain = new Thread(() -> {
+                    try {
+                        while (reader.readLine() != null) {
+                            // Discard monitor output
+                        }
+                    } catch (IOException ignored) {
+                        // Process ended
+                    }
+                }, "NodeOutput");
+                drain.setDaemon(true);
+                drain.start();
+                return Integer.parseInt(line.substring(6).trim());
+            }
+        }
+        throw new IOException("Node exited before it was ready");
+    }
+}
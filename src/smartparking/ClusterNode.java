@@ -0,0 +1,256 @@
+package smartparking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// One engine process of a partitioned cluster, serving the lots the router assigned to it over ClusterProtocol
+// Each connection runs on its own virtual thread and handles one request at a time, so a booking simply waits
+// for its future. Lots are served only between IMPORT and EXPORT; anything else is answered with NOT_OWNER. An exported
+// lot's snapshot stays here until the router RELEASEs it, so the move survives a lost reply or a failed import.
+// Requests hold their lot's gate shared until they have answered; EXPORT and IMPORT take it exclusively, so an export
+// waits for bookings in flight and snapshots a lot no request can touch.
+// Usage: java -cp SmartParking.jar smartparking.ClusterNode [port]   (prints "READY <port>" once listening)
+public class ClusterNode implements AutoCloseable {
+    private final ParkingEngine engine;
+    private final ServerSocket server;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private static final long QUIET_TIMEOUT_MILLIS = 10_000; // Export waits this long for the lot's queue to drain
+
+    private final Set<String> servedLots = ConcurrentHashMap.newKeySet();
+    private final Map<String, ReentrantReadWriteLock> gates = new ConcurrentHashMap<>(); // Per lot, see above
+    private final Map<String, LotSnapshot> exported = new ConcurrentHashMap<>(); // Handed over, not yet released
+
+    // A request against a served lot, run while holding the lot's gate shared
+    private interface LotRequest {
+        void run(ParkingLotManager lot) throws IOException;
+    }
+
+    // Constructor: binds to loopback on the given port (0 picks a free port)
+    public ClusterNode(ParkingEngine engine, int port) throws IOException {
+        this.engine = engine;
+        this.server = new ServerSocket();
+        server.bind(new InetSocketAddress("127.0.0.1", port), 1024);
+    }
+
+    public void start() {
+        connections.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true); // Small request/response frames; do not wait on delayed ACKs
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) System.err.println("⚠️ Cluster accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Request loop of one router connection
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException closed) {
+                    return;
+                }
+                boolean known = handle(op, in, out);
+                out.flush();
+                if (!known) return; // Its fields were not read, so the stream position is lost
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Cluster connection dropped: " + e.getMessage());
+        }
+    }
+
+    // Answer one request; false for an unknown op, after which the connection must be closed
+    private boolean handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case ClusterProtocol.OP_BOOK -> {
+                String lotId = in.readUTF();
+                String spotId = in.readUTF();
+                int hours = in.readInt();
+                boolean priority = in.readBoolean();
+                String userId = in.readUTF();
+                String requestId = ClusterProtocol.orNull(in.readUTF());
+                String label = hours == 1 ? "1 hour" : hours + " hours";
+                serveShared(lotId, out, lot -> reply(out, await(lot.bookSpot(spotId, hours, label, priority, userId, requestId))));
+            }
+            case ClusterProtocol.OP_CANCEL -> {
+                String lotId = in.readUTF();
+                String spotId = in.readUTF();
+                String userId = in.readUTF();
+                String requestId = ClusterProtocol.orNull(in.readUTF());
+                // Owner-checked: only the booking's holder can cancel it, and it leaves their bookings too
+                serveShared(lotId, out, lot -> reply(out, await(lot.cancelBooking(spotId, userId, requestId))));
+            }
+            case ClusterProtocol.OP_STATUS -> {
+                String lotId = in.readUTF();
+                String spotId = in.readUTF();
+                String userId = ClusterProtocol.orNull(in.readUTF());
+                serveShared(lotId, out, lot -> {
+                    out.writeByte(ClusterProtocol.OK);
+                    out.writeUTF(lot.getSpotStatus(spotId, userId));
+                });
+            }
+            case ClusterProtocol.OP_EXPORT -> exportLot(in.readUTF(), out);
+            case ClusterProtocol.OP_IMPORT -> {
+                String lotId = in.readUTF();
+                importLot(lotId, ClusterProtocol.readSnapshot(in), out);
+            }
+            case ClusterProtocol.OP_RELEASE -> {
+                String lotId = in.readUTF();
+                reply(out, exported.remove(lotId) != null); // Under no gate: the lot is served elsewhere by now
+            }
+            case ClusterProtocol.OP_PING -> {
+                out.writeByte(ClusterProtocol.OK);
+                out.writeUTF("node on port " + getPort() + " serving " + servedLots.size() + " lots");
+            }
+            default -> {
+                out.writeByte(ClusterProtocol.ERROR);
+                out.writeUTF("Unknown op " + op + "; closing the connection");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Stop serving the lot, let the bookings already admitted finish, then hand over everything it holds. The
+    // snapshot is kept until RELEASE; exporting the lot again before that returns it unchanged.
+    private void exportLot(String lotId, DataOutputStream out) throws IOException {
+        Lock exclusive = gate(lotId).writeLock();
+        exclusive.lock(); // Waits for requests in flight on this lot; later ones queue behind it and get NOT_OWNER
+        try {
+            LotSnapshot retained = exported.get(lotId);
+            if (retained != null) { // A retry whose first reply was lost
+                out.writeByte(ClusterProtocol.OK);
+                ClusterProtocol.writeSnapshot(out, retained);
+                return;
+            }
+            ParkingLotManager lot = servedLot(lotId, out);
+            if (lot == null) return;
+            servedLots.remove(lotId);
+            if (!awaitQuiet(lot)) {
+                servedLots.add(lotId); // Keep serving rather than hand over a lot that is still changing
+                out.writeByte(ClusterProtocol.ERROR);
+                out.writeUTF("Lot " + lotId + " did not go quiet for the export");
+                return;
+            }
+            LotSnapshot snapshot = lot.snapshot();
+            lot.release(snapshot);
+            exported.put(lotId, snapshot);
+            out.writeByte(ClusterProtocol.OK);
+            ClusterProtocol.writeSnapshot(out, snapshot);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private void importLot(String lotId, LotSnapshot snapshot, DataOutputStream out) throws IOException {
+        Lock exclusive = gate(lotId).writeLock();
+        exclusive.lock();
+        try {
+            exported.remove(lotId); // Taking back a lot whose import elsewhere failed
+            ParkingLotManager lot = engine.getOrCreateLot(lotId);
+            lot.release(lot.snapshot()); // Left over from an earlier stint on this node
+            int restored = lot.restore(snapshot);
+            servedLots.add(lotId);
+            out.writeByte(ClusterProtocol.OK);
+            out.writeInt(restored);
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    // Run a request if this node serves the lot, holding the lot's gate shared until it has answered
+    private void serveShared(String lotId, DataOutputStream out, LotRequest request) throws IOException {
+        Lock shared = gate(lotId).readLock();
+        shared.lock();
+        try {
+            ParkingLotManager lot = servedLot(lotId, out);
+            if (lot != null) request.run(lot);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private ReentrantReadWriteLock gate(String lotId) {
+        return gates.computeIfAbsent(lotId, id -> new ReentrantReadWriteLock());
+    }
+
+    private static boolean awaitQuiet(ParkingLotManager lot) {
+        try {
+            return lot.awaitQuiet(QUIET_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // The lot if this node serves it; otherwise answers NOT_OWNER and returns null
+    private ParkingLotManager servedLot(String lotId, DataOutputStream out) throws IOException {
+        ParkingLotManager lot = servedLots.contains(lotId) ? engine.getLot(lotId) : null;
+        if (lot == null) {
+            out.writeByte(ClusterProtocol.NOT_OWNER);
+            out.writeUTF("Lot " + lotId + " is not served here");
+        }
+        return lot;
+    }
+
+    private static void reply(DataOutputStream out, boolean result) throws IOException {
+        out.writeByte(ClusterProtocol.OK);
+        out.writeBoolean(result);
+    }
+
+    private static boolean await(CompletableFuture<Boolean> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        ParkingEngine engine = new ParkingEngine(Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+        ClusterNode node = new ClusterNode(engine, port);
+        node.start();
+        System.out.println("READY " + node.getPort());
+        Thread.currentThread().join(); // Serve until the process is stopped
+    }
+}
@@ -0,0 +1,106 @@
+package smartparking;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary request/response protocol between ClusterRouter and ClusterNode
+// A request is one op byte followed by its fields; a response is one status byte followed by the result or an
+// error message. Strings use DataOutput's modified UTF-8, times are epoch millis as longs, and an absent optional
+// string (request ID, user) is sent as "". A request with an unknown op is answered with ERROR and the node closes
+// the connection, since it cannot know how many bytes of fields follow.
+//
+//   BOOK    lot, spot, int hours, boolean priority, user, requestId   -> boolean booked
+//   CANCEL  lot, spot, user, requestId                                -> boolean cancelled; only by the holder
+//   STATUS  lot, spot, user                                           -> status
+//   EXPORT  lot                                                       -> snapshot; the node stops serving the lot
+//   IMPORT  lot, snapshot                                             -> int restored; the node serves the lot
+//   RELEASE lot                                                       -> boolean dropped; the new owner has the lot
+//
+// A move is two-phase: the exporting node keeps the snapshot until RELEASE, so a retried EXPORT gets the same
+// snapshot back instead of NOT_OWNER, and an IMPORT of the snapshot on the exporting node takes the lot back.
+//
+// A snapshot (LotSnapshot) is bookings, soft locks and pending expiries as booking lists (spot, user, end), then
+// reservations (int count; spot, long id, long start, long end, owner) and request results
+// (int count; key, boolean result, long created).
+//   PING                                                              -> description of the node
+public final class ClusterProtocol {
+    public static final byte OP_BOOK = 1;
+    public static final byte OP_CANCEL = 2;
+    public static final byte OP_STATUS = 3;
+    public static final byte OP_EXPORT = 4;
+    public static final byte OP_IMPORT = 5;
+    public static final byte OP_PING = 6;
+    public static final byte OP_RELEASE = 7;
+
+    public static final byte OK = 0;
+    public static final byte NOT_OWNER = 1; // The node does not serve that lot (the router's ring is stale)
+    public static final byte ERROR = 2;
+
+    private ClusterProtocol() {
+    }
+
+    public static void writeBookings(DataOutputStream out, List<BookingRecord> bookings) throws IOException {
+        out.writeInt(bookings.size());
+        for (BookingRecord booking : bookings) {
+            out.writeUTF(booking.spotId);
+            out.writeUTF(orEmpty(booking.userId)); // An expiry may have no user
+            out.writeLong(booking.endMillis);
+        }
+    }
+
+    public static List<BookingRecord> readBookings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<BookingRecord> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) bookings.add(new BookingRecord(in.readUTF(), orNull(in.readUTF()), in.readLong()));
+        return bookings;
+    }
+
+    public static void writeSnapshot(DataOutputStream out, LotSnapshot snapshot) throws IOException {
+        writeBookings(out, snapshot.bookings);
+        writeBookings(out, snapshot.softLocks);
+        writeBookings(out, snapshot.expiries);
+        out.writeInt(snapshot.reservations.size());
+        for (LotSnapshot.Reservation reservation : snapshot.reservations) {
+            out.writeUTF(reservation.spotId);
+            out.writeLong(reservation.id);
+            out.writeLong(reservation.startMillis);
+            out.writeLong(reservation.endMillis);
+            out.writeUTF(reservation.owner);
+        }
+        out.writeInt(snapshot.requestResults.size());
+        for (LotSnapshot.RequestResult result : snapshot.requestResults) {
+            out.writeUTF(result.key);
+            out.writeBoolean(result.result);
+            out.writeLong(result.createdMillis);
+        }
+    }
+
+    public static LotSnapshot readSnapshot(DataInputStream in) throws IOException {
+        LotSnapshot snapshot = new LotSnapshot();
+        snapshot.bookings.addAll(readBookings(in));
+        snapshot.softLocks.addAll(readBookings(in));
+        snapshot.expiries.addAll(readBookings(in));
+        int reservations = in.readInt();
+        for (int i = 0; i < reservations; i++) {
+            snapshot.reservations.add(new LotSnapshot.Reservation(in.readUTF(), in.readLong(), in.readLong(),
+                in.readLong(), in.readUTF()));
+        }
+        int results = in.readInt();
+        for (int i = 0; i < results; i++) {
+            snapshot.requestResults.add(new LotSnapshot.RequestResult(in.readUTF(), in.readBoolean(), in.readLong()));
+        }
+        return snapshot;
+    }
+
+    // Optional strings travel as "" when absent
+    public static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    public static String orNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
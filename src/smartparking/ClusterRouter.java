@@ -0,0 +1,402 @@
+package smartparking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Thin client-side router of a partitioned cluster: lots are spread over ClusterNode processes by consistent hashing,
+// and bookSpot / cancelBooking / status calls are forwarded to the owning node over ClusterProtocol.
+// Calls look the owner up under the topology read lock and talk to it after releasing it; a node joining or leaving
+// takes the write lock and moves each affected lot by exporting its snapshot (LotSnapshot) from the old owner,
+// importing it on the new one and then releasing it on the old one. A lot whose import fails goes back to its old
+// owner; the lots already moved follow it and the ring change is undone, so a failed join or leave changes nothing.
+// A call that reaches the old owner mid-move gets NOT_OWNER and looks the owner up again.
+// A broken exchange is retried on fresh connections, and bookings and cancels always carry a request ID (one is made
+// up when the caller has none) so the node's request dedup answers a retry whose first attempt already went through.
+// A node is declared failed only after FAILURE_THRESHOLD consecutive failed attempts, and its lots then restart empty
+// on their new owners (see the replication work for keeping them).
+public class ClusterRouter implements AutoCloseable {
+    private static final int VIRTUAL_NODES = 128;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int READ_TIMEOUT_MILLIS = 15_000; // Above the node's export quiet wait and any booking queue
+    private static final int FAILURE_THRESHOLD = 3; // Consecutive failed attempts before a node is declared failed
+    private static final long RETRY_BACKOFF_MILLIS = 50; // Doubled per attempt
+    private static final int MAX_REROUTES = 8; // Owner look-ups per call while lots move
+
+    private final ConsistentHashRing ring = new ConsistentHashRing(VIRTUAL_NODES);
+    private final Map<String, NodeClient> nodes = new ConcurrentHashMap<>(); // By node ID "host:port"
+    private final Set<String> lots = ConcurrentHashMap.newKeySet();
+    private final ReentrantReadWriteLock topology = new ReentrantReadWriteLock();
+    private final int connectionsPerNode;
+    private final String requestIdPrefix = UUID.randomUUID() + "-"; // Keeps made-up request IDs unique per router
+    private final AtomicLong requestIds = new AtomicLong();
+
+    // One protocol connection; used by one caller at a time
+    private static class Connection implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(String host, int port) throws IOException {
+            this.socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+
+    // Connections to one node, opened on demand and kept up to the pool size
+    private static class NodeClient {
+        final String host;
+        final int port;
+        final ArrayBlockingQueue<Connection> idle;
+        final AtomicInteger failures = new AtomicInteger(); // Consecutive failed attempts
+
+        NodeClient(String host, int port, int poolSize) {
+            this.host = host;
+            this.port = port;
+            this.idle = new ArrayBlockingQueue<>(poolSize);
+        }
+
+        Connection borrow() throws IOException {
+            Connection connection = idle.poll();
+            return connection != null ? connection : new Connection(host, port);
+        }
+
+        void release(Connection connection) {
+            if (!idle.offer(connection)) connection.close();
+        }
+
+        void close() {
+            Connection connection;
+            while ((connection = idle.poll()) != null) connection.close();
+        }
+    }
+
+    // The node no longer serves the lot: it moved, so look the owner up again
+    private static class NotOwnerException extends RuntimeException {
+        NotOwnerException(String message) {
+            super(message);
+        }
+    }
+
+    // Writes the request fields after the op byte
+    private interface RequestWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Reads the result after an OK status byte
+    private interface ResponseReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    // Constructor: keeps up to connectionsPerNode idle connections to every node
+    public ClusterRouter(int connectionsPerNode) {
+        this.connectionsPerNode = connectionsPerNode;
+    }
+
+    // Add a lot to the cluster; its owner starts serving it empty
+    public void addLot(String lotId) throws IOException {
+        topology.writeLock().lock();
+        try {
+            if (!lots.add(lotId)) return;
+            String owner = ring.ownerOf(lotId);
+            if (owner != null) importLot(owner, lotId, new LotSnapshot());
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    // A node joins: lots that now hash to it move over with their bookings
+    public void addNode(String host, int port) throws IOException {
+        String nodeId = host + ":" + port;
+        topology.writeLock().lock();
+        try {
+            Map<String, String> before = owners();
+            nodes.put(nodeId, new NodeClient(host, port, connectionsPerNode));
+            ring.addNode(nodeId);
+            try {
+                rebalance(before, null);
+            } catch (IOException | RuntimeException e) {
+                ring.removeNode(nodeId); // The lots are back on their old owners
+                nodes.remove(nodeId).close();
+                throw e;
+            }
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    // A node leaves gracefully: its lots move to their new owners with their bookings
+    public void removeNode(String nodeId) throws IOException {
+        topology.writeLock().lock();
+        try {
+            Map<String, String> before = owners();
+            ring.removeNode(nodeId);
+            try {
+                rebalance(before, null);
+            } catch (IOException | RuntimeException e) {
+                ring.addNode(nodeId); // The lots are back on it; it stays a member
+                throw e;
+            }
+            NodeClient client = nodes.remove(nodeId);
+            if (client != null) client.close();
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    // A node stopped answering: drop it and let its lots restart empty on their new owners
+    public void nodeFailed(String nodeId) {
+        topology.writeLock().lock();
+        try {
+            if (!nodes.containsKey(nodeId)) return; // Another caller already handled it
+            Map<String, String> before = owners();
+            ring.removeNode(nodeId);
+            NodeClient client = nodes.remove(nodeId);
+            client.close();
+            rebalance(before, nodeId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Rebalancing after the failure of " + nodeId + " failed", e);
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    public boolean bookSpot(String lotId, String spotId, int hours, boolean isPriority, String userId, String requestId) {
+        String id = requestId != null ? requestId : nextRequestId(); // The same for every retry of this call
+        return route(lotId, ClusterProtocol.OP_BOOK, out -> {
+            out.writeUTF(lotId);
+            out.writeUTF(spotId);
+            out.writeInt(hours);
+            out.writeBoolean(isPriority);
+            out.writeUTF(userId);
+            out.writeUTF(id);
+        }, DataInputStream::readBoolean);
+    }
+
+    // Cancel the user's own booking; false if the spot is not booked by them
+    public boolean cancelBooking(String lotId, String spotId, String userId, String requestId) {
+        Objects.requireNonNull(userId, "userId");
+        String id = requestId != null ? requestId : nextRequestId();
+        return route(lotId, ClusterProtocol.OP_CANCEL, out -> {
+            out.writeUTF(lotId);
+            out.writeUTF(spotId);
+            out.writeUTF(userId);
+            out.writeUTF(id);
+        }, DataInputStream::readBoolean);
+    }
+
+    public String getSpotStatus(String lotId, String spotId, String userId) {
+        return route(lotId, ClusterProtocol.OP_STATUS, out -> {
+            out.writeUTF(lotId);
+            out.writeUTF(spotId);
+            out.writeUTF(ClusterProtocol.orEmpty(userId));
+        }, in -> in.readUTF());
+    }
+
+    // Node currently owning a lot, null when the cluster has no nodes
+    public String ownerOf(String lotId) {
+        return ring.ownerOf(lotId);
+    }
+
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    @Override
+    public void close() {
+        nodes.values().forEach(NodeClient::close);
+    }
+
+    // Send a call to the lot's owner. The topology lock is only held to look the owner up, never during I/O, so a
+    // slow node cannot stall calls to other nodes or a rebalance. An owner that fails FAILURE_THRESHOLD attempts in a
+    // row is failed over and the call goes to the new owner.
+    private <T> T route(String lotId, byte op, RequestWriter request, ResponseReader<T> response) {
+        for (int reroute = 0; ; reroute++) {
+            String owner;
+            NodeClient client;
+            topology.readLock().lock();
+            try {
+                owner = ring.ownerOf(lotId);
+                if (owner == null) throw new IllegalStateException("No cluster nodes");
+                client = nodes.get(owner);
+            } finally {
+                topology.readLock().unlock();
+            }
+            try {
+                if (client == null) throw new NotOwnerException("Node " + owner + " left");
+                return callWithRetry(owner, client, op, request, response);
+            } catch (NotOwnerException e) {
+                if (reroute >= MAX_REROUTES) throw new IllegalStateException("Lot " + lotId + " keeps moving: " + e.getMessage());
+                Thread.onSpinWait(); // The move holds the write lock; the next look-up waits for it
+            } catch (IOException e) {
+                if (client.failures.get() < FAILURE_THRESHOLD || reroute >= MAX_REROUTES) {
+                    throw new UncheckedIOException("Node " + owner + " unreachable", e);
+                }
+                nodeFailed(owner);
+            }
+        }
+    }
+
+    // Attempt the call until it succeeds or the node has failed FAILURE_THRESHOLD attempts in a row; every retry drops
+    // the node's idle connections, which broke with it, and dials a fresh one
+    private <T> T callWithRetry(String nodeId, NodeClient client, byte op, RequestWriter request,
+                                ResponseReader<T> response) throws IOException {
+        long backoff = RETRY_BACKOFF_MILLIS;
+        while (true) {
+            try {
+                T result = call(nodeId, client, op, request, response);
+                client.failures.set(0);
+                return result;
+            } catch (IOException e) {
+                if (client.failures.incrementAndGet() >= FAILURE_THRESHOLD) throw e;
+                client.close();
+                sleepQuietly(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private <T> T call(String nodeId, byte op, RequestWriter request, ResponseReader<T> response) throws IOException {
+        NodeClient client = nodes.get(nodeId);
+        if (client == null) throw new IOException("Unknown node " + nodeId);
+        return callWithRetry(nodeId, client, op, request, response);
+    }
+
+    private <T> T call(String nodeId, NodeClient client, byte op, RequestWriter request, ResponseReader<T> response)
+            throws IOException {
+        Connection connection = client.borrow();
+        try {
+            connection.out.writeByte(op);
+            request.write(connection.out);
+            connection.out.flush();
+            byte status = connection.in.readByte();
+            if (status != ClusterProtocol.OK) {
+                String message = connection.in.readUTF();
+                if (status == ClusterProtocol.NOT_OWNER) {
+                    client.release(connection); // The exchange completed, the connection is still good
+                    throw new NotOwnerException(message);
+                }
+                connection.close(); // The node may close it after an error
+                throw new IllegalStateException("Node " + nodeId + " refused op " + op + ": " + message);
+            }
+            T result = response.read(connection.in);
+            client.release(connection);
+            return result;
+        } catch (IOException e) {
+            connection.close(); // Unknown stream position, never reuse
+            throw e;
+        }
+    }
+
+    private String nextRequestId() {
+        return requestIdPrefix + requestIds.incrementAndGet();
+    }
+
+    // Current owner of every lot
+    private Map<String, String> owners() {
+        Map<String, String> owners = new HashMap<>();
+        for (String lotId : lots) owners.put(lotId, ring.ownerOf(lotId));
+        return owners;
+    }
+
+    // Move every lot whose owner changed; lots of a failed node start empty instead of being exported. When a move
+    // fails on a join or leave, the lots already moved go back to their old owners before the error is rethrown, so
+    // the caller only has to undo its ring change.
+    private void rebalance(Map<String, String> before, String failedNode) throws IOException {
+        List<String> moved = new ArrayList<>();
+        try {
+            for (String lotId : lots) {
+                String from = before.get(lotId);
+                String to = ring.ownerOf(lotId);
+                if (to == null || to.equals(from)) continue;
+                if (from == null || from.equals(failedNode)) {
+                    importLot(to, lotId, new LotSnapshot());
+                } else {
+                    moveLot(lotId, from, to);
+                    moved.add(lotId);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (int i = moved.size() - 1; i >= 0; i--) {
+                String lotId = moved.get(i);
+                try {
+                    moveLot(lotId, ring.ownerOf(lotId), before.get(lotId));
+                } catch (IOException | RuntimeException undo) {
+                    e.addSuppressed(undo);
+                }
+            }
+            throw e;
+        }
+    }
+
+    // Two-phase move: the old owner keeps the exported snapshot until the new owner has imported it, and imports it
+    // back itself if that fails. Export is idempotent, so its retries after a lost reply get the same snapshot.
+    private void moveLot(String lotId, String from, String to) throws IOException {
+        LotSnapshot snapshot = exportLot(from, lotId);
+        try {
+            importLot(to, lotId, snapshot);
+        } catch (IOException | RuntimeException e) {
+            try {
+                importLot(from, lotId, snapshot);
+            } catch (IOException | RuntimeException undo) {
+                e.addSuppressed(undo); // The snapshot is still held by the old owner for a later export
+            }
+            throw e;
+        }
+        try {
+            call(from, ClusterProtocol.OP_RELEASE, out -> out.writeUTF(lotId), DataInputStream::readBoolean);
+        } catch (IOException | RuntimeException e) {
+            // The move is complete; the old owner only keeps a stale copy until its next import of the lot
+            System.err.println("⚠️ Releasing lot " + lotId + " on " + from + " failed: " + e.getMessage());
+        }
+    }
+
+    private LotSnapshot exportLot(String nodeId, String lotId) throws IOException {
+        return call(nodeId, ClusterProtocol.OP_EXPORT, out -> out.writeUTF(lotId), ClusterProtocol::readSnapshot);
+    }
+
+    private void importLot(String nodeId, String lotId, LotSnapshot snapshot) throws IOException {
+        call(nodeId, ClusterProtocol.OP_IMPORT, out -> {
+            out.writeUTF(lotId);
+            ClusterProtocol.writeSnapshot(out, snapshot);
+        }, DataInputStream::readInt);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package smartparking;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Consistent hash ring mapping keys (lot IDs) to node IDs
+// Every node is placed at many virtual points so load evens out, and adding or removing a node only moves the
+// keys between it and its ring neighbours. The ring is copied on change and read without locks.
+public class ConsistentHashRing {
+    private final int virtualNodes; // Points per node on the ring
+    private volatile TreeMap<Long, String> ring = new TreeMap<>();
+
+    // Constructor
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public synchronized void addNode(String nodeId) {
+        TreeMap<Long, String> updated = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) updated.put(hash(nodeId + "#" + i), nodeId);
+        ring = updated;
+    }
+
+    public synchronized void removeNode(String nodeId) {
+        TreeMap<Long, String> updated = new TreeMap<>(ring);
+        updated.values().removeIf(nodeId::equals);
+        ring = updated;
+    }
+
+    // Node owning the key: the first point at or after the key's hash, wrapping around; null on an empty ring
+    public String ownerOf(String key) {
+        TreeMap<Long, String> current = ring;
+        if (current.isEmpty()) return null;
+        Map.Entry<Long, String> entry = current.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : current.firstEntry().getValue();
+    }
+
+    // Distinct node IDs on the ring
+    public List<String> getNodes() {
+        return Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(ring.values())));
+    }
+
+    // 64-bit FNV-1a followed by a murmur finaliser, so similar IDs ("lot-1", "lot-2") land far apart
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
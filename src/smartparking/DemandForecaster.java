@@ -0,0 +1,88 @@
+package smartparking;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+
+// Online demand forecaster: exponentially weighted arrival rates per zone and hour-of-week
+// Training folds one counter per event and predictions are plain array reads, so both are constant time
+public class DemandForecaster {
+    private static final int HOURS_PER_WEEK = 168;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final int MONDAY_OFFSET_HOURS = 72; // Epoch day 0 was a Thursday
+
+    private final double alpha; // Weight of the most recent hour in the moving average
+    private final long utcOffsetMillis; // Local offset so hour-of-week follows wall-clock time
+    private final double[][] arrivalRate; // [zone][hourOfWeek] smoothed arrivals per hour, null until a zone has arrivals
+    private final int[] currentCount; // Arrivals counted so far in the current hour, per zone
+    private volatile long currentHour; // Absolute hour index the counters belong to; read unlocked by predictions
+
+    // Constructor
+    public DemandForecaster(double alpha) {
+        this.alpha = alpha;
+        this.utcOffsetMillis = ZoneId.systemDefault().getRules()
+            .getOffset(java.time.Instant.now()).getTotalSeconds() * 1000L;
+        this.arrivalRate = new double[ParkingAnalytics.ZONES.length][];
+        this.currentCount = new int[ParkingAnalytics.ZONES.length];
+        this.currentHour = absoluteHour(System.currentTimeMillis());
+    }
+
+    // Record one booking arrival for the zone of the given spot
+    public synchronized void recordArrival(String spotId, long now) {
+        int zone = ParkingAnalytics.zoneIndex(spotId);
+        if (zone < 0) return;
+        roll(now);
+        currentCount[zone]++;
+    }
+
+    // Predicted arrivals per hour for a zone at the given time
+    // Reads are lock-free unless an hour has ended since the last roll: then the finished hours are folded first, so
+    // a zone that stopped receiving bookings decays instead of keeping its last busy rate
+    public double predictArrivalsPerHour(String zone, long time) {
+        long now = System.currentTimeMillis();
+        if (absoluteHour(now) > currentHour) {
+            synchronized (this) {
+                roll(now);
+            }
+        }
+        int z = ParkingAnalytics.zoneIndex(zone);
+        double[] rates = z < 0 ? null : arrivalRate[z];
+        return rates == null ? 0 : rates[hourOfWeek(absoluteHour(time))];
+    }
+
+    // Check if the predicted arrivals over the horizon would use up the free spots in a zone
+    public boolean isZoneAtRisk(String zone, int freeSpots, long horizonMillis) {
+        double expected = predictArrivalsPerHour(zone, System.currentTimeMillis()) * horizonMillis / HOUR_MILLIS;
+        return expected > 0 && expected >= freeSpots;
+    }
+
+    // Fold finished hours into the moving averages, including the hours without arrivals in between so their
+    // buckets decay; a gap of more than a week folds every bucket once
+    private void roll(long now) {
+        long hour = absoluteHour(now);
+        if (hour <= currentHour) return;
+
+        long from = Math.max(currentHour, hour - HOURS_PER_WEEK);
+        for (long h = from; h < hour; h++) {
+            int how = hourOfWeek(h);
+            for (int z = 0; z < currentCount.length; z++) {
+                int count = h == currentHour ? currentCount[z] : 0;
+                if (arrivalRate[z] == null) {
+                    if (count == 0) continue;
+                    arrivalRate[z] = new double[HOURS_PER_WEEK];
+                }
+                arrivalRate[z][how] = alpha * count + (1 - alpha) * arrivalRate[z][how];
+            }
+        }
+        Arrays.fill(currentCount, 0);
+        currentHour = hour;
+    }
+
+    private long absoluteHour(long millis) {
+        return (millis + utcOffsetMillis) / HOUR_MILLIS;
+    }
+
+    // Monday 00:00 local time maps to 0
+    private static int hourOfWeek(long absoluteHour) {
+        return (int) ((absoluteHour + MONDAY_OFFSET_HOURS) % HOURS_PER_WEEK);
+    }
+}
@@ -0,0 +1,162 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Expiry state machine: BOOKED -> EXPIRED (awaiting acknowledgment) -> RELEASED
+// Expiries and acknowledgments (GUI, API or a sensor seeing the vehicle leave) are queued and applied
+// in batches on one scheduler thread; a spot nobody acknowledges is released once the grace period ends.
+public class ExpiryManager {
+    public enum AckSource { USER, SENSOR, GRACE_TIMEOUT }
+
+    private final ParkingLotManager manager;
+    private final ScheduledExecutorService scheduler;
+    private final long graceMillis;
+    private final long batchMillis;
+    private final Queue<Pending> expiredInbox = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, Integer> inboxCounts = new ConcurrentHashMap<>(); // Entries per spot in expiredInbox
+    private final Queue<Ack> ackInbox = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>(); // Spots in EXPIRED state
+    // Deadline order; restored expiries carry their original deadlines, so arrival order is not enough
+    private final PriorityQueue<Pending> deadlines = new PriorityQueue<>(Comparator.comparingLong(p -> p.deadline));
+
+    // An expired booking waiting for acknowledgment
+    private static class Pending {
+        final String spotId;
+        final String userId;
+        final long deadline;
+
+        Pending(String spotId, String userId, long deadline) {
+            this.spotId = spotId;
+            this.userId = userId;
+            this.deadline = deadline;
+        }
+    }
+
+    // An acknowledgment event
+    private static class Ack {
+        final String spotId;
+        final String userId; // null for sensor events
+        final AckSource source;
+
+        Ack(String spotId, String userId, AckSource source) {
+            this.spotId = spotId;
+            this.userId = userId;
+            this.source = source;
+        }
+    }
+
+    // Constructor: processes batches on the given scheduler once started
+    public ExpiryManager(ParkingLotManager manager, ScheduledExecutorService scheduler, long graceMillis, long batchMillis) {
+        this.manager = manager;
+        this.scheduler = scheduler;
+        this.graceMillis = graceMillis;
+        this.batchMillis = batchMillis;
+    }
+
+    // Begin processing batches; kept out of the constructor so the task never sees a partly built instance
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::processBatch, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Called from the booking's expiry timer; only queues the event
+    public void onExpired(String spotId, String userId) {
+        restore(spotId, userId, System.currentTimeMillis() + graceMillis);
+    }
+
+    // Queue an expiry handed over from another node, keeping its original grace deadline
+    public void restore(String spotId, String userId, long deadline) {
+        inboxCounts.merge(spotId, 1, Integer::sum); // Before the offer, so isPending never misses it
+        expiredInbox.offer(new Pending(spotId, userId, deadline));
+    }
+
+    // Expired bookings awaiting release, queued or applied; the record's end is the grace deadline
+    public synchronized List<BookingRecord> snapshot() {
+        List<BookingRecord> expiries = new ArrayList<>();
+        for (Pending entry : pending.values()) expiries.add(new BookingRecord(entry.spotId, entry.userId, entry.deadline));
+        for (Pending entry : expiredInbox) expiries.add(new BookingRecord(entry.spotId, entry.userId, entry.deadline));
+        return expiries;
+    }
+
+    // A spot's expired booking awaiting release, null if none; the record's end is the grace deadline. Queued
+    // expiries are not included: the spot turns time_exceeded, and gets replicated, only once they are applied.
+    public BookingRecord pendingExpiry(String spotId) {
+        Pending entry = pending.get(spotId);
+        return entry == null ? null : new BookingRecord(entry.spotId, entry.userId, entry.deadline);
+    }
+
+    // Forget a spot's expiry without releasing it through the lot (the lot was handed over to another node)
+    public synchronized void discard(String spotId) {
+        pending.remove(spotId);
+        if (expiredInbox.removeIf(entry -> entry.spotId.equals(spotId))) inboxCounts.remove(spotId);
+    }
+
+    // Queue an acknowledgment; user acknowledgments must come from the booking's owner
+    public void acknowledge(String spotId, String userId, AckSource source) {
+        ackInbox.offer(new Ack(spotId, userId, source));
+    }
+
+    // Check if a spot is expired and still waiting to be released
+    public boolean isPending(String spotId) {
+        return pending.containsKey(spotId) || inboxCounts.containsKey(spotId);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getGraceMillis() {
+        return graceMillis;
+    }
+
+    // Apply all queued expiries and acknowledgments, then release spots whose grace period ended
+    synchronized void processBatch() {
+        try {
+            Map<String, List<String>> prompts = new HashMap<>();
+            for (Pending expired = expiredInbox.peek(); expired != null; expired = expiredInbox.peek()) {
+                pending.put(expired.spotId, expired); // Before it leaves the inbox, so isPending never misses it
+                inboxCounts.computeIfPresent(expired.spotId, (spot, count) -> count == 1 ? null : count - 1);
+                expiredInbox.poll();
+                deadlines.add(expired);
+                manager.markExpired(expired.spotId, expired.userId);
+                if (expired.userId != null && !"system".equals(expired.userId)) {
+                    prompts.computeIfAbsent(expired.userId, k -> new ArrayList<>()).add(expired.spotId);
+                }
+            }
+
+            for (Ack ack = ackInbox.poll(); ack != null; ack = ackInbox.poll()) {
+                Pending entry = pending.get(ack.spotId);
+                if (entry == null) continue;
+                if (ack.source == AckSource.USER && !entry.userId.equals(ack.userId)) continue;
+                if (pending.remove(ack.spotId, entry)) manager.releaseExpiredSpot(entry.spotId, entry.userId, ack.source);
+            }
+
+            long now = System.currentTimeMillis();
+            while (!deadlines.isEmpty() && deadlines.peek().deadline <= now) {
+                Pending entry = deadlines.poll();
+                if (pending.remove(entry.spotId, entry)) {
+                    manager.releaseExpiredSpot(entry.spotId, entry.userId, AckSource.GRACE_TIMEOUT);
+                }
+            }
+
+            // One prompt per user per batch, however many of their bookings expired together
+            for (Map.Entry<String, List<String>> prompt : prompts.entrySet()) {
+                UserSession session = manager.getSession(prompt.getKey());
+                if (session != null) session.promptExpiry(prompt.getValue());
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("⚠️ Expiry batch failed: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+}
@@ -9,19 +9,19 @@ import java.util.concurrent.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.Clip;
 
 // GUI class for the smart car parking system
-public class GUI extends JFrame {
+public class GUI extends JFrame implements UserSession {
     private JPanel mainPanel;
     private JTextArea notificationArea;
+    private JTextArea analyticsArea;
     private JPanel notificationPanel;
     private JButton notifyButton;
-    private HashMap<String, JLabel> slotLabels;
+    private LotCanvas lotCanvas;
     private ParkingLotManager parkingLotManager;
     private Timer notificationCleaner;
     private Set<String> userBookedSlots = ConcurrentHashMap.newKeySet();
@@ -31,8 +31,9 @@ public class GUI extends JFrame {
     private JDialog activeBookingDialog = null;
     private JDialog activeConfirmationDialog = null;
     private final String userId;
-    private List<String> notificationMessages = new ArrayList<>();
     private static final int MAX_NOTIFICATIONS = 20;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final MessageRing notificationMessages = new MessageRing(MAX_NOTIFICATIONS); // Lock-free history
 
     // Constructor
     public GUI(ParkingLotManager manager, String userId) {
@@ -42,17 +43,19 @@ public class GUI extends JFrame {
         setSize(1400, 800);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout(10, 10));
-        slotLabels = new HashMap<>();
 
         JLabel titleLabel = new JLabel("SMART CAR PARKING SYSTEM", SwingConstants.CENTER);
         titleLabel.setFont(new Font("Arial", Font.BOLD, 26));
         add(titleLabel, BorderLayout.NORTH);
 
-        add(createLegendPanel(), BorderLayout.WEST);
+        JPanel westPanel = new JPanel(new BorderLayout());
+        westPanel.add(createLegendPanel(), BorderLayout.CENTER);
+        westPanel.add(createAnalyticsPanel(), BorderLayout.SOUTH);
+        add(westPanel, BorderLayout.WEST);
 
         mainPanel = new JPanel();
         mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
-        createZonePanels();
+        createLotCanvas();
         createControlPanel();
         add(mainPanel, BorderLayout.CENTER);
 
@@ -60,43 +63,47 @@ public class GUI extends JFrame {
         setupTimers();
     }
 
-    // Method to create parking zones layout
-    private void createZonePanels() {
-        JPanel zoneA = new JPanel(new GridLayout(1, 14));
-        for (int i = 1; i <= 14; i++) zoneA.add(createSpotLabel("A" + i, false));
-        mainPanel.add(zoneA);
-
-        JPanel zoneBCDE = new JPanel(new GridLayout(1, 4, 20, 10));
-        for (String zone : new String[]{"B", "C", "D", "E"})
-            zoneBCDE.add(createZonePanel(zone, 12, true));
-        mainPanel.add(zoneBCDE);
-
-        JPanel zoneF = new JPanel(new GridLayout(1, 14));
-        for (int i = 1; i <= 14; i++) zoneF.add(createSpotLabel("F" + i, false));
-        mainPanel.add(zoneF);
+    // Method to create the lot view: one canvas drawing every spot from the lot's status table
+    // Wheel zooms, drag pans, double-click fits; garages with several levels also get a level selector
+    private void createLotCanvas() {
+        lotCanvas = new LotCanvas(LotLayout.forLot(parkingLotManager), parkingLotManager::getStatusCode,
+            index -> userBookedSlots.contains(parkingLotManager.getSpotId(index)));
+        if (lotCanvas.getLevelCount() > 1) {
+            JPanel levelPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            JComboBox<String> levelBox = new JComboBox<>();
+            for (int level = 1; level <= lotCanvas.getLevelCount(); level++) levelBox.addItem("Level " + level);
+            levelBox.addActionListener(e -> lotCanvas.setLevel(levelBox.getSelectedIndex()));
+            levelPanel.add(levelBox);
+            mainPanel.add(levelPanel);
+        }
+        mainPanel.add(lotCanvas);
     }
 
-    // Method to create control buttons (Book, Cancel, Find)
+    // Method to create control buttons (Book, Cancel, Extend, Find)
     private void createControlPanel() {
-        JPanel controlPanel = new JPanel(new GridLayout(2, 2, 10, 10));
+        JPanel controlPanel = new JPanel(new GridLayout(3, 2, 10, 10));
         JButton bookButton = new JButton("Book Slot and Pay");
         JButton cancelButton = new JButton("Cancel Booking");
+        JButton extendButton = new JButton("Add 30 Minutes");
         JButton findButton = new JButton("Find Booked Slot");
         notifyButton = new JButton("Notifications");
         Font buttonFont = new Font("Arial", Font.PLAIN, 18);
         bookButton.setFont(buttonFont);
         cancelButton.setFont(buttonFont);
+        extendButton.setFont(buttonFont);
         findButton.setFont(buttonFont);
         notifyButton.setFont(buttonFont);
         
         controlPanel.add(bookButton);
         controlPanel.add(cancelButton);
+        controlPanel.add(extendButton);
         controlPanel.add(findButton);
         controlPanel.add(notifyButton);
         mainPanel.add(controlPanel);
 
         bookButton.addActionListener(e -> handleBooking());
         cancelButton.addActionListener(e -> handleCancellation());
+        extendButton.addActionListener(e -> handleExtension());
         findButton.addActionListener(e -> showBookedSlots());
         notifyButton.addActionListener(e -> toggleNotificationPanel());
     }
@@ -116,6 +123,14 @@ public class GUI extends JFrame {
             return;
         }
 
+        // Limits are tightened for zones predicted to hit capacity
+        if (parkingLotManager.userHasReachedLimit(userId, selectedZone)) {
+            JOptionPane.showMessageDialog(this,
+                "Zone " + selectedZone + " is in high demand and your booking limit is reduced.\nChoose another zone or cancel a booking.",
+                "Limit Reached", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
         String[] spots = parkingLotManager.getSpotsInZone(selectedZone);
         Arrays.sort(spots, Comparator.comparingInt(s -> Integer.parseInt(s.substring(1))));
         String selectedSpot = showDropdown("Select Spot in Zone " + selectedZone + ":", spots);
@@ -280,12 +295,15 @@ public class GUI extends JFrame {
             parkingLotManager.bookSpot(selectedSpot, hours, selectedDuration, false, userId)
                 .thenAccept(success -> {
                     if (success) {
-                        SwingUtilities.invokeLater(() -> userBookedSlots.add(selectedSpot));
+                        SwingUtilities.invokeLater(() -> {
+                            userBookedSlots.add(selectedSpot);
+                            lotCanvas.markDirty(parkingLotManager.getSpotIndex(selectedSpot)); // Own-booking colours
+                        });
                         parkingLotManager.markAsUserBooked(selectedSpot, userId, carPlate, selectedDuration);
                     } else {
                         parkingLotManager.releaseSoftLock(selectedSpot, userId);
                         parkingLotManager.notifyListeners(selectedSpot, "available");
-                        parkingLotManager.notifyUser("Booking failed for " + selectedSpot);
+                        parkingLotManager.notifyUser(userId, "Booking failed for " + selectedSpot);
                     }
                 });
             });
@@ -333,18 +351,37 @@ public class GUI extends JFrame {
         displayNotification("Processing cancellation for " + spotToCancel);
 
         // Use thenAccept directly (non-blocking)
-        parkingLotManager.cancelBooking(spotToCancel).thenAccept(success -> {
+        parkingLotManager.cancelBooking(spotToCancel, userId).thenAccept(success -> {
             if (success) {
                 // Use Swing thread only for UI-related changes
                 SwingUtilities.invokeLater(() -> userBookedSlots.remove(spotToCancel));
-                parkingLotManager.markAsUserUnbooked(spotToCancel, userId);
                 // Let the manager queue handle notifyUser and notifyListeners safely
             } else {
-                parkingLotManager.notifyUser("Cancellation failed for " + spotToCancel);
+                parkingLotManager.notifyUser(userId, "Cancellation failed for " + spotToCancel);
             }
         });
     }
 
+    // Method to extend one of the user's bookings by 30 minutes in place
+    private void handleExtension() {
+        String[] bookedSpots = userBookedSlots.stream()
+            .filter(parkingLotManager::isBooked)
+            .toArray(String[]::new);
+        if (bookedSpots.length == 0) {
+            JOptionPane.showMessageDialog(this, "No active bookings to extend.", "Notice", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        String spot = bookedSpots.length == 1 ? bookedSpots[0] : showDropdown("Select a spot to extend:", bookedSpots);
+        if (spot == null) return;
+
+        if (parkingLotManager.extendBooking(spot, userId, 30 * 60 * 1000L)) {
+            displayNotification("Booking for " + spot + " extended by 30 minutes.");
+        } else {
+            displayNotification("Could not extend " + spot + ": it has expired or is reserved afterwards.");
+        }
+    }
+
     // Method to show a dropdown selection dialog
     private String showDropdown(String title, String[] options) {
     JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -356,7 +393,68 @@ public class GUI extends JFrame {
     return result == JOptionPane.OK_OPTION ? (String) comboBox.getSelectedItem() : null;
     }
     
+    // Method to show an alert popup (expiry warnings, expired holds) for this user
+    @Override
+    public void showAlert(String message) {
+        SwingUtilities.invokeLater(() -> {
+            try {
+                JDialog dialog = new JDialog(this, "Alert", true);
+                dialog.setSize(350, 150);
+                dialog.setLocationRelativeTo(this);
+
+                JLabel label = new JLabel("<html><center>" + message + "</center></html>", SwingConstants.CENTER);
+                label.setFont(new Font("Arial", Font.BOLD, 14));
+                dialog.add(label, BorderLayout.CENTER);
+
+                JButton okButton = new JButton("OK");
+                okButton.addActionListener(e -> dialog.dispose());
+                JPanel buttonPanel = new JPanel();
+                buttonPanel.add(okButton);
+                dialog.add(buttonPanel, BorderLayout.SOUTH);
+
+                dialog.setVisible(true);
+            } catch (Exception ex) {
+                System.err.println("⚠️ Failed to show popup message: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    // Method to prompt this user to acknowledge a batch of expired bookings
+    // Non-modal so unattended expiries never block the EDT; unacknowledged spots are released after the grace period
+    @Override
+    public void promptExpiry(List<String> spotIds) {
+        String spots = String.join(", ", spotIds);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                JDialog dialog = new JDialog(this, "Booking Expired", false);
+                dialog.setSize(350, 160);
+                dialog.setLocationRelativeTo(this);
+
+                JLabel label = new JLabel("<html><center>Booking for spot " + spots + " has expired.<br>Please acknowledge to release the spot.</center></html>", SwingConstants.CENTER);
+                label.setFont(new Font("Arial", Font.BOLD, 14));
+                dialog.add(label, BorderLayout.CENTER);
+
+                JButton okButton = new JButton("OK");
+                okButton.addActionListener(e -> {
+                    dialog.dispose();
+                    spotIds.forEach(spotId -> parkingLotManager.acknowledgeExpiry(spotId, userId));
+                });
+
+                JPanel buttonPanel = new JPanel();
+                buttonPanel.add(okButton);
+                dialog.add(buttonPanel, BorderLayout.SOUTH);
+
+                dialog.setVisible(true);
+            } catch (Exception ex) {
+                System.err.println("⚠️ Failed to prompt expiry acknowledgment for " + spots);
+                ex.printStackTrace();
+            }
+        });
+    }
+
     // Method to force close active booking dialogs upon soft lock expiry
+    @Override
     public void closeBookingDialogs() {
         if (activeBookingDialog != null) {
             SwingUtilities.invokeLater(() -> {
@@ -404,6 +502,12 @@ public class GUI extends JFrame {
         JOptionPane.showMessageDialog(this, message.toString());
     }
 
+    // Method to get the user ID this window belongs to
+    @Override
+    public String getUserId() {
+        return userId;
+    }
+
     // Method to toggle notification panel visibility
     private void toggleNotificationPanel() {
         isNotificationVisible = !notificationPanel.isVisible();
@@ -433,32 +537,36 @@ public class GUI extends JFrame {
         notificationCleaner = new Timer();
         notificationCleaner.scheduleAtFixedRate(new TimerTask() {
             public void run() {
-                notificationArea.setText("No notifications for now.");
+                notificationMessages.clear();
+                SwingUtilities.invokeLater(() -> notificationArea.setText("No notifications for now."));
             }
         }, 24 * 60 * 60 * 1000, 24 * 60 * 60 * 1000);
     }
 
-    // Method to display notifications with timestamps and sound
+    // Method to display a single notification with timestamp and sound
     public void displayNotification(String message) {
-        // Get the current timestamp
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        String timestamp = now.format(formatter);
-
-        // Prepend the timestamp to the notification message
-        String formattedMessage = "|" + timestamp + "| " + message;
-
-        // Add the message to the list and ensure the max limit
-        notificationMessages.add(0, formattedMessage); // Add to the top
-        if (notificationMessages.size() > MAX_NOTIFICATIONS) {
-            notificationMessages.remove(notificationMessages.size() - 1); // Remove the oldest message
+        displayNotifications(List.of(message));
+    }
+
+    // Method to receive a notification batch routed to this user's session
+    @Override
+    public void deliverNotifications(List<String> messages) {
+        displayNotifications(messages);
+    }
+
+    // Method to display a batch of notifications with one repaint and one sound
+    public void displayNotifications(List<String> messages) {
+        // Prepend the shared timestamp to each message and add it to the history
+        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        for (String message : messages) {
+            notificationMessages.add("|" + timestamp + "| " + message);
         }
 
-        // Update the notification area
-        notificationArea.setText(String.join("\n", notificationMessages));
-        
-        // Play the notification sound
-        playNotificationSound();
+        // Update the notification area and play the sound once for the whole batch
+        SwingUtilities.invokeLater(() -> {
+            notificationArea.setText(String.join("\n", notificationMessages.newestFirst()));
+            playNotificationSound();
+        });
     }
     
     // Method to play the notification sound
@@ -476,89 +584,22 @@ public class GUI extends JFrame {
         }
     }
 
-    // Method to create a panel for a specific parking zone
-    private JPanel createZonePanel(String zone, int count, boolean vertical){
-        JPanel panel = new JPanel(new GridLayout(count / 2, 2, 3, 3));
-        for (int i = 1; i <= count; i++) panel.add(createSpotLabel(zone + i, vertical));
-        return panel;
-    }
-
-    // Method to create a label for each parking spot
-    private JLabel createSpotLabel(String spotId, boolean vertical) {
-        JLabel label = new JLabel();
-        label.setLayout(new BorderLayout());
-        JLabel text = new JLabel(spotId, SwingConstants.CENTER);
-        text.setFont(new Font("Arial", Font.BOLD, 16));
-        label.add(text, vertical ? BorderLayout.WEST : BorderLayout.NORTH);
-        label.setPreferredSize(new Dimension(60, 50));
-        label.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-        label.setOpaque(true);
-        label.setBackground(Color.WHITE);
-        slotLabels.put(spotId, label);
-        return label;
-    }
-
-    // Method to update slot UI status and icon
+    // Method to update slot UI status: the canvas redraws the spot from the status table with its next frame
     public void updateSlotStatus(String spotId, String status) {
         String currentStatus = lastSlotStatuses.get(spotId);
 
-        // Improved duplicate status check to prevent UI loops
-        if (currentStatus != null && currentStatus.equals(status)) {
-            System.out.println("Skipped UI update for " + spotId + " (same status: " + status + ")");
-            return;
-        }
+        // Duplicate statuses need no redraw
+        if (currentStatus != null && currentStatus.equals(status)) return;
 
-        // Update the cache before UI repaint to avoid loops
+        // Update the cache before the redraw to avoid loops
         lastSlotStatuses.put(spotId, status);
 
         // If status is "available", remove the slot from userBookedSlots
         if ("available".equals(status)) {
             userBookedSlots.remove(spotId);
         }
-        
-        JLabel slot = slotLabels.get(spotId);
-        if (slot == null) return;
 
-        SwingUtilities.invokeLater(() -> {
-            try {
-                System.out.println("Updating UI slot " + spotId + " to " + status);
-                slot.removeAll();
-                slot.setBackground(Color.WHITE);
-                JLabel text = new JLabel(spotId, SwingConstants.CENTER);
-                text.setFont(new Font("Arial", Font.BOLD, 16));
-
-                switch (status) {
-                    case "reserved" -> slot.setBackground(Color.GRAY);
-                    case "reserved_occupied" -> { slot.setBackground(Color.GRAY); addCarIcon(slot); }
-                    case "time_exceeded" -> { slot.setBackground(Color.ORANGE); addCarIcon(slot); }
-                    case "booked" -> slot.setBackground(Color.GREEN);
-                    case "booked_occupied" -> {
-                        if (userBookedSlots.contains(spotId)) {
-                            slot.setBackground(Color.GREEN); addCarIcon(slot);
-                        }
-                    }
-                    case "wrong_parking" -> { slot.setBackground(Color.RED); addCarIcon(slot); }
-                    case "soft_locked" -> slot.setBackground(Color.LIGHT_GRAY);
-                    default -> slot.setBackground(Color.WHITE);
-                }
-
-                slot.add(text, spotId.matches("[BCDE].*") ? BorderLayout.WEST : BorderLayout.NORTH);
-                slot.revalidate();
-                slot.repaint();
-
-            } catch (Exception ex) {
-                System.err.println("⚠️ UI update failed for slot " + spotId + ": " + ex.getMessage());
-                ex.printStackTrace();
-                displayNotification("UI update error on " + spotId);
-            }
-        });
-    }
-
-    // Method to add car icon to a parking slot
-    private void addCarIcon(JLabel label) {
-        ImageIcon carIcon = new ImageIcon("Resources/icons/car.png");
-        Image img = carIcon.getImage().getScaledInstance(45, 45, Image.SCALE_SMOOTH);
-        label.add(new JLabel(new ImageIcon(img)), BorderLayout.CENTER);
+        lotCanvas.markDirty(parkingLotManager.getSpotIndex(spotId));
     }
 
     // Method to create the UI legend panel
@@ -579,6 +620,36 @@ public class GUI extends JFrame {
         return legend;
     }
 
+    // Method to create the live analytics overlay below the legend
+    private JPanel createAnalyticsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Live Analytics (1h)"));
+        analyticsArea = new JTextArea(8, 16);
+        analyticsArea.setEditable(false);
+        analyticsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        panel.add(analyticsArea, BorderLayout.CENTER);
+
+        // Refresh on the EDT every 2 seconds; each query is a constant-time read of running totals
+        new javax.swing.Timer(2000, e -> refreshAnalytics()).start();
+        refreshAnalytics();
+        return panel;
+    }
+
+    // Method to refresh the analytics overlay text
+    private void refreshAnalytics() {
+        StringBuilder text = new StringBuilder("Zn Util Dwell Turn NoShow\n");
+        for (String zone : ParkingAnalytics.ZONES) appendAnalyticsRow(text, zone);
+        appendAnalyticsRow(text, "*");
+        analyticsArea.setText(text.toString());
+    }
+
+    // Method to append one zone row to the analytics overlay
+    private void appendAnalyticsRow(StringBuilder text, String zone) {
+        ParkingAnalytics.Snapshot s = parkingLotManager.getAnalytics(zone, ParkingAnalytics.SpotType.ALL);
+        text.append(String.format("%-2s %3.0f%% %4dm %4.1f %4.0f%%%n",
+            zone, s.utilisation * 100, s.averageDwellMillis / 60000, s.turnoverPerSpotHour, s.noShowRate * 100));
+    }
+
     // Method to create a row in the legend panel
     private JPanel createLegendRow(Color color, String iconPath, String desc) {
         JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
@@ -0,0 +1,70 @@
+package smartparking;
+
+// Gate sizing simulator: runs the same arrival stream against 1..N entry and exit gates and reports
+// queue lengths, waits and gate utilisation so the number of gates a lot needs can be read off the table
+// The simulation books and releases spots, so it runs on a lot of its own engine, never on the app's lot
+// Usage: java -cp SmartParking.jar smartparking.GateSimulation [arrivalsPerMinute] [minutes] [maxGates] [meanDwellSeconds]
+public class GateSimulation {
+    public static void main(String[] args) {
+        double arrivalsPerMinute = args.length > 0 ? Double.parseDouble(args[0]) : 2000;
+        double minutes = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        int maxGates = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        double meanDwell = args.length > 3 ? Double.parseDouble(args[3]) : 1.5; // Short: the lot only has 76 spots
+        double bookedShare = 0.4;
+
+        ParkingLotManager manager = new ParkingEngine(2, 1).createLot("gate-simulation");
+        System.out.printf("arrivals=%.0f/min minutes=%.0f dwell=%.1fs booked=%.0f%%%n",
+            arrivalsPerMinute, minutes, meanDwell, bookedShare * 100);
+        System.out.println("gates | entry avg/p95/max wait (s) | entry total avg/worst max queue | entry util"
+            + " | exit avg/p95 wait (s) | exit util | matched/auto/turned away | vehicles/min | real ms");
+
+        for (int gates = 1; gates <= maxGates; gates *= 2) {
+            GateSystem system = new GateSystem(manager, 42);
+            for (int g = 1; g <= gates; g++) {
+                system.addEntryGate("IN-" + g, GateSystem.shiftedExponential(4, 8)); // Plate read, ticket or tap
+                system.addExitGate("OUT-" + g, GateSystem.shiftedExponential(3, 6)); // Payment at the barrier
+            }
+
+            long start = System.nanoTime();
+            system.run(arrivalsPerMinute, minutes, bookedShare, meanDwell);
+            long realMillis = (System.nanoTime() - start) / 1_000_000;
+
+            double elapsed = system.getElapsedSeconds();
+            Totals entry = Totals.of(system.getEntryGates(), elapsed);
+            Totals exit = Totals.of(system.getExitGates(), elapsed);
+            System.out.printf("%5d | %6.1f / %6.1f / %7.1f | %7.1f / %6d | %5.1f%% | %6.1f / %6.1f | %5.1f%% | %d/%d/%d | %.0f | %d%n",
+                gates, entry.avgWait, entry.p95Wait, entry.maxWait, entry.avgQueue, entry.maxQueue, entry.util * 100,
+                exit.avgWait, exit.p95Wait, exit.util * 100,
+                system.getMatchedBookings(), system.getAutoAssigned(), system.getTurnedAway(),
+                system.getExited() / (elapsed / 60), realMillis);
+        }
+        System.exit(0);
+    }
+
+    // Gate metrics aggregated across one side of the lot (worst gate for percentiles and maxima)
+    private static class Totals {
+        double avgWait;
+        double p95Wait;
+        double maxWait;
+        double avgQueue;
+        int maxQueue;
+        double util;
+
+        static Totals of(java.util.List<GateSystem.Gate> gates, double elapsed) {
+            Totals totals = new Totals();
+            long served = 0;
+            double waitSum = 0;
+            for (GateSystem.Gate gate : gates) {
+                served += gate.getServed();
+                waitSum += gate.getAverageWait() * gate.getServed();
+                totals.p95Wait = Math.max(totals.p95Wait, gate.waitPercentile(0.95));
+                totals.maxWait = Math.max(totals.maxWait, gate.getMaxWait());
+                totals.avgQueue += gate.getAverageQueue(elapsed);
+                totals.maxQueue = Math.max(totals.maxQueue, gate.getMaxQueue());
+                totals.util += gate.getUtilisation(elapsed) / gates.size();
+            }
+            totals.avgWait = served == 0 ? 0 : waitSum / served;
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package smartparking;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Discrete-event model of entry and exit gates in front of the parking lot
+// Vehicles join the shortest entry queue, are matched to their booking (or auto-assigned a free spot) when the
+// barrier opens, park, then queue at an exit gate which releases the spot. Time is simulated in seconds, so
+// thousands of vehicles per simulated minute run in well under real time.
+public class GateSystem {
+    private static final long HOLD_MILLIS = 24 * 60 * 60 * 1000L; // Real booking length; exits release explicitly
+
+    // Service time of one vehicle at a gate, in seconds
+    @FunctionalInterface
+    public interface ServiceTimeModel {
+        double sample(Random random);
+    }
+
+    // Constant service time, e.g. a barrier with plate recognition
+    public static ServiceTimeModel fixed(double seconds) {
+        return random -> seconds;
+    }
+
+    // Minimum handling time plus an exponential tail, e.g. ticket or payment terminals
+    public static ServiceTimeModel shiftedExponential(double minSeconds, double meanSeconds) {
+        double tail = Math.max(0, meanSeconds - minSeconds);
+        return random -> minSeconds - tail * Math.log(1 - random.nextDouble());
+    }
+
+    // A single gate with its FIFO queue and metrics
+    public static class Gate {
+        private static final double HISTOGRAM_STEP = 0.5; // Wait-time histogram resolution in seconds
+        private final String name;
+        private final boolean entry;
+        private final ServiceTimeModel model;
+        private final ArrayDeque<Vehicle> queue = new ArrayDeque<>();
+        private final long[] waitHistogram = new long[7200]; // Up to one hour of waiting
+        private boolean busy;
+        private long served;
+        private double totalWait;
+        private double maxWait;
+        private int maxQueue;
+        private double queueArea; // Integral of queue length over time
+        private double busyTime;
+        private double lastChange;
+
+        Gate(String name, boolean entry, ServiceTimeModel model) {
+            this.name = name;
+            this.entry = entry;
+            this.model = model;
+        }
+
+        // Vehicles waiting plus the one in service
+        int load() {
+            return queue.size() + (busy ? 1 : 0);
+        }
+
+        void advance(double now) {
+            queueArea += queue.size() * (now - lastChange);
+            if (busy) busyTime += now - lastChange;
+            lastChange = now;
+        }
+
+        void recordWait(double wait) {
+            served++;
+            totalWait += wait;
+            if (wait > maxWait) maxWait = wait;
+            waitHistogram[Math.min(waitHistogram.length - 1, (int) (wait / HISTOGRAM_STEP))]++;
+        }
+
+        // Approximate wait percentile from the histogram, in seconds
+        public double waitPercentile(double fraction) {
+            long target = (long) Math.ceil(served * fraction);
+            long seen = 0;
+            for (int i = 0; i < waitHistogram.length; i++) {
+                seen += waitHistogram[i];
+                if (seen >= target && target > 0) return Math.min(maxWait, (i + 1) * HISTOGRAM_STEP);
+            }
+            return 0;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getServed() {
+            return served;
+        }
+
+        public double getAverageWait() {
+            return served == 0 ? 0 : totalWait / served;
+        }
+
+        public double getMaxWait() {
+            return maxWait;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public double getAverageQueue(double duration) {
+            return duration <= 0 ? 0 : queueArea / duration;
+        }
+
+        public double getUtilisation(double duration) {
+            return duration <= 0 ? 0 : busyTime / duration;
+        }
+    }
+
+    // A vehicle moving through the gates
+    private static class Vehicle {
+        final String id;
+        final double arrival;
+        double queuedAt;
+        String spotId;
+
+        Vehicle(String id, double arrival) {
+            this.id = id;
+            this.arrival = arrival;
+        }
+    }
+
+    private static final int ARRIVE = 0;
+    private static final int ENTRY_DONE = 1;
+    private static final int DEPART = 2;
+    private static final int EXIT_DONE = 3;
+
+    // Scheduled simulation event, ordered by time then insertion
+    private static class Event implements Comparable<Event> {
+        final double time;
+        final long seq;
+        final int type;
+        final Vehicle vehicle;
+        final Gate gate;
+
+        Event(double time, long seq, int type, Vehicle vehicle, Gate gate) {
+            this.time = time;
+            this.seq = seq;
+            this.type = type;
+            this.vehicle = vehicle;
+            this.gate = gate;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Double.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+
+    private final ParkingLotManager manager;
+    private final List<Gate> entryGates = new ArrayList<>();
+    private final List<Gate> exitGates = new ArrayList<>();
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final Random random;
+    private long eventSeq;
+    private long vehicleSeq;
+    private double now;
+
+    // Run totals
+    private long arrivals;
+    private long matchedBookings;
+    private long autoAssigned;
+    private long turnedAway; // No booking and no free spot
+    private long exited;
+    private double totalTimeInSystem;
+
+    // Constructor
+    public GateSystem(ParkingLotManager manager, long seed) {
+        this.manager = manager;
+        this.random = new Random(seed);
+    }
+
+    public Gate addEntryGate(String name, ServiceTimeModel model) {
+        Gate gate = new Gate(name, true, model);
+        entryGates.add(gate);
+        return gate;
+    }
+
+    public Gate addExitGate(String name, ServiceTimeModel model) {
+        Gate gate = new Gate(name, false, model);
+        exitGates.add(gate);
+        return gate;
+    }
+
+    // Simulate Poisson arrivals for the given number of simulated minutes, then drain every vehicle out of the lot.
+    // bookedShare of arrivals booked ahead; the rest are auto-assigned at the barrier. Dwell is exponential.
+    public void run(double arrivalsPerMinute, double minutes, double bookedShare, double meanDwellSeconds) {
+        double horizon = minutes * 60;
+        double meanGap = 60 / arrivalsPerMinute;
+        schedule(exponential(meanGap), ARRIVE, null, null);
+
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            now = event.time;
+            switch (event.type) {
+                case ARRIVE -> {
+                    Vehicle vehicle = new Vehicle("gate-" + (++vehicleSeq), now);
+                    arrivals++;
+                    if (random.nextDouble() < bookedShare) {
+                        manager.claimFreeSpot(vehicle.id, HOLD_MILLIS); // Booked ahead; may fail when the lot is full
+                    }
+                    enqueue(shortest(entryGates), vehicle);
+                    double next = now + exponential(meanGap);
+                    if (next < horizon) schedule(next, ARRIVE, null, null);
+                }
+                case ENTRY_DONE -> {
+                    Vehicle vehicle = event.vehicle;
+                    String spotId = manager.findBookedSpot(vehicle.id);
+                    if (spotId != null) {
+                        matchedBookings++;
+                    } else {
+                        spotId = manager.claimFreeSpot(vehicle.id, HOLD_MILLIS);
+                        if (spotId != null) autoAssigned++;
+                    }
+                    if (spotId == null) {
+                        turnedAway++;
+                    } else {
+                        vehicle.spotId = spotId;
+                        schedule(now + exponential(meanDwellSeconds), DEPART, vehicle, null);
+                    }
+                    finishService(event.gate);
+                }
+                case DEPART -> enqueue(shortest(exitGates), event.vehicle);
+                case EXIT_DONE -> {
+                    Vehicle vehicle = event.vehicle;
+                    manager.releaseGateSpot(vehicle.id, vehicle.spotId);
+                    exited++;
+                    totalTimeInSystem += now - vehicle.arrival;
+                    finishService(event.gate);
+                }
+                default -> throw new IllegalStateException("Unknown event type " + event.type);
+            }
+        }
+        for (Gate gate : entryGates) gate.advance(now);
+        for (Gate gate : exitGates) gate.advance(now);
+    }
+
+    // Join-shortest-queue gate choice
+    private Gate shortest(List<Gate> gates) {
+        Gate best = gates.get(0);
+        for (Gate gate : gates) {
+            if (gate.load() < best.load()) best = gate;
+        }
+        return best;
+    }
+
+    private void enqueue(Gate gate, Vehicle vehicle) {
+        gate.advance(now);
+        vehicle.queuedAt = now;
+        gate.queue.addLast(vehicle);
+        if (gate.queue.size() > gate.maxQueue) gate.maxQueue = gate.queue.size();
+        if (!gate.busy) startService(gate);
+    }
+
+    private void startService(Gate gate) {
+        Vehicle vehicle = gate.queue.pollFirst();
+        gate.busy = true;
+        gate.recordWait(now - vehicle.queuedAt);
+        schedule(now + gate.model.sample(random), gate.entry ? ENTRY_DONE : EXIT_DONE, vehicle, gate);
+    }
+
+    private void finishService(Gate gate) {
+        gate.advance(now);
+        gate.busy = false;
+        if (!gate.queue.isEmpty()) startService(gate);
+    }
+
+    private void schedule(double time, int type, Vehicle vehicle, Gate gate) {
+        events.add(new Event(time, eventSeq++, type, vehicle, gate));
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    public List<Gate> getEntryGates() {
+        return entryGates;
+    }
+
+    public List<Gate> getExitGates() {
+        return exitGates;
+    }
+
+    // Simulated time when the last vehicle left, in seconds
+    public double getElapsedSeconds() {
+        return now;
+    }
+
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getMatchedBookings() {
+        return matchedBookings;
+    }
+
+    public long getAutoAssigned() {
+        return autoAssigned;
+    }
+
+    public long getTurnedAway() {
+        return turnedAway;
+    }
+
+    public long getExited() {
+        return exited;
+    }
+
+    public double getAverageTimeInSystem() {
+        return exited == 0 ? 0 : totalTimeInSystem / exited;
+    }
+}
@@ -0,0 +1,342 @@
+package smartparking;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+// One custom-painted component for the whole lot instead of a JLabel per spot
+// Spots are drawn from the primitive status table into a back buffer of the current view. Status updates only set
+// a bit per spot; a 60 Hz frame timer on the EDT redraws the dirty spots that are on the visible level and inside
+// the view, and repaints just their rectangles, so an update storm costs at most one redraw per spot and frame.
+// Zoom (mouse wheel), pan (drag), level switching and resizes redraw the visible spots only.
+public final class LotCanvas extends JComponent {
+    private static final int FRAME_MILLIS = 16;
+    private static final double MIN_SCALE = 0.05;
+    private static final double MAX_SCALE = 8;
+    private static final float LABEL_FONT_SIZE = 16; // At scale 1, as the old labels
+    private static final float MIN_LABEL_FONT_SIZE = 6; // Smaller labels are unreadable and skipped
+    private static final Color[] STATUS_COLORS = new Color[SpotStatus.count()];
+    private static final boolean[] SHOWS_CAR = new boolean[SpotStatus.count()];
+    private static final int BOOKED_OCCUPIED = SpotStatus.codeOf(SpotStatus.BOOKED_OCCUPIED);
+
+    static {
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.AVAILABLE)] = Color.WHITE;
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.SOFT_LOCKED)] = Color.LIGHT_GRAY;
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.BOOKED)] = Color.GREEN;
+        STATUS_COLORS[BOOKED_OCCUPIED] = Color.WHITE; // Green with a car only for the viewer's own booking
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.RESERVED)] = Color.GRAY;
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.RESERVED_OCCUPIED)] = Color.GRAY;
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.TIME_EXCEEDED)] = Color.ORANGE;
+        STATUS_COLORS[SpotStatus.codeOf(SpotStatus.WRONG_PARKING)] = Color.RED;
+        SHOWS_CAR[SpotStatus.codeOf(SpotStatus.RESERVED_OCCUPIED)] = true;
+        SHOWS_CAR[SpotStatus.codeOf(SpotStatus.TIME_EXCEEDED)] = true;
+        SHOWS_CAR[SpotStatus.codeOf(SpotStatus.WRONG_PARKING)] = true;
+    }
+
+    private final LotLayout layout;
+    private final IntUnaryOperator statusCodes; // Spot index to SpotStatus code
+    private final IntPredicate ownBooking; // Spot index booked by the viewer
+    private final AtomicLongArray dirty; // One bit per spot index
+    private volatile boolean anyDirty;
+    private final Image carImage;
+    private final Timer frameTimer = new Timer(FRAME_MILLIS, e -> flushDirty());
+
+    // View state, EDT only
+    private int level;
+    private double scale = 1;
+    private double viewX; // Model coordinates of the top-left corner
+    private double viewY;
+    private boolean fitPending = true; // Fit the level to the component once it has a size
+    private BufferedImage buffer;
+    private boolean bufferStale = true;
+    private Font labelFont;
+    private Image scaledCar;
+    private int scaledCarSize = -1;
+    private final Rectangle spotBounds = new Rectangle(); // Reused per drawn spot
+    private long spotsDrawn; // Drawn into the back buffer since creation, for benchmarks
+
+    // Constructor: the status table is read at paint time, so it only needs to be current when a spot is marked dirty
+    public LotCanvas(LotLayout layout, IntUnaryOperator statusCodes, IntPredicate ownBooking) {
+        this.layout = layout;
+        this.statusCodes = statusCodes;
+        this.ownBooking = ownBooking;
+        this.dirty = new AtomicLongArray((layout.getSpotCount() + 63) >>> 6);
+        ImageIcon car = new ImageIcon("Resources/icons/car.png");
+        this.carImage = car.getIconWidth() > 0 ? car.getImage() : null;
+        setOpaque(true);
+        setPreferredSize(new Dimension(900, 420));
+        installNavigation();
+    }
+
+    // Any thread: the spot's status changed; it is redrawn with the next frame if visible
+    public void markDirty(int index) {
+        if (index < 0 || index >= layout.getSpotCount()) return;
+        long bit = 1L << index;
+        int word = index >>> 6;
+        long current;
+        do {
+            current = dirty.get(word);
+            if ((current & bit) != 0) return; // Already queued for this frame
+        } while (!dirty.compareAndSet(word, current, current | bit));
+        anyDirty = true;
+    }
+
+    // Redraw everything, e.g. after a look-and-feel change
+    public void markAllDirty() {
+        SwingUtilities.invokeLater(() -> {
+            bufferStale = true;
+            repaint();
+        });
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLevelCount() {
+        return layout.getLevelCount();
+    }
+
+    // EDT: show another level, fitted to the view
+    public void setLevel(int level) {
+        if (level < 0 || level >= layout.getLevelCount() || level == this.level) return;
+        this.level = level;
+        fitLevel();
+    }
+
+    // EDT: scale and centre the current level so it fills the component
+    public void fitLevel() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            fitPending = true;
+            return;
+        }
+        fitPending = false;
+        float w = layout.getLevelWidth(level);
+        float h = layout.getLevelHeight(level);
+        scale = clampScale(Math.min((getWidth() - 8) / (double) w, (getHeight() - 8) / (double) h));
+        viewX = (w - getWidth() / scale) / 2;
+        viewY = (h - getHeight() / scale) / 2;
+        viewChanged();
+    }
+
+    // EDT: zoom by factor keeping the model point under (x, y) in place
+    public void zoomAt(double factor, int x, int y) {
+        double next = clampScale(scale * factor);
+        double modelX = viewX + x / scale;
+        double modelY = viewY + y / scale;
+        scale = next;
+        viewX = modelX - x / scale;
+        viewY = modelY - y / scale;
+        viewChanged();
+    }
+
+    // EDT: move the view by a screen distance
+    public void panBy(int dx, int dy) {
+        viewX -= dx / scale;
+        viewY -= dy / scale;
+        viewChanged();
+    }
+
+    public long getSpotsDrawn() {
+        return spotsDrawn;
+    }
+
+    // Look and feel switched (SwingUtilities.updateComponentTreeUI): the background behind the spots may differ
+    @Override
+    public void updateUI() {
+        super.updateUI();
+        markAllDirty();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        frameTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        frameTimer.stop();
+        super.removeNotify();
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean resized = width != getWidth() || height != getHeight();
+        super.setBounds(x, y, width, height);
+        if (resized) {
+            if (fitPending) fitLevel();
+            else viewChanged();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (getWidth() <= 0 || getHeight() <= 0) return;
+        if (bufferStale) renderView();
+        g.drawImage(buffer, 0, 0, null); // Clipped to the dirty region by Swing
+    }
+
+    // Frame timer: redraw dirty spots of the visible level into the buffer and repaint only their rectangles
+    void flushDirty() {
+        if (!anyDirty) return;
+        anyDirty = false;
+        if (bufferStale || buffer == null) {
+            clearDirty(); // A full redraw is coming anyway
+            repaint();
+            return;
+        }
+        Graphics2D g = buffer.createGraphics();
+        try {
+            prepare(g);
+            for (int word = 0; word < dirty.length(); word++) {
+                long bits = dirty.getAndSet(word, 0);
+                while (bits != 0) {
+                    int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (layout.levelOf(index) == level && toScreen(index, spotBounds)) {
+                        drawSpot(g, index, spotBounds);
+                        repaint(spotBounds.x, spotBounds.y, spotBounds.width + 1, spotBounds.height + 1);
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Redraw the whole view into the buffer, visiting only the spots of the level that can be on screen
+    void renderView() {
+        if (buffer == null || buffer.getWidth() != getWidth() || buffer.getHeight() != getHeight()) {
+            buffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+        bufferStale = false;
+        clearDirty();
+        Graphics2D g = buffer.createGraphics();
+        try {
+            g.setColor(getBackground() != null ? getBackground() : UIManager.getColor("Panel.background"));
+            g.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+            prepare(g);
+            double bottom = viewY + getHeight() / scale;
+            layout.forEachCandidate(level, (float) viewY, (float) bottom, index -> {
+                if (toScreen(index, spotBounds)) drawSpot(g, index, spotBounds);
+            });
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private void viewChanged() {
+        bufferStale = true;
+        float fontSize = (float) (LABEL_FONT_SIZE * scale);
+        labelFont = fontSize < MIN_LABEL_FONT_SIZE ? null : new Font("Arial", Font.BOLD, Math.round(fontSize));
+        repaint();
+    }
+
+    private void clearDirty() {
+        for (int word = 0; word < dirty.length(); word++) dirty.set(word, 0);
+    }
+
+    private void prepare(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        if (labelFont != null) g.setFont(labelFont);
+    }
+
+    // Screen rectangle of a spot; false when it is outside the component
+    private boolean toScreen(int index, Rectangle bounds) {
+        int x0 = (int) Math.floor((layout.x(index) - viewX) * scale);
+        int y0 = (int) Math.floor((layout.y(index) - viewY) * scale);
+        int x1 = (int) Math.floor((layout.x(index) + layout.width(index) - viewX) * scale);
+        int y1 = (int) Math.floor((layout.y(index) + layout.height(index) - viewY) * scale);
+        bounds.setBounds(x0, y0, Math.max(1, x1 - x0), Math.max(1, y1 - y0));
+        return x1 >= 0 && y1 >= 0 && x0 < getWidth() && y0 < getHeight();
+    }
+
+    private void drawSpot(Graphics2D g, int index, Rectangle r) {
+        spotsDrawn++;
+        int code = statusCodes.applyAsInt(index);
+        boolean own = code == BOOKED_OCCUPIED && ownBooking.test(index);
+        g.setColor(own ? Color.GREEN : STATUS_COLORS[code]);
+        g.fillRect(r.x, r.y, r.width, r.height);
+        if (r.width < 4 || r.height < 4) return; // Zoomed far out: colour only
+
+        g.setColor(Color.BLACK);
+        g.drawRect(r.x, r.y, r.width - 1, r.height - 1);
+        if (SHOWS_CAR[code] || own) drawCar(g, r, layout.isLabelWest(index));
+        if (labelFont != null) {
+            FontMetrics metrics = g.getFontMetrics();
+            String label = layout.label(index);
+            int textX = layout.isLabelWest(index) ? r.x + 3 : r.x + (r.width - metrics.stringWidth(label)) / 2;
+            int textY = layout.isLabelWest(index)
+                ? r.y + (r.height + metrics.getAscent()) / 2 - 2 : r.y + metrics.getAscent();
+            g.drawString(label, textX, textY);
+        }
+    }
+
+    // The car icon beside or below the label, or a dark block if the icon is missing. The icon is scaled once per
+    // zoom level, from the model size rather than each rounded rectangle, so spots share one scaled image.
+    private void drawCar(Graphics2D g, Rectangle r, boolean labelWest) {
+        int size = Math.max(2, (int) (LotLayout.SPOT_HEIGHT * scale * 0.7));
+        int x = labelWest ? r.x + r.width - size - 2 : r.x + (r.width - size) / 2;
+        int y = labelWest ? r.y + (r.height - size) / 2 : r.y + r.height - size - 2;
+        if (carImage == null) {
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(x + size / 4, y + size / 4, size / 2, size / 2);
+            return;
+        }
+        if (size != scaledCarSize) {
+            scaledCar = carImage.getScaledInstance(size, size, Image.SCALE_SMOOTH);
+            new ImageIcon(scaledCar); // Wait for the scaled image to load once
+            scaledCarSize = size;
+        }
+        g.drawImage(scaledCar, x, y, null);
+    }
+
+    private void installNavigation() {
+        addMouseWheelListener(e -> zoomAt(Math.pow(1.15, -e.getPreciseWheelRotation()), e.getX(), e.getY()));
+        MouseAdapter drag = new MouseAdapter() {
+            private Point last;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                last = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                panBy(e.getX() - last.x, e.getY() - last.y);
+                last = e.getPoint();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) fitLevel();
+            }
+        };
+        addMouseListener(drag);
+        addMouseMotionListener(drag);
+        setFocusable(true);
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_UP, 0), "levelUp");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_DOWN, 0), "levelDown");
+        getActionMap().put("levelUp", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setLevel(level + 1);
+            }
+        });
+        getActionMap().put("levelDown", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setLevel(level - 1);
+            }
+        });
+    }
+
+    private static double clampScale(double value) {
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, value));
+    }
+}
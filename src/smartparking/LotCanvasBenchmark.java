@@ -0,0 +1,130 @@
+package smartparking;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Frame times of the lot canvas for a large garage during an update storm, next to the old JLabel-per-spot grid
+// Runs headless: a writer thread flips random spot statuses as fast as it can while the EDT renders 60 Hz frames
+// into an off-screen image, so the numbers are paint cost only.
+// Usage: java -Djava.awt.headless=true -cp SmartParking.jar smartparking.LotCanvasBenchmark [levels] [rows] [cols] [seconds]
+public class LotCanvasBenchmark {
+    private static final int WIDTH = 1400;
+    private static final int HEIGHT = 800;
+
+    public static void main(String[] args) throws Exception {
+        int levels = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int columns = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        LotLayout layout = LotLayout.grid(levels, rows, columns);
+        AtomicIntegerArray statuses = new AtomicIntegerArray(layout.getSpotCount());
+        System.out.printf("%,d spots on %d levels (%,d per level)%n", layout.getSpotCount(), levels, rows * columns);
+
+        LotCanvas[] canvas = new LotCanvas[1];
+        SwingUtilities.invokeAndWait(() -> {
+            canvas[0] = new LotCanvas(layout, statuses::get, index -> false);
+            canvas[0].setBounds(0, 0, WIDTH, HEIGHT);
+        });
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        SwingUtilities.invokeAndWait(() -> {
+            System.out.printf("full redraw of a level at fit-to-window zoom: %s%n", timeRedraw(canvas[0]));
+            canvas[0].zoomAt(4, WIDTH / 2, HEIGHT / 2);
+            System.out.printf("full redraw zoomed in 4x: %s (rest culled)%n", timeRedraw(canvas[0]));
+            canvas[0].fitLevel();
+            canvas[0].renderView();
+        });
+
+        // Storm: every status change marks its spot; the EDT draws one frame every 16 ms
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long[] updates = new long[1];
+        Thread writer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long count = 0;
+            while (System.nanoTime() < end) {
+                int index = random.nextInt(layout.getSpotCount());
+                statuses.set(index, random.nextInt(SpotStatus.count()));
+                canvas[0].markDirty(index);
+                count++;
+            }
+            updates[0] = count;
+        }, "StatusStorm");
+        writer.start();
+
+        int frames = 0;
+        long worst = 0;
+        long total = 0;
+        long drawnBefore = canvas[0].getSpotsDrawn();
+        while (System.nanoTime() < end) {
+            long frameStart = System.nanoTime();
+            SwingUtilities.invokeAndWait(() -> {
+                canvas[0].flushDirty();
+                Graphics2D g = screen.createGraphics();
+                canvas[0].paint(g); // Whole-window blit; Swing would only copy the dirty rectangles
+                g.dispose();
+            });
+            long took = System.nanoTime() - frameStart;
+            worst = Math.max(worst, took);
+            total += took;
+            frames++;
+            long sleep = TimeUnit.MILLISECONDS.toNanos(16) - took;
+            if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+        }
+        writer.join();
+        System.out.printf("canvas storm: %,d status updates/s, %d frames, frame avg %.2f ms, worst %.2f ms, "
+                + "%,d spots redrawn per frame%n",
+            updates[0] / seconds, frames, total / 1e6 / frames, worst / 1e6,
+            (canvas[0].getSpotsDrawn() - drawnBefore) / Math.max(1, frames));
+
+        labelBaseline(rows, columns);
+        System.exit(0);
+    }
+
+    // Average full redraw after warm-up (fonts, glyph caches, JIT) and the spots it drew
+    private static String timeRedraw(LotCanvas canvas) {
+        for (int i = 0; i < 20; i++) canvas.renderView();
+        int runs = 20;
+        long drawn = canvas.getSpotsDrawn();
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) canvas.renderView();
+        return String.format("%.2f ms, %,d spots drawn", (System.nanoTime() - start) / 1e6 / runs,
+            (canvas.getSpotsDrawn() - drawn) / runs);
+    }
+
+    // The previous approach for one level: a JLabel with a border per spot in a grid, repainted whole per frame
+    private static void labelBaseline(int rows, int columns) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            long start = System.nanoTime();
+            JPanel grid = new JPanel(new GridLayout(rows, columns, 3, 3));
+            JLabel[] labels = new JLabel[rows * columns];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = new JLabel(String.valueOf(i + 1), SwingConstants.CENTER);
+                labels[i].setBorder(BorderFactory.createLineBorder(Color.BLACK));
+                labels[i].setOpaque(true);
+                grid.add(labels[i]);
+            }
+            grid.setBounds(0, 0, WIDTH, HEIGHT);
+            grid.doLayout();
+            long built = System.nanoTime() - start;
+
+            BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int frames = 20;
+            start = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                for (int i = 0; i < labels.length / 4; i++) {
+                    labels[random.nextInt(labels.length)].setBackground(random.nextBoolean() ? Color.GREEN : Color.WHITE);
+                }
+                Graphics2D g = screen.createGraphics();
+                grid.paint(g);
+                g.dispose();
+            }
+            System.out.printf("JLabel grid of %,d spots: build %.1f ms, frame with a quarter changed %.2f ms%n",
+                labels.length, built / 1e6, (System.nanoTime() - start) / 1e6 / frames);
+        });
+    }
+}
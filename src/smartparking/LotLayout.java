@@ -0,0 +1,192 @@
+package smartparking;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Geometry of a lot for the canvas: a rectangle per spot index in model units, on one of several levels
+// Spots of each level are also kept sorted by their top edge, so a view can find its visible spots by binary search
+// instead of testing every spot of the garage.
+public class LotLayout {
+    private final int spotCount;
+    private final int levelCount;
+    private final float[] x;
+    private final float[] y;
+    private final float[] width;
+    private final float[] height;
+    private final int[] level;
+    private final boolean[] labelWest; // Label on the left edge (columns) instead of the top edge (rows)
+    private final String[] labels;
+    private int[][] byTop; // Spot indexes of each level sorted by y
+    private float[] maxHeight; // Tallest spot of each level, bounds the search window
+    private float[] levelWidth;
+    private float[] levelHeight;
+
+    static final float SPOT_WIDTH = 60;
+    static final float SPOT_HEIGHT = 50;
+    private static final float CELL_GAP = 3;
+    private static final float BLOCK_GAP = 20;
+
+    private LotLayout(int spotCount, int levelCount) {
+        this.spotCount = spotCount;
+        this.levelCount = levelCount;
+        this.x = new float[spotCount];
+        this.y = new float[spotCount];
+        this.width = new float[spotCount];
+        this.height = new float[spotCount];
+        this.level = new int[spotCount];
+        this.labelWest = new boolean[spotCount];
+        this.labels = new String[spotCount];
+    }
+
+    // The desktop lot: first and last zone as rows at the top and bottom, the zones between as two-column blocks
+    // side by side, as the original grid of labels showed them
+    public static LotLayout forLot(ParkingLotManager manager) {
+        int spots = manager.getSpotCount();
+        LotLayout layout = new LotLayout(spots, 1);
+        String first = zoneOf(manager, 0);
+        String last = zoneOf(manager, spots - 1);
+
+        float blockTop = SPOT_HEIGHT + BLOCK_GAP;
+        float blockX = 0;
+        float blockBottom = blockTop;
+        int index = 0;
+        while (index < spots) {
+            String zone = zoneOf(manager, index);
+            int[] range = manager.getZoneRange(zone);
+            int count = range[1] - range[0];
+            if (zone.equals(first) || zone.equals(last)) {
+                float rowTop = zone.equals(first) ? 0 : -1; // Bottom row is placed once the blocks are known
+                for (int i = 0; i < count; i++) {
+                    layout.place(range[0] + i, 0, i * (SPOT_WIDTH + CELL_GAP), rowTop, false);
+                }
+            } else {
+                int rows = (count + 1) / 2;
+                for (int i = 0; i < count; i++) {
+                    layout.place(range[0] + i, 0, blockX + (i % 2) * (SPOT_WIDTH + CELL_GAP),
+                        blockTop + (i / 2) * (SPOT_HEIGHT + CELL_GAP), true);
+                }
+                blockX += 2 * (SPOT_WIDTH + CELL_GAP) + BLOCK_GAP;
+                blockBottom = Math.max(blockBottom, blockTop + rows * (SPOT_HEIGHT + CELL_GAP));
+            }
+            index = range[1];
+        }
+        for (int i = 0; i < spots; i++) {
+            if (layout.y[i] < 0) layout.y[i] = blockBottom + BLOCK_GAP;
+        }
+        for (int i = 0; i < spots; i++) layout.labels[i] = manager.getSpotId(i);
+        layout.index();
+        return layout;
+    }
+
+    // A multi-level garage of levels x rows x columns spots, numbered level by level, e.g. for load tests
+    public static LotLayout grid(int levels, int rows, int columns) {
+        LotLayout layout = new LotLayout(levels * rows * columns, levels);
+        int index = 0;
+        for (int l = 0; l < levels; l++) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    layout.place(index, l, c * (SPOT_WIDTH + CELL_GAP), r * (SPOT_HEIGHT + CELL_GAP), false);
+                    layout.labels[index] = "L" + (l + 1) + "-" + (r * columns + c + 1);
+                    index++;
+                }
+            }
+        }
+        layout.index();
+        return layout;
+    }
+
+    public int getSpotCount() {
+        return spotCount;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public int levelOf(int index) {
+        return level[index];
+    }
+
+    public float x(int index) {
+        return x[index];
+    }
+
+    public float y(int index) {
+        return y[index];
+    }
+
+    public float width(int index) {
+        return width[index];
+    }
+
+    public float height(int index) {
+        return height[index];
+    }
+
+    public boolean isLabelWest(int index) {
+        return labelWest[index];
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    public float getLevelWidth(int level) {
+        return levelWidth[level];
+    }
+
+    public float getLevelHeight(int level) {
+        return levelHeight[level];
+    }
+
+    // Visit the spots of a level that may intersect the model rectangle; callers still test each rectangle
+    void forEachCandidate(int level, float top, float bottom, IntConsumer visitor) {
+        int[] sorted = byTop[level];
+        float from = top - maxHeight[level];
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) { // First spot whose top is at or below the window start
+            int mid = (lo + hi) >>> 1;
+            if (y[sorted[mid]] < from) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int i = lo; i < sorted.length && y[sorted[i]] <= bottom; i++) visitor.accept(sorted[i]);
+    }
+
+    private void place(int index, int level, float x, float y, boolean labelWest) {
+        this.level[index] = level;
+        this.x[index] = x;
+        this.y[index] = y;
+        this.width[index] = SPOT_WIDTH;
+        this.height[index] = SPOT_HEIGHT;
+        this.labelWest[index] = labelWest;
+    }
+
+    // Build the per-level search order and bounds once the spots are placed
+    private void index() {
+        int[] counts = new int[levelCount];
+        for (int i = 0; i < spotCount; i++) counts[level[i]]++;
+        byTop = new int[levelCount][];
+        maxHeight = new float[levelCount];
+        levelWidth = new float[levelCount];
+        levelHeight = new float[levelCount];
+        Integer[][] boxed = new Integer[levelCount][];
+        for (int l = 0; l < levelCount; l++) boxed[l] = new Integer[counts[l]];
+        int[] fill = new int[levelCount];
+        for (int i = 0; i < spotCount; i++) {
+            int l = level[i];
+            boxed[l][fill[l]++] = i;
+            maxHeight[l] = Math.max(maxHeight[l], height[i]);
+            levelWidth[l] = Math.max(levelWidth[l], x[i] + width[i]);
+            levelHeight[l] = Math.max(levelHeight[l], y[i] + height[i]);
+        }
+        for (int l = 0; l < levelCount; l++) {
+            Arrays.sort(boxed[l], (a, b) -> Float.compare(y[a], y[b]));
+            byTop[l] = Arrays.stream(boxed[l]).mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static String zoneOf(ParkingLotManager manager, int index) {
+        return manager.getSpotId(index).substring(0, 1);
+    }
+}
@@ -0,0 +1,45 @@
+package smartparking;
+
+import java.lang.management.ManagementFactory;
+
+// Per-lot cost of a multi-lot engine: creates many idle lots and reports retained heap and threads per lot,
+// then books through the router to show that lots stay isolated
+// Usage: java -cp SmartParking.jar smartparking.LotOverheadBenchmark [lots]
+public class LotOverheadBenchmark {
+    public static void main(String[] args) throws Exception {
+        int lotCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        ParkingEngine engine = new ParkingEngine(Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+        engine.createLot("warmup"); // Loads classes and fills shared tables before the baseline
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeap();
+        ParkingLotManager[] lots = new ParkingLotManager[lotCount];
+        for (int i = 0; i < lotCount; i++) lots[i] = engine.createLot("lot-" + i);
+        long heapAfter = usedHeap();
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        int spots = lots[0].getSpotCount();
+        double perLot = (heapAfter - heapBefore) / (double) lotCount;
+        System.out.printf("%d idle lots of %d spots: %.1f KB per lot (%.0f bytes per spot), %d new threads%n",
+            lotCount, spots, perLot / 1024, perLot / spots, threadsAfter - threadsBefore);
+
+        // Same spot ID in two lots: booking one must not touch the other
+        boolean first = engine.bookSpot("lot-0", "A1", 1, "1 hour", false, "system", null).get();
+        boolean second = engine.bookSpot("lot-1", "A1", 1, "1 hour", false, "system", null).get();
+        boolean again = engine.bookSpot("lot-0", "A1", 1, "1 hour", false, "system", null).get();
+        System.out.printf("routing: lot-0 A1 %s, lot-1 A1 %s, lot-0 A1 again %s%n",
+            first ? "booked" : "failed", second ? "booked" : "failed", again ? "booked" : "rejected");
+        System.out.println("metrics: " + engine.getMetrics().snapshot("lot.lot-0.bookings"));
+        System.exit(0);
+    }
+
+    // Heap in use after letting the collector settle
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
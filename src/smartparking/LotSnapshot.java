@@ -0,0 +1,51 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A lot's state as it moves between nodes: running bookings, soft-lock holds, future reservations, expired bookings
+// still awaiting acknowledgment and the results of recent idempotent client requests
+// Taken by ParkingLotManager.snapshot while the lot is quiet, applied by restore and dropped by release.
+public class LotSnapshot {
+    public final List<BookingRecord> bookings = new ArrayList<>();
+    public final List<BookingRecord> softLocks = new ArrayList<>(); // End is the end of the hold
+    public final List<Reservation> reservations = new ArrayList<>();
+    public final List<BookingRecord> expiries = new ArrayList<>(); // End is the grace deadline of the release
+    public final List<RequestResult> requestResults = new ArrayList<>();
+
+    // A reservation that has not started yet
+    public static class Reservation {
+        public final String spotId;
+        public final long id;
+        public final long startMillis;
+        public final long endMillis;
+        public final String owner;
+
+        public Reservation(String spotId, long id, long startMillis, long endMillis, String owner) {
+            this.spotId = spotId;
+            this.id = id;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.owner = owner;
+        }
+    }
+
+    // Outcome of an idempotent request, so a client retry after the move gets the same answer
+    public static class RequestResult {
+        public final String key;
+        public final boolean result;
+        public final long createdMillis;
+
+        public RequestResult(String key, boolean result, long createdMillis) {
+            this.key = key;
+            this.result = result;
+            this.createdMillis = createdMillis;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return bookings.size() + " bookings, " + softLocks.size() + " holds, " + reservations.size() + " reservations, "
+            + expiries.size() + " expiries, " + requestResults.size() + " request results";
+    }
+}
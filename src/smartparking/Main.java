@@ -42,6 +42,17 @@ public class Main {
             // Start automated system booking & cancellation threads (random user simulation)
             new Thread(new UserSimulation(manager)::run, "UserSim").start();
 
+            // Optional booking API for kiosks, apps and gates (enable with -Dsmartparking.api.port=8080)
+            Integer apiPort = Integer.getInteger("smartparking.api.port");
+            if (apiPort != null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true"); // Before the JDK server reads its config
+                try {
+                    new BookingApiServer(manager, apiPort).start();
+                } catch (java.io.IOException e) {
+                    System.err.println("⚠️ Unable to start booking API: " + e.getMessage());
+                }
+            }
+
             // Optional system status logger (prints stats every 5 seconds)
             new Thread(() -> {
                 while (true) {
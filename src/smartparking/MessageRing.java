@@ -0,0 +1,51 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fixed-size lock-free ring of recent messages; writers claim a slot with one atomic increment
+public class MessageRing {
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLong next = new AtomicLong(); // Total messages ever added
+
+    // Constructor
+    public MessageRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Add a message, overwriting the oldest once the ring is full
+    public void add(String message) {
+        long index = next.getAndIncrement();
+        slots.set((int) (index % slots.length()), message);
+    }
+
+    // Return the retained messages, newest first
+    public List<String> newestFirst() {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<String> result = new ArrayList<>((int) (end - start));
+        for (long i = end - 1; i >= start; i--) {
+            String message = slots.get((int) (i % slots.length()));
+            if (message != null) result.add(message);
+        }
+        return result;
+    }
+
+    // Copy messages added at or after the cursor (oldest first) and return the new cursor;
+    // messages already overwritten by the ring are skipped
+    public long readFrom(long cursor, List<String> out) {
+        long end = next.get();
+        for (long i = Math.max(cursor, end - slots.length()); i < end; i++) {
+            String message = slots.get((int) (i % slots.length()));
+            if (message != null) out.add(message);
+        }
+        return end;
+    }
+
+    // Drop all retained messages
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) slots.set(i, null);
+    }
+}
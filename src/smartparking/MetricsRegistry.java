@@ -0,0 +1,37 @@
+package smartparking;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+// Engine-wide registry of named gauges, e.g. "lot.north.bookings.processed"
+// Lots register suppliers that read their own counters, so recording stays a plain atomic increment and the
+// registry is only touched when someone takes a snapshot.
+public class MetricsRegistry {
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public void register(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    // Current value of a gauge, 0 if it is not registered
+    public long get(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    // Values of all gauges whose name starts with the prefix, sorted by name
+    public Map<String, Long> snapshot(String prefix) {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            if (name.startsWith(prefix)) values.put(name, gauge.getAsLong());
+        });
+        return values;
+    }
+
+    public int size() {
+        return gauges.size();
+    }
+}
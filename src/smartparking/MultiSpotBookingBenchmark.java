@@ -0,0 +1,60 @@
+package smartparking;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Benchmark for all-or-nothing multi-spot bookings under heavy contention
+// Many corporate users race for overlapping spot sets in one zone; invariants are checked after every commit
+// Usage: java -cp SmartParking.jar smartparking.MultiSpotBookingBenchmark [threads] [seconds]
+public class MultiSpotBookingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        ParkingLotManager manager = ParkingLotManager.getInstance();
+        String[] hotSpots = manager.getSpotsInZone("A"); // 14 spots shared by every thread
+        AtomicLong commits = new AtomicLong();
+        AtomicLong aborts = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+        Map<String, String> holders = new ConcurrentHashMap<>(); // Independent record of who holds which spot
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int t = 0; t < threads; t++) {
+            String userId = "bench-corporate-" + t;
+            manager.registerUser(new UserProfile(userId, UserProfile.Role.CORPORATE));
+            pool.submit(() -> {
+                Random random = new Random();
+                while (System.nanoTime() < deadline) {
+                    // Pick 2-4 distinct spots from the hot set
+                    List<String> pick = new ArrayList<>(Arrays.asList(hotSpots));
+                    Collections.shuffle(pick, random);
+                    String[] spots = pick.subList(0, 2 + random.nextInt(3)).toArray(new String[0]);
+
+                    if (manager.tryBookSpotsNow(userId, 60_000, spots)) {
+                        commits.incrementAndGet();
+                        for (String spot : spots) {
+                            if (holders.putIfAbsent(spot, userId) != null) violations.incrementAndGet(); // Double booking
+                        }
+                        if (manager.getUserBookingCount(userId) > 5) violations.incrementAndGet(); // Role limit exceeded
+                        for (String spot : spots) holders.remove(spot, userId);
+                        manager.releaseSpotsNow(userId, spots);
+                    } else {
+                        aborts.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30, TimeUnit.SECONDS);
+
+        long total = commits.get() + aborts.get();
+        System.out.printf("threads=%d duration=%ds transactions=%d (%.0f tx/s) commits=%d aborts=%d (%.1f%%) violations=%d%n",
+            threads, seconds, total, total / (double) seconds, commits.get(), aborts.get(),
+            total == 0 ? 0 : 100.0 * aborts.get() / total, violations.get());
+        System.out.println("Booked spots left in zone A: " +
+            Arrays.stream(hotSpots).filter(manager::isBooked).count());
+        System.exit(violations.get() == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,107 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Dedicated notification channel, separate from slot repaints
+// Messages are routed per user (null = everyone), repeats of the same message to the same user within the
+// dedup window are dropped, and everything posted between two flushes reaches each sink as one batch.
+public class NotificationCenter {
+    private final ScheduledExecutorService scheduler;
+    private final long flushMillis;
+    private final long dedupWindowMillis;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private static final String BROADCAST = ""; // lastSent key for messages to everyone
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> lastSent = new ConcurrentHashMap<>(); // User -> message -> time
+    private final ConcurrentMap<String, Consumer<List<String>>> sinks = new ConcurrentHashMap<>(); // Per user
+
+    // A message waiting for the next flush
+    private static class Pending {
+        final String userId;
+        final String message;
+
+        Pending(String userId, String message) {
+            this.userId = userId;
+            this.message = message;
+        }
+    }
+
+    // Constructor: flushes on the given scheduler at a fixed interval once started
+    public NotificationCenter(ScheduledExecutorService scheduler, long flushMillis, long dedupWindowMillis) {
+        this.scheduler = scheduler;
+        this.flushMillis = flushMillis;
+        this.dedupWindowMillis = dedupWindowMillis;
+    }
+
+    // Begin flushing; kept out of the constructor so the task never sees a partly built instance
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Register the sink receiving batches for a user (replaces any previous sink)
+    public void registerSink(String userId, Consumer<List<String>> sink) {
+        sinks.put(userId, sink);
+    }
+
+    public void unregisterSink(String userId) {
+        sinks.remove(userId);
+    }
+
+    // Queue a message for one user, or for everyone when userId is null
+    public void post(String userId, String message) {
+        long now = System.currentTimeMillis();
+        String key = userId == null ? BROADCAST : userId;
+        ConcurrentMap<String, Long> sent = lastSent.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        Long previous = sent.get(message); // A suppressed repeat allocates nothing
+        if (previous != null && now - previous < dedupWindowMillis) return;
+        sent.put(message, now);
+        // flush() may have dropped the map as empty in between; record the message in the live one
+        if (lastSent.get(key) != sent) lastSent.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(message, now);
+        pending.offer(new Pending(userId, message));
+    }
+
+    // Deliver everything queued since the last flush, one batch per sink
+    void flush() {
+        Pending next = pending.poll();
+        if (next != null) {
+            List<String> broadcast = new ArrayList<>();
+            Map<String, List<String>> perUser = new LinkedHashMap<>();
+            for (; next != null; next = pending.poll()) {
+                if (next.userId == null) broadcast.add(next.message);
+                else perUser.computeIfAbsent(next.userId, k -> new ArrayList<>()).add(next.message);
+            }
+
+            for (Map.Entry<String, Consumer<List<String>>> sink : sinks.entrySet()) {
+                List<String> own = perUser.get(sink.getKey());
+                List<String> batch = broadcast;
+                if (own != null) {
+                    batch = new ArrayList<>(broadcast);
+                    batch.addAll(own);
+                }
+                if (batch.isEmpty()) continue;
+                try {
+                    sink.getValue().accept(batch);
+                } catch (RuntimeException ex) {
+                    System.err.println("⚠️ Notification delivery failed for " + sink.getKey() + ": " + ex.getMessage());
+                }
+            }
+        }
+
+        // Keep the dedup map bounded to the window, and drop users with nothing left in it
+        long cutoff = System.currentTimeMillis() - dedupWindowMillis;
+        for (Map.Entry<String, ConcurrentMap<String, Long>> user : lastSent.entrySet()) {
+            ConcurrentMap<String, Long> sent = user.getValue();
+            sent.values().removeIf(time -> time < cutoff);
+            if (sent.isEmpty()) lastSent.remove(user.getKey(), sent);
+        }
+    }
+}
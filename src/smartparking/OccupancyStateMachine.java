@@ -0,0 +1,86 @@
+package smartparking;
+
+// Per-spot occupancy state machine that debounces raw sensor readings
+// Ultrasonic and magnetic sensors chatter, so a new state is only confirmed after enough consecutive
+// agreeing readings spread over a minimum time. Arriving and leaving use different thresholds (hysteresis),
+// and all state lives in primitive arrays indexed by spot so bulk batches run without allocation.
+public class OccupancyStateMachine {
+    // Receives confirmed transitions only
+    @FunctionalInterface
+    public interface TransitionSink {
+        void onConfirmed(int spotIndex, boolean occupied, long timestamp);
+    }
+
+    private final boolean[] confirmed; // Debounced occupancy per spot
+    private final boolean[] candidate; // State the recent readings are voting for
+    private final long[] candidateSince; // Time of the first reading that agreed with the candidate
+    private final int[] agreeing; // Consecutive readings agreeing with the candidate
+
+    private final int enterReadings; // Readings needed to confirm a vehicle arrived
+    private final long enterMillis; // ...spread over at least this long
+    private final int leaveReadings; // Readings needed to confirm a vehicle left
+    private final long leaveMillis;
+
+    private long readingsProcessed;
+    private long transitionsConfirmed;
+
+    // Constructor
+    public OccupancyStateMachine(int spotCount, int enterReadings, long enterMillis, int leaveReadings, long leaveMillis) {
+        this.confirmed = new boolean[spotCount];
+        this.candidate = new boolean[spotCount];
+        this.candidateSince = new long[spotCount];
+        this.agreeing = new int[spotCount];
+        this.enterReadings = enterReadings;
+        this.enterMillis = enterMillis;
+        this.leaveReadings = leaveReadings;
+        this.leaveMillis = leaveMillis;
+    }
+
+    // Process a batch of raw readings; returns the number of confirmed transitions passed to the sink
+    public synchronized int processReadings(int[] spotIndex, boolean[] occupied, long[] timestamps, int count,
+                                            TransitionSink sink) {
+        int emitted = 0;
+        for (int i = 0; i < count; i++) {
+            int spot = spotIndex[i];
+            boolean reading = occupied[i];
+            long time = timestamps[i];
+
+            if (reading == confirmed[spot]) {
+                agreeing[spot] = 0; // Chatter back to the confirmed state cancels the candidate
+                continue;
+            }
+            if (agreeing[spot] == 0 || candidate[spot] != reading) {
+                candidate[spot] = reading;
+                candidateSince[spot] = time;
+                agreeing[spot] = 1;
+            } else {
+                agreeing[spot]++;
+            }
+
+            int needed = reading ? enterReadings : leaveReadings;
+            long window = reading ? enterMillis : leaveMillis;
+            if (agreeing[spot] >= needed && time - candidateSince[spot] >= window) {
+                confirmed[spot] = reading;
+                agreeing[spot] = 0;
+                emitted++;
+                sink.onConfirmed(spot, reading, time);
+            }
+        }
+        readingsProcessed += count;
+        transitionsConfirmed += emitted;
+        return emitted;
+    }
+
+    // Debounced occupancy of a spot
+    public synchronized boolean isOccupied(int spotIndex) {
+        return confirmed[spotIndex];
+    }
+
+    public synchronized long getReadingsProcessed() {
+        return readingsProcessed;
+    }
+
+    public synchronized long getTransitionsConfirmed() {
+        return transitionsConfirmed;
+    }
+}
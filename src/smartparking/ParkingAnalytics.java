@@ -0,0 +1,281 @@
+package smartparking;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Incremental analytics over spot status transitions (utilisation, dwell time, turnover and no-show rate)
+// Every transition is folded into a ring of time buckets, so each event costs O(1) and no query rescans history
+public class ParkingAnalytics {
+    // Spot type derived from the status that opened the session
+    public enum SpotType { USER, SYSTEM, ALL }
+
+    public static final String[] ZONES = {"A", "B", "C", "D", "E", "F"};
+    private static final int TYPES = 2; // USER and SYSTEM are tracked, ALL is summed on query
+
+    private final long bucketMillis; // Width of a single bucket
+    private final int bucketCount; // Number of buckets in the sliding window
+    private final long startTime; // Used to scale utilisation before the first window has filled
+
+    // Per group (zone * TYPES + type) running state
+    private final int[] zoneCapacity = new int[ZONES.length];
+    private final int[] inUse; // Spots currently booked/reserved per group
+    private final long[] lastChange; // Last time inUse changed per group
+
+    // Per group, per bucket counters; a group's rows are allocated on its first session, so idle lots stay small
+    private final long[][] busyMillis; // Integral of inUse over time
+    private final int[][] sessionsEnded;
+    private final int[][] noShows;
+    private final long[][] dwellMillis;
+    private final int[][] dwellCount;
+    private final long[] bucketEpoch; // Which absolute bucket each ring slot currently holds
+
+    // Running totals over the window (kept in sync when buckets are evicted)
+    private final long[] totalBusy;
+    private final int[] totalEnded;
+    private final int[] totalNoShows;
+    private final long[] totalDwell;
+    private final int[] totalDwellCount;
+
+    private final Map<String, SpotTrack> spots = new HashMap<>(); // Created by a spot's first transition
+    private long currentEpoch;
+
+    // Per spot session tracking
+    private static class SpotTrack {
+        final int zone;
+        int type = -1; // -1 when no session is open
+        boolean occupied;
+        long occupiedSince;
+
+        SpotTrack(int zone) {
+            this.zone = zone;
+        }
+    }
+
+    // Immutable snapshot returned to callers
+    public static class Snapshot {
+        public final String zone;
+        public final SpotType type;
+        public final double utilisation; // 0..1 share of zone capacity in use over the window
+        public final long averageDwellMillis;
+        public final double turnoverPerSpotHour;
+        public final double noShowRate; // 0..1 share of ended sessions that never saw a car
+
+        Snapshot(String zone, SpotType type, double utilisation, long averageDwellMillis,
+                 double turnoverPerSpotHour, double noShowRate) {
+            this.zone = zone;
+            this.type = type;
+            this.utilisation = utilisation;
+            this.averageDwellMillis = averageDwellMillis;
+            this.turnoverPerSpotHour = turnoverPerSpotHour;
+            this.noShowRate = noShowRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %-6s util %3.0f%% dwell %3dm turn %.2f/h no-show %3.0f%%",
+                zone, type, utilisation * 100, averageDwellMillis / 60000, turnoverPerSpotHour, noShowRate * 100);
+        }
+    }
+
+    // Constructor: window = bucketMillis * bucketCount
+    public ParkingAnalytics(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.startTime = System.currentTimeMillis();
+        int groups = ZONES.length * TYPES;
+        this.inUse = new int[groups];
+        this.lastChange = new long[groups];
+        this.busyMillis = new long[groups][];
+        this.sessionsEnded = new int[groups][];
+        this.noShows = new int[groups][];
+        this.dwellMillis = new long[groups][];
+        this.dwellCount = new int[groups][];
+        this.bucketEpoch = new long[bucketCount];
+        this.totalBusy = new long[groups];
+        this.totalEnded = new int[groups];
+        this.totalNoShows = new int[groups];
+        this.totalDwell = new long[groups];
+        this.totalDwellCount = new int[groups];
+        this.currentEpoch = startTime / bucketMillis;
+        Arrays.fill(bucketEpoch, currentEpoch);
+        Arrays.fill(lastChange, startTime);
+    }
+
+    // Register a spot so it counts towards its zone capacity; call once per spot
+    public synchronized void registerSpot(String spotId) {
+        int zone = zoneIndex(spotId);
+        if (zone >= 0) zoneCapacity[zone]++;
+    }
+
+    // Fold a single status transition into the window
+    public synchronized void recordTransition(String spotId, String status, long now) {
+        SpotTrack track = spots.get(spotId);
+        if (track == null) {
+            int zone = zoneIndex(spotId);
+            if (zone < 0) return;
+            track = new SpotTrack(zone);
+            spots.put(spotId, track);
+        }
+        advance(now);
+
+        switch (status) {
+            case "booked", "reserved" -> {
+                if (track.type < 0) openSession(track, "booked".equals(status) ? 0 : 1, now);
+            }
+            case "time_exceeded" -> {
+                // The booking ran out, car or no car: only the *_occupied statuses come from a sensor, so this
+                // neither marks the spot occupied nor ends the dwell, and an unused booking still ends as a no-show
+                if (track.type < 0) openSession(track, 0, now);
+            }
+            case "booked_occupied", "reserved_occupied" -> {
+                // Sensors may report a car before the booking update arrives
+                if (track.type < 0) openSession(track, "booked_occupied".equals(status) ? 0 : 1, now);
+                if (!track.occupied) {
+                    track.occupied = true;
+                    track.occupiedSince = now;
+                }
+            }
+            case "available" -> {
+                if (track.type >= 0) closeSession(track, now);
+            }
+            default -> { } // soft_locked and wrong_parking do not open or close a session
+        }
+    }
+
+    // Query a zone (or "*" for the whole lot) for one spot type
+    public synchronized Snapshot getSnapshot(String zone, SpotType type) {
+        long now = System.currentTimeMillis();
+        advance(now);
+
+        long busy = 0, dwell = 0;
+        int ended = 0, noShow = 0, dwellN = 0, capacity = 0;
+        for (int z = 0; z < ZONES.length; z++) {
+            if (!"*".equals(zone) && !ZONES[z].equals(zone)) continue;
+            capacity += zoneCapacity[z];
+            for (int t = 0; t < TYPES; t++) {
+                if (type != SpotType.ALL && type.ordinal() != t) continue;
+                int g = z * TYPES + t;
+                busy += totalBusy[g] + (long) inUse[g] * (now - lastChange[g]);
+                ended += totalEnded[g];
+                noShow += totalNoShows[g];
+                dwell += totalDwell[g];
+                dwellN += totalDwellCount[g];
+            }
+        }
+
+        long window = Math.max(1, Math.min(bucketMillis * bucketCount, now - startTime));
+        double utilisation = capacity == 0 ? 0 : (double) busy / ((double) capacity * window);
+        double hours = window / 3_600_000.0;
+        double turnover = capacity == 0 ? 0 : ended / (capacity * hours);
+        return new Snapshot(zone, type, Math.min(1.0, utilisation),
+            dwellN == 0 ? 0 : dwell / dwellN, turnover, ended == 0 ? 0 : (double) noShow / ended);
+    }
+
+    // Number of spots in a zone that currently have no open session
+    public synchronized int getFreeSpots(String zone) {
+        int z = zoneIndex(zone);
+        if (z < 0) return 0;
+        int used = 0;
+        for (int t = 0; t < TYPES; t++) used += inUse[z * TYPES + t];
+        return zoneCapacity[z] - used;
+    }
+
+    // Window length in milliseconds
+    public long getWindowMillis() {
+        return bucketMillis * bucketCount;
+    }
+
+    private void openSession(SpotTrack track, int type, long now) {
+        int g = track.zone * TYPES + type;
+        if (busyMillis[g] == null) allocateGroup(g);
+        accrue(g, now);
+        inUse[g]++;
+        track.type = type;
+        track.occupied = false;
+    }
+
+    private void closeSession(SpotTrack track, long now) {
+        int g = track.zone * TYPES + track.type;
+        int slot = (int) (currentEpoch % bucketCount);
+        accrue(g, now);
+        inUse[g]--;
+        sessionsEnded[g][slot]++;
+        totalEnded[g]++;
+        if (track.occupied) {
+            long dwell = now - track.occupiedSince;
+            dwellMillis[g][slot] += dwell;
+            dwellCount[g][slot]++;
+            totalDwell[g] += dwell;
+            totalDwellCount[g]++;
+        } else {
+            noShows[g][slot]++;
+            totalNoShows[g]++;
+        }
+        track.type = -1;
+        track.occupied = false;
+    }
+
+    private void allocateGroup(int g) {
+        busyMillis[g] = new long[bucketCount];
+        sessionsEnded[g] = new int[bucketCount];
+        noShows[g] = new int[bucketCount];
+        dwellMillis[g] = new long[bucketCount];
+        dwellCount[g] = new int[bucketCount];
+    }
+
+    // Add the busy time since the last change of a group to the current bucket
+    private void accrue(int g, long now) {
+        long delta = (long) inUse[g] * (now - lastChange[g]);
+        int slot = (int) (currentEpoch % bucketCount);
+        busyMillis[g][slot] += delta;
+        totalBusy[g] += delta;
+        lastChange[g] = now;
+    }
+
+    // Rotate the ring forward bucket by bucket, evicting buckets that fell out of the window
+    private void advance(long now) {
+        long epoch = now / bucketMillis;
+        if (epoch <= currentEpoch) return;
+
+        // Anything older than one full window is discarded without settling it
+        if (epoch - currentEpoch > bucketCount) {
+            currentEpoch = epoch - bucketCount;
+            for (int g = 0; g < inUse.length; g++) lastChange[g] = Math.max(lastChange[g], currentEpoch * bucketMillis);
+        }
+
+        while (currentEpoch < epoch) {
+            // Settle open busy time into the bucket it belongs to before rotating
+            long boundary = (currentEpoch + 1) * bucketMillis;
+            for (int g = 0; g < inUse.length; g++) {
+                if (inUse[g] > 0 && lastChange[g] < boundary) accrue(g, boundary);
+                lastChange[g] = Math.max(lastChange[g], boundary);
+            }
+
+            currentEpoch++;
+            int slot = (int) (currentEpoch % bucketCount);
+            if (bucketEpoch[slot] == currentEpoch) continue;
+            for (int g = 0; g < inUse.length; g++) {
+                if (busyMillis[g] == null) continue; // Never had a session, nothing to evict
+                totalBusy[g] -= busyMillis[g][slot];
+                totalEnded[g] -= sessionsEnded[g][slot];
+                totalNoShows[g] -= noShows[g][slot];
+                totalDwell[g] -= dwellMillis[g][slot];
+                totalDwellCount[g] -= dwellCount[g][slot];
+                busyMillis[g][slot] = 0;
+                sessionsEnded[g][slot] = 0;
+                noShows[g][slot] = 0;
+                dwellMillis[g][slot] = 0;
+                dwellCount[g][slot] = 0;
+            }
+            bucketEpoch[slot] = currentEpoch;
+        }
+    }
+
+    // Map a spot ID such as "C7" to its zone index
+    static int zoneIndex(String spotId) {
+        if (spotId == null || spotId.isEmpty()) return -1;
+        int zone = spotId.charAt(0) - 'A';
+        return zone >= 0 && zone < ZONES.length ? zone : -1;
+    }
+}
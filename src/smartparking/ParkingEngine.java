@@ -0,0 +1,216 @@
+package smartparking;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hosts many parking lots in one process, routed by lot ID
+// Every lot keeps its own spots, bookings, queues and counters, but none owns a thread: booking and update queues
+// are drained on the engine's bounded worker pool, timers, expiry batches and notification flushes run on the
+// shared scheduler, and counters are exposed through one metrics registry. An idle lot therefore costs memory only.
+public class ParkingEngine {
+    public static final String DEFAULT_LOT_ID = "main"; // The lot behind ParkingLotManager.getInstance()
+
+    private static ParkingEngine defaultEngine;
+
+    private final ExecutorService workers; // Booking drains, status updates, event bus mailboxes, async cancels
+    private final ScheduledExecutorService scheduler; // Booking timers, expiry batches, notification flushes
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final RequestDedupCache<CompletableFuture<Boolean>> requestResults; // Client request IDs of all lots
+    private final ConcurrentMap<String, ParkingLotManager> lots = new ConcurrentHashMap<>();
+    private final AvailabilityAggregator availability; // Free counts per lot and zone, spill-over targets
+    private volatile ReplicationLog replicationLog; // Set when this engine ships its state to a standby
+
+    private static final int REQUEST_CACHE_SIZE = 1 << 17; // Slots; about half stay free for 50k+ live IDs
+    private static final long REQUEST_CACHE_TTL_MILLIS = 10 * 60 * 1000L; // Longer than any client retries
+    private static final long AVAILABILITY_PUBLISH_MILLIS = 500; // At most two availability snapshots per second
+    private static final int MAX_SPILL_ATTEMPTS = 3; // Lots tried by bookNearest before giving up
+    private static final boolean MONITOR_PER_LOT = Boolean.getBoolean("smartparking.monitor.perLot"); // Detail per lot
+
+    // Constructor: fixed-size pools shared by every lot of this engine
+    public ParkingEngine(int workerThreads, int schedulerThreads) {
+        this.workers = Executors.newFixedThreadPool(workerThreads, daemonThreads("EngineWorker"));
+        this.scheduler = Executors.newScheduledThreadPool(schedulerThreads, daemonThreads("EngineScheduler"));
+        this.requestResults = new RequestDedupCache<>(REQUEST_CACHE_SIZE, REQUEST_CACHE_TTL_MILLIS);
+        this.availability = new AvailabilityAggregator(scheduler, AVAILABILITY_PUBLISH_MILLIS);
+        availability.start();
+        scheduler.scheduleAtFixedRate(this::logMonitor, 1, 1, TimeUnit.MINUTES);
+    }
+
+    // Minute monitor: one line for the whole engine; -Dsmartparking.monitor.perLot=true adds a line per lot
+    private void logMonitor() {
+        int queued = 0;
+        int active = 0;
+        int busiestQueue = 0;
+        String busiest = null;
+        for (ParkingLotManager lot : lots.values()) {
+            int lotQueued = lot.getQueuedBookings();
+            queued += lotQueued;
+            active += lot.getConcurrentBookings();
+            if (lotQueued > busiestQueue) {
+                busiestQueue = lotQueued;
+                busiest = lot.getLotId();
+            }
+            if (MONITOR_PER_LOT) lot.logMonitor();
+        }
+        System.out.println("[Monitor] " + lots.size() + " lots, queued bookings: " + queued + ", active bookings: " + active
+            + (busiest == null ? "" : ", longest queue: " + busiest + " (" + busiestQueue + ")"));
+    }
+
+    // Engine used by the desktop app and tools that work on a single lot
+    public static synchronized ParkingEngine getDefault() {
+        if (defaultEngine == null) {
+            defaultEngine = new ParkingEngine(Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+        }
+        return defaultEngine;
+    }
+
+    // Add a lot at the origin; lot IDs are unique within the engine
+    public ParkingLotManager createLot(String lotId) {
+        return createLot(lotId, 0, 0);
+    }
+
+    // Add a lot at a map position (any planar unit, e.g. km); positions decide spill-over order
+    public synchronized ParkingLotManager createLot(String lotId, double x, double y) {
+        if (lots.containsKey(lotId)) throw new IllegalArgumentException("Lot already exists: " + lotId);
+        ParkingLotManager lot = new ParkingLotManager(lotId, this);
+        lot.start();
+        lots.put(lotId, lot);
+        availability.register(lot, x, y);
+        return lot;
+    }
+
+    public synchronized ParkingLotManager getOrCreateLot(String lotId) {
+        ParkingLotManager lot = lots.get(lotId);
+        return lot != null ? lot : createLot(lotId);
+    }
+
+    // The lot with the given ID, null if unknown
+    public ParkingLotManager getLot(String lotId) {
+        return lots.get(lotId);
+    }
+
+    // The lot with the given ID; unknown IDs are a caller error
+    public ParkingLotManager route(String lotId) {
+        ParkingLotManager lot = lots.get(lotId);
+        if (lot == null) throw new IllegalArgumentException("Unknown lot: " + lotId);
+        return lot;
+    }
+
+    // Route a booking to its lot; see ParkingLotManager.bookSpot
+    public CompletableFuture<Boolean> bookSpot(String lotId, String spotId, int hours, String label, boolean isPriority,
+                                               String userId, String requestId) {
+        return route(lotId).bookSpot(spotId, hours, label, isPriority, userId, requestId);
+    }
+
+    // Route a cancellation to its lot; see ParkingLotManager.cancelBooking
+    public CompletableFuture<Boolean> cancelBooking(String lotId, String spotId, String userId, String requestId) {
+        return route(lotId).cancelBooking(spotId, userId, requestId);
+    }
+
+    // Book any free spot at lotId (preferring zone, null for any), spilling over to the nearest lot with free
+    // spots when it is full. Completes with where the booking landed, or null if no lot could take it.
+    public CompletableFuture<Placement> bookNearest(String lotId, String zone, int hours, String label,
+                                                    boolean isPriority, String userId) {
+        return bookNearest(lotId, zone, hours, label, isPriority, userId, false, MAX_SPILL_ATTEMPTS);
+    }
+
+    private CompletableFuture<Placement> bookNearest(String lotId, String zone, int hours, String label,
+                                                     boolean isPriority, String userId, boolean spill, int attemptsLeft) {
+        AvailabilityAggregator.Recommendation target = spill
+            ? availability.recommendSpillOver(lotId, zone) : availability.recommend(lotId, zone);
+        if (target == null || attemptsLeft == 0) return CompletableFuture.completedFuture(null);
+        ParkingLotManager lot = lots.get(target.lotId);
+        int index = lot.query().zone(target.zone).status(SpotStatus.AVAILABLE).booked(false).findAny();
+        if (index < 0) index = lot.query().status(SpotStatus.AVAILABLE).booked(false).findAny(); // Zone count lagged
+        if (index < 0) {
+            // Counts lag the bookings just made; the lot is full in fact, so go straight to its spill-over target
+            if (target.spilled) return CompletableFuture.completedFuture(null);
+            return bookNearest(lotId, zone, hours, label, isPriority, userId, true, attemptsLeft - 1);
+        }
+        String spotId = lot.getSpotId(index);
+        // A lost race means the counts are about to drop; ask again rather than retrying the same spot
+        return lot.bookSpot(spotId, hours, label, isPriority, userId).thenCompose(success -> success
+            ? CompletableFuture.completedFuture(new Placement(target.lotId, spotId, target.spilled))
+            : bookNearest(lotId, zone, hours, label, isPriority, userId, target.spilled, attemptsLeft - 1));
+    }
+
+    // Where a bookNearest request was booked
+    public static class Placement {
+        public final String lotId;
+        public final String spotId;
+        public final boolean spilled; // Booked in another lot because the requested one was full
+
+        Placement(String lotId, String spotId, boolean spilled) {
+            this.lotId = lotId;
+            this.spotId = spotId;
+            this.spilled = spilled;
+        }
+
+        @Override
+        public String toString() {
+            return lotId + "/" + spotId + (spilled ? " (spill-over)" : "");
+        }
+    }
+
+    // Start shipping every lot's booking state to a hot standby (see ReplicationStandby); the standby first gets
+    // a snapshot, then batches of changed spots
+    public synchronized ReplicationLog replicateTo(String host, int port) {
+        if (replicationLog != null) throw new IllegalStateException("Already replicating");
+        replicationLog = new ReplicationLog(this, host, port);
+        replicationLog.start();
+        return replicationLog;
+    }
+
+    ReplicationLog getReplicationLog() {
+        return replicationLog;
+    }
+
+    public AvailabilityAggregator getAvailability() {
+        return availability;
+    }
+
+    public Collection<String> getLotIds() {
+        return lots.keySet();
+    }
+
+    Collection<ParkingLotManager> getLots() {
+        return lots.values();
+    }
+
+    public int getLotCount() {
+        return lots.size();
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    ExecutorService getWorkers() {
+        return workers;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    RequestDedupCache<CompletableFuture<Boolean>> getRequestResults() {
+        return requestResults;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
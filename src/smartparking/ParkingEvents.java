@@ -0,0 +1,260 @@
+package smartparking;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+// Java Flight Recorder events for the booking lifecycle, soft locks, booking timers, the update buffer and sensors
+// Every hook creates its event and fills it in only after shouldCommit(): without a recording that enables the event
+// that test is a constant false in compiled code and the unused event is never allocated, so the hooks cost nothing
+// unless someone records. Resources/jfr/smartparking.jfc enables them for continuous recording, e.g.
+//   java -XX:StartFlightRecording:settings=default,settings=Resources/jfr/smartparking.jfc,maxage=6h ...
+// User IDs are never recorded; bookings carry the scheduling class of the user's role instead.
+public final class ParkingEvents {
+    private static final EventType DEQUEUED = EventType.getEventType(BookingDequeued.class);
+    private static final EventType COMPLETED = EventType.getEventType(BookingCompleted.class);
+
+    private ParkingEvents() {
+    }
+
+    @Name("smartparking.BookingEnqueued")
+    @Label("Booking Enqueued")
+    @Category({"Smart Parking", "Booking"})
+    @Description("A booking request passed admission and entered the lot's booking queue")
+    @StackTrace(false)
+    static final class BookingEnqueued extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("Spots")
+        @Description("Spots in the request, more than one for an all-or-nothing fleet booking")
+        int spots;
+        @Label("User Role")
+        @Description("Scheduling class of the request: VIP (or explicit priority), CORPORATE or REGULAR")
+        String userRole;
+    }
+
+    @Name("smartparking.BookingDequeued")
+    @Label("Booking Dequeued")
+    @Category({"Smart Parking", "Booking"})
+    @Description("The booking drain took a request off the queue")
+    @StackTrace(false)
+    static final class BookingDequeued extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("User Role")
+        String userRole;
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+    }
+
+    @Name("smartparking.BookingCompleted")
+    @Label("Booking Completed")
+    @Category({"Smart Parking", "Booking"})
+    @Description("Processing of a dequeued booking request, from the drain picking it up to its result")
+    @StackTrace(false)
+    static final class BookingCompleted extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("Spots")
+        int spots;
+        @Label("User Role")
+        String userRole;
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+        @Label("Outcome")
+        @Description("booked, reserved (system booking), failed or interrupted")
+        String outcome;
+    }
+
+    @Name("smartparking.SoftLockAcquire")
+    @Label("Soft Lock Acquire")
+    @Category({"Smart Parking", "Soft Lock"})
+    @Description("A user tried to hold a spot while booking it")
+    @StackTrace(false)
+    static final class SoftLockAcquire extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("User Role")
+        String userRole;
+        @Label("Acquired")
+        boolean acquired;
+        @Label("Hold")
+        @Timespan(Timespan.MILLISECONDS)
+        long hold;
+    }
+
+    @Name("smartparking.SoftLockExpired")
+    @Label("Soft Lock Expired")
+    @Category({"Smart Parking", "Soft Lock"})
+    @Description("A hold ran out without a booking and the spot was released")
+    @StackTrace(false)
+    static final class SoftLockExpired extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("User Role")
+        String userRole;
+        @Label("Lag")
+        @Description("How late the release ran after the hold's end")
+        @Timespan(Timespan.MILLISECONDS)
+        long lag;
+    }
+
+    @Name("smartparking.BookingExpiry")
+    @Label("Booking Expiry")
+    @Category({"Smart Parking", "Timers"})
+    @Description("A booking's expiry deadline fired on the lot's timer")
+    @StackTrace(false)
+    static final class BookingExpiry extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("Scheduled")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        long scheduled;
+        @Label("Lag")
+        @Description("Firing time minus the scheduled deadline")
+        @Timespan(Timespan.MILLISECONDS)
+        long lag;
+        @Label("Expired")
+        @Description("False when the deadline belonged to a booking already cancelled or extended")
+        boolean expired;
+    }
+
+    @Name("smartparking.UpdateBufferFlush")
+    @Label("Update Buffer Flush")
+    @Category({"Smart Parking", "Status Updates"})
+    @Description("One turn of applying buffered spot status updates to the cache and the event bus")
+    @StackTrace(false)
+    static final class UpdateBufferFlush extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Updates")
+        int updates;
+    }
+
+    @Name("smartparking.SensorBatch")
+    @Label("Sensor Batch")
+    @Category({"Smart Parking", "Sensors"})
+    @Description("A batch of raw sensor readings run through the debouncing state machine")
+    @StackTrace(false)
+    static final class SensorBatch extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Readings")
+        int readings;
+        @Label("Transitions")
+        @Description("Confirmed occupancy changes the batch produced")
+        int transitions;
+    }
+
+    @Name("smartparking.SensorTransition")
+    @Label("Sensor Transition")
+    @Category({"Smart Parking", "Sensors"})
+    @Description("A debounced vehicle arrival or departure reached the lot")
+    @StackTrace(false)
+    static final class SensorTransition extends Event {
+        @Label("Lot")
+        String lotId;
+        @Label("Spot")
+        String spotId;
+        @Label("Occupied")
+        boolean occupied;
+        @Label("Booked")
+        boolean booked;
+        @Label("Sensor Time")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        long sensorTime;
+    }
+
+    // Enqueue time for a request's queue wait, 0 when no recording wants it so the clock is not read
+    static long queueClock() {
+        return DEQUEUED.isEnabled() || COMPLETED.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    // Wait since a queueClock() stamp, 0 if the request was not stamped
+    static long waitSince(long enqueuedNanos) {
+        return enqueuedNanos == 0 ? 0 : System.nanoTime() - enqueuedNanos;
+    }
+
+    static void bookingEnqueued(String lotId, String spotId, int spots, int cls) {
+        BookingEnqueued event = new BookingEnqueued();
+        if (!event.shouldCommit()) return;
+        event.lotId = lotId;
+        event.spotId = spotId;
+        event.spots = spots;
+        event.userRole = BookingScheduler.className(cls);
+        event.commit();
+    }
+
+    static void bookingDequeued(String lotId, String spotId, int cls, long enqueuedNanos) {
+        BookingDequeued event = new BookingDequeued();
+        if (!event.shouldCommit()) return;
+        event.lotId = lotId;
+        event.spotId = spotId;
+        event.userRole = BookingScheduler.className(cls);
+        event.queueWait = waitSince(enqueuedNanos);
+        event.commit();
+    }
+
+    static void softLockAcquire(ParkingLotManager lot, String spotId, String userId, boolean acquired, long holdMillis) {
+        SoftLockAcquire event = new SoftLockAcquire();
+        if (!event.shouldCommit()) return;
+        event.lotId = lot.getLotId();
+        event.spotId = spotId;
+        event.userRole = lot.roleOf(userId);
+        event.acquired = acquired;
+        event.hold = holdMillis;
+        event.commit();
+    }
+
+    static void softLockExpired(ParkingLotManager lot, String spotId, String userId, long expiry) {
+        SoftLockExpired event = new SoftLockExpired();
+        if (!event.shouldCommit()) return;
+        event.lotId = lot.getLotId();
+        event.spotId = spotId;
+        event.userRole = lot.roleOf(userId);
+        event.lag = System.currentTimeMillis() - expiry;
+        event.commit();
+    }
+
+    static void bookingExpiry(String lotId, String spotId, long scheduled, boolean expired) {
+        BookingExpiry event = new BookingExpiry();
+        if (!event.shouldCommit()) return;
+        event.lotId = lotId;
+        event.spotId = spotId;
+        event.scheduled = scheduled;
+        event.lag = System.currentTimeMillis() - scheduled;
+        event.expired = expired;
+        event.commit();
+    }
+
+    static void sensorTransition(String lotId, String spotId, ParkingSpot spot, boolean occupied, long timestamp) {
+        SensorTransition event = new SensorTransition();
+        if (!event.shouldCommit()) return;
+        event.lotId = lotId;
+        event.spotId = spotId;
+        event.occupied = occupied;
+        event.booked = spot.isBooked();
+        event.sensorTime = timestamp;
+        event.commit();
+    }
+}
@@ -3,124 +3,230 @@ package smartparking;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.Consumer;
-import javax.swing.JDialog;
-import javax.swing.JLabel;
-import javax.swing.JButton;
-import javax.swing.JPanel;
-import javax.swing.SwingUtilities;
-import java.awt.BorderLayout;
-import java.awt.Font;
-import javax.swing.SwingConstants;
-
-// ParkingLotManager as the core backend controller of the smart car parking system
+
+// ParkingLotManager as the core backend controller of one parking lot
+// Lots are hosted by a ParkingEngine and run on its shared workers and scheduler; getInstance() is the default lot
 public class ParkingLotManager {
-    // Singleton instance
-    private static ParkingLotManager instance;
+    private final String lotId;
+    private final ParkingEngine engine;
 
     // Core data structures
-    private final ConcurrentMap<String, ParkingSpot> parkingSpots; // Stores all parking spots
-    private final ConcurrentMap<String, Consumer<String>> listeners; // Registered slot listeners for GUI updates
-    private final ExecutorService notificationExecutor; // For async user notifications
-    private final PriorityBlockingQueue<ParkingRequest> bookingQueue; // Incoming booking requests
-    private final ScheduledExecutorService monitorExecutor; // For monitoring tasks
+    private final SpotEventBus eventBus; // Status transition subscribers per spot, zone and lot
+    private final ExecutorService notificationExecutor; // For async user notifications (engine workers)
+    private final BookingScheduler<ParkingRequest> bookingQueue; // Incoming booking requests, fair across roles
+    private final ScheduledExecutorService monitorExecutor; // For timers and batches (engine scheduler)
     private final Set<String> userBookedSpots; // Track user-booked slots
     private final Map<String, String> spotStatusCache; // Slot status for GUI repaint throttling
-    private final LinkedBlockingQueue<Runnable> updateBuffer; // Buffered update queue for thread-safe repainting
+    private volatile BlockingQueue<Runnable> updateBuffer; // Buffered update queue, created by the first update
+    private final ReentrantLock updateLock = new ReentrantLock(); // Keeps updates serial when a producer helps drain
+    private final SerialDrain bookingDrain; // Runs queued bookings on an engine worker
+    private final SerialDrain updateDrain; // Applies buffered updates on an engine worker
     private final Semaphore bookingSemaphore; // Controls max parallel bookings
     private final ReentrantLock cacheLock; // Lock for spot status cache
     private final AtomicInteger bookingsProcessed;
     private final AtomicInteger concurrentBookings;
     private final AtomicInteger failedBookings;
+    private final AtomicInteger rejectedBookings; // Rejected at admission without queueing
+    private final AtomicInteger shedBookings; // Dropped from the queue to make room for priority requests
+    private final AdmissionController admission; // Bounded queue and per-user rate limits
+    private final ParkingAnalytics analytics; // Sliding-window utilisation, dwell, turnover and no-show stats
+    private final DemandForecaster forecaster; // Arrival rate forecast per zone and hour-of-week
+    private final SpotEventPublisher eventPublisher; // Fan-out of transitions to remote dashboards
+    private final NotificationCenter notifications; // Batched, deduplicated user notifications
+    private final ExpiryManager expiryManager; // Expired bookings awaiting acknowledgment or grace timeout
+    private volatile OccupancyStateMachine occupancy; // Debounced sensor occupancy per spot, created by the first batch
+    private final OccupancyStateMachine.TransitionSink occupancySink = this::applyOccupancy;
     
     // User booking state
     private final Map<String, Map<String, String>> userBookingDetails = new ConcurrentHashMap<>();
     private final Map<String, UserProfile> userProfiles = new ConcurrentHashMap<>();
     private final Map<String, Set<String>> userBookings = new ConcurrentHashMap<>();
-    private final Map<String, Long> lastUpdateTimes = new ConcurrentHashMap<>();
+    private final Map<String, String> driveUpBookings = new ConcurrentHashMap<>(); // Gate claims of users without a profile
+    private final AtomicReferenceArray<ParkingSpot> spotsByIndex; // Indexed like SPOT_IDS; a spot is created on first use
+    private final AtomicIntegerArray statusCodes; // SpotStatus code per spot index, mirrors the status cache
+    private volatile AtomicReferenceArray<Runnable> updateTasks; // Reusable update task per spot and status code, lazy
+    private final BookingTimers bookingTimers; // Shared warning, expiry and soft-lock deadlines
+    private final ReservationIndex reservations; // Future-dated reservations per spot
+    private final AtomicLong reservationIds = new AtomicLong();
+    private final Set<Long> deferredReservations = ConcurrentHashMap.newKeySet(); // Waiting for an overstayer to leave
+    private final RequestDedupCache<CompletableFuture<Boolean>> requestResults; // Request key to first terminal result
+
+    // Connected users: GUI windows and API clients, keyed by user ID
+    private final Map<String, UserSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, SpotEventBus.Subscription> guiSubscriptions = new ConcurrentHashMap<>();
+
+    // Spot layout, the same in every lot, so IDs, the ID-to-index map and zone ranges are built once and shared;
+    // a lot only holds its ParkingSpot objects
+    private static final List<String> SPOT_IDS; // Dense spot index to ID
+    private static final Map<String, Integer> SPOT_INDEX; // Spot ID to dense index for primitive per-spot state
+    private static final Map<String, int[]> ZONE_RANGES; // Zone to [first, last + 1) spot index
+
+    static {
+        List<String> ids = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, int[]> zones = new HashMap<>();
+        for (char zone = 'A'; zone <= 'F'; zone++) {
+            int limit = (zone == 'A' || zone == 'F') ? 14 : 12;
+            int first = ids.size();
+            for (int i = 1; i <= limit; i++) {
+                String spotId = zone + String.valueOf(i);
+                index.put(spotId, ids.size());
+                ids.add(spotId);
+            }
+            zones.put(String.valueOf(zone), new int[]{first, ids.size()});
+        }
+        SPOT_IDS = Collections.unmodifiableList(ids);
+        SPOT_INDEX = Collections.unmodifiableMap(index);
+        ZONE_RANGES = Collections.unmodifiableMap(zones);
+    }
 
-    private GUI gui;
+    // Cached booking messages per spot; they only name the spot, so every lot shares them
+    private static final BookingMessages MESSAGES = new BookingMessages(SPOT_IDS);
 
-    // Constructor: Initializes managers, threads, data structures
-    private ParkingLotManager() {
-        this.parkingSpots = new ConcurrentHashMap<>();
-        this.listeners = new ConcurrentHashMap<>();
-        this.notificationExecutor = Executors.newSingleThreadExecutor();
-        this.bookingQueue = new PriorityBlockingQueue<>(11, Comparator.comparingInt(r -> r.isPriority ? 0 : 1));
-        this.monitorExecutor = Executors.newSingleThreadScheduledExecutor();
+    // Global claim order for multi-spot transactions: zone letter, then spot number
+    private static final Comparator<String> SPOT_ORDER =
+        Comparator.comparing((String s) -> s.charAt(0)).thenComparingInt(s -> Integer.parseInt(s.substring(1)));
+
+    private static final long HIGH_DEMAND_HORIZON_MILLIS = 60 * 60 * 1000L; // Forecast horizon for limits and holds
+    private static final long MIN_HOLD_MILLIS = 15 * 1000L; // Shortest soft-lock hold under high demand
+    private static final int UPDATES_PER_SPOT = 4; // Update buffer capacity per spot before producers help drain
+    private static final int REQUEST_POOL_SIZE = 1024; // Recycled requests; covers a few lots' admission queue bounds
+    // Shared by every lot, so an idle lot holds no pool; requests are cleared before they return to it
+    private static final ArrayBlockingQueue<ParkingRequest> REQUEST_POOL = new ArrayBlockingQueue<>(REQUEST_POOL_SIZE);
+    private static final int DRAIN_BATCH = 64; // Bookings or updates handled per worker turn before yielding it
+
+    // Constructor: Initializes the lot's state on the engine's shared pools; lots are created through the engine
+    ParkingLotManager(String lotId, ParkingEngine engine) {
+        this.lotId = lotId;
+        this.engine = engine;
+        this.eventBus = new SpotEventBus(engine.getWorkers());
+        this.notificationExecutor = engine.getWorkers();
+        this.bookingQueue = new BookingScheduler<>(new int[]{4, 2, 1}, 5000); // VIP/CORPORATE/REGULAR shares, 5s aging
+        this.monitorExecutor = engine.getScheduler();
+        this.requestResults = engine.getRequestResults();
         this.userBookedSpots = Collections.synchronizedSet(new HashSet<>());
         this.spotStatusCache = new ConcurrentHashMap<>();
-        this.updateBuffer = new LinkedBlockingQueue<>();
         this.bookingSemaphore = new Semaphore(5); // Allows max 5 concurrent bookings
         this.cacheLock = new ReentrantLock(true);
         this.bookingsProcessed = new AtomicInteger();
         this.concurrentBookings = new AtomicInteger();
         this.failedBookings = new AtomicInteger();
+        this.rejectedBookings = new AtomicInteger();
+        this.shedBookings = new AtomicInteger();
+        this.admission = new AdmissionController(256); // Max queued booking requests
+        this.analytics = new ParkingAnalytics(60 * 1000L, 60); // 1 hour window in 1 minute buckets
+        this.forecaster = new DemandForecaster(0.3);
+        this.eventPublisher = new SpotEventPublisher(4096, 256); // Resume history, per-dashboard buffer
+        this.notifications = new NotificationCenter(monitorExecutor, 250, 5000); // Flush every 250ms, 5s dedup
+        this.expiryManager = new ExpiryManager(this, monitorExecutor,
+            Long.getLong("smartparking.expiry.graceMillis", 10 * 60 * 1000L), 250); // Auto-release after grace
+        eventBus.subscribeLot(e -> analytics.recordTransition(e.getSpotId(), e.getStatus(), e.getTimestamp()));
+        eventBus.subscribeLot(e -> eventPublisher.publish(e.getSpotId(), e.getStatus()));
 
+        this.spotsByIndex = new AtomicReferenceArray<>(SPOT_IDS.size());
         initializeSpots();
-        startBookingProcessor();
-        startUpdateProcessor(); 
-        startMonitoring();
+        this.bookingDrain = new SerialDrain(engine.getWorkers(), this::processQueuedBookings, () -> bookingQueue.size() > 0);
+        this.updateDrain = new SerialDrain(engine.getWorkers(), this::applyQueuedUpdates, this::hasQueuedUpdates);
+        this.statusCodes = new AtomicIntegerArray(SPOT_IDS.size());
+        this.reservations = new ReservationIndex(SPOT_IDS.size());
+        this.bookingTimers = new BookingTimers(SPOT_IDS.size(), this::getSpotAt, monitorExecutor, 100);
+        registerMetrics(engine.getMetrics());
     }
 
-    // Singleton method to get a single instance of Parking Lot Manager
+    // Start the lot's periodic tasks; called by the engine once the lot is fully constructed
+    void start() {
+        notifications.start();
+        expiryManager.start();
+        bookingTimers.start();
+    }
+
+    // The default lot of the default engine, for the desktop app and single-lot tools
     public static synchronized ParkingLotManager getInstance() {
-        if (instance == null) {
-            instance = new ParkingLotManager();
-        }
-        return instance;
+        return ParkingEngine.getDefault().getOrCreateLot(ParkingEngine.DEFAULT_LOT_ID);
+    }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public ParkingEngine getEngine() {
+        return engine;
+    }
+
+    // Expose this lot's counters as "lot.<id>.*" gauges
+    private void registerMetrics(MetricsRegistry metrics) {
+        String prefix = "lot." + lotId + ".";
+        metrics.register(prefix + "bookings.processed", bookingsProcessed::get);
+        metrics.register(prefix + "bookings.failed", failedBookings::get);
+        metrics.register(prefix + "bookings.rejected", rejectedBookings::get);
+        metrics.register(prefix + "bookings.shed", shedBookings::get);
+        metrics.register(prefix + "bookings.active", concurrentBookings::get);
+        metrics.register(prefix + "queue.size", bookingQueue::size);
     }
 
-    // Initialize all parking slots by zone and attach listeners
+    // Initialize all parking slots by zone
     private void initializeSpots() {
-        for (char zone = 'A'; zone <= 'F'; zone++) {
-            int limit = (zone == 'A' || zone == 'F') ? 14 : 12;
-            for (int i = 1; i <= limit; i++) {
-                String spotId = zone + String.valueOf(i);
-                parkingSpots.put(spotId, new ParkingSpot(spotId, this));
-                registerListener(spotId, status -> notifyListeners(spotId, status));
-            }
+        for (String spotId : SPOT_IDS) analytics.registerSpot(spotId);
+    }
+
+    // The spot with the given ID, null if unknown
+    private ParkingSpot spotFor(String spotId) {
+        Integer index = SPOT_INDEX.get(spotId);
+        return index == null ? null : getSpotAt(index);
+    }
+
+    // One worker turn of the booking drain: process a batch of queued booking requests in scheduler order
+    private void processQueuedBookings() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            ParkingRequest request = bookingQueue.poll();
+            if (request == null) return;
+            admission.releaseSlot();
+            ParkingEvents.bookingDequeued(lotId, request.spotId, request.schedulingClass, request.enqueuedNanos);
+            processBooking(request);
         }
     }
 
-    // Booking thread loop to process queued booking requests
-    private void startBookingProcessor() {
-        new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    ParkingRequest request = bookingQueue.poll(100, TimeUnit.MILLISECONDS);
-                    if (request != null) {
-                        processBooking(request);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }, "BookingProcessor").start();
-    }
-
-    // Background thread to execute all UI updates from buffer
-    private void startUpdateProcessor() {
-        new Thread(() -> {
-            while (true) {
-                try {
-                    Runnable updateTask = updateBuffer.take();
-                    updateTask.run();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+    // One worker turn of the update drain; also run by producers that find the buffer full
+    private void applyQueuedUpdates() {
+        ParkingEvents.UpdateBufferFlush event = new ParkingEvents.UpdateBufferFlush();
+        event.begin();
+        int applied = 0;
+        updateLock.lock();
+        try {
+            BlockingQueue<Runnable> buffer = updateBuffer;
+            while (buffer != null && applied < DRAIN_BATCH) {
+                Runnable updateTask = buffer.poll();
+                if (updateTask == null) break;
+                updateTask.run();
+                applied++;
             }
-        }, "BufferedUpdateProcessor").start();
+        } finally {
+            updateLock.unlock();
+        }
+        event.end();
+        if (applied > 0 && event.shouldCommit()) {
+            event.lotId = lotId;
+            event.updates = applied;
+            event.commit();
+        }
     }
 
-    // Monitor thread that periodically logs system state
-    private void startMonitoring() {
-        monitorExecutor.scheduleAtFixedRate(() -> {
-            System.out.println("[Monitor] Queue size: " + bookingQueue.size());
-            System.out.println("[Monitor] Active bookings: " + concurrentBookings.get());
-        }, 1, 1, TimeUnit.MINUTES);
+    // Per-lot monitor line, printed by the engine's monitor when per-lot detail is enabled
+    void logMonitor() {
+        System.out.println("[Monitor " + lotId + "] Queue size: " + bookingQueue.size()
+            + ", active bookings: " + concurrentBookings.get() + ", queue waits: " + bookingQueue.describeWaits());
+    }
+
+    int getQueuedBookings() {
+        return bookingQueue.size();
+    }
+
+    int getConcurrentBookings() {
+        return concurrentBookings.get();
     }
 
     // Print current system booking metrics
@@ -128,16 +234,27 @@ public class ParkingLotManager {
         System.out.println("=== System Status ===");
         System.out.println("Total bookings processed: " + bookingsProcessed.get());
         System.out.println("Failed bookings: " + failedBookings.get());
+        System.out.println("Rejected at admission: " + rejectedBookings.get());
+        System.out.println("Shed from queue: " + shedBookings.get());
         System.out.println("Current queue size: " + bookingQueue.size());
         System.out.println("Active bookings: " + concurrentBookings.get());
+        System.out.println("Queue waits: " + bookingQueue.describeWaits());
     }
 
     // Return all spot IDs for a specific zone
     public String[] getSpotsInZone(String zone) {
-        return parkingSpots.keySet().stream()
-                .filter(id -> id.startsWith(zone))
-                .sorted(Comparator.comparingInt(s -> Integer.parseInt(s.substring(1))))
-                .toArray(String[]::new);
+        int[] range = ZONE_RANGES.get(zone);
+        return range == null ? new String[0] : SPOT_IDS.subList(range[0], range[1]).toArray(new String[0]);
+    }
+
+    // Return the rolling analytics for a zone ("*" for the whole lot) and spot type
+    public ParkingAnalytics.Snapshot getAnalytics(String zone, ParkingAnalytics.SpotType type) {
+        return analytics.getSnapshot(zone, type);
+    }
+
+    // Publisher of spot transitions for remote subscribers
+    public SpotEventPublisher getEventPublisher() {
+        return eventPublisher;
     }
 
     // Get current status for a specific spot (based on user ID)
@@ -171,6 +288,11 @@ public class ParkingLotManager {
         userBookings.putIfAbsent(profile.getUserId(), ConcurrentHashMap.newKeySet());
     }
 
+    // Let a user book without the per-user rate limit; the queue bound and booking limits still apply
+    void exemptFromRateLimit(String userId) {
+        admission.exempt(userId);
+    }
+
     // Check if user has hit their booking limit
     public boolean userHasReachedLimit(String userId) {
         UserProfile profile = userProfiles.get(userId);
@@ -178,6 +300,24 @@ public class ParkingLotManager {
         return profile != null && bookings.size() >= profile.getMaxBookingsAllowed();
     }
 
+    // Check the booking limit against a zone, tightened when the zone is predicted to fill up
+    public boolean userHasReachedLimit(String userId, String zone) {
+        UserProfile profile = userProfiles.get(userId);
+        Set<String> bookings = userBookings.getOrDefault(userId, Set.of());
+        return profile != null && bookings.size() >= profile.getMaxBookingsAllowed(isHighDemand(zone));
+    }
+
+    // Check if a zone is predicted to run out of free spots within the next hour
+    public boolean isHighDemand(String zone) {
+        return forecaster.isZoneAtRisk(zone, analytics.getFreeSpots(zone), HIGH_DEMAND_HORIZON_MILLIS);
+    }
+
+    // Shorten soft-lock holds in high-demand zones so contested spots are not held idle
+    private long effectiveHoldMillis(String spotId, long requestedMillis) {
+        if (!isHighDemand(spotId.substring(0, 1))) return requestedMillis;
+        return Math.max(MIN_HOLD_MILLIS, requestedMillis / 2);
+    }
+
     // Mark a spot as booked by user and save car details
     public void markAsUserBooked(String spotId, String userId, String carPlate, String duration) {
         userBookings.get(userId).add(spotId);
@@ -188,93 +328,661 @@ public class ParkingLotManager {
 
     // Mark a spot as unbooked after cancellation or expiry
     public void markAsUserUnbooked(String spotId, String userId) {
-        userBookings.getOrDefault(userId, Set.of()).remove(spotId);
+        Set<String> bookings = userBookings.get(userId);
+        if (bookings != null) bookings.remove(spotId);
+        driveUpBookings.remove(userId, spotId);
         Map<String, String> details = userBookingDetails.get(userId);
         if (details != null) details.remove(spotId);
     }
 
+    // Number of spots currently held by a user
+    public int getUserBookingCount(String userId) {
+        return userBookings.getOrDefault(userId, Set.of()).size();
+    }
+
     // Return all booking details of a user
     public Map<String, String> getUserBookings(String userId) {
         return userBookingDetails.getOrDefault(userId, Collections.emptyMap());
     }
 
+    // Scheduling class name of a user's role, REGULAR for unknown users
+    String roleOf(String userId) {
+        return BookingScheduler.className(BookingScheduler.classFor(userProfiles.get(userId), false));
+    }
+
     // Check if a spot is currently booked by a user
     public boolean isUserBooked(String spotId) {
         return userBookings.values().stream().anyMatch(set -> set.contains(spotId));
     }
 
-    // Submit a booking request to the queue
+    // Submit a booking request to the queue, rejecting up front what cannot succeed or would overload it
     public CompletableFuture<Boolean> bookSpot(String spotId, int hours, String label, boolean isPriority, String userId){
         CompletableFuture<Boolean> future = new CompletableFuture<>();
-        bookingQueue.offer(new ParkingRequest(spotId, hours, label, isPriority, future, userId));
+        submitBooking(spotId, hours, label, isPriority, userId, future, null, null);
         return future;
     }
 
+    // Idempotent bookSpot: a retry of the same booking (user, spot and client request ID) gets the original result
+    // instead of a second booking; a null request ID books as usual. Only terminal outcomes are kept: a request
+    // turned away by the rate limit or a full queue is forgotten, so its retry is tried again.
+    public CompletableFuture<Boolean> bookSpot(String spotId, int hours, String label, boolean isPriority, String userId,
+                                               String requestId) {
+        if (requestId == null) return bookSpot(spotId, hours, label, isPriority, userId);
+        String requestKey = requestKey("book", userId, spotId, requestId);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> original = requestResults.putIfAbsent(requestKey, future);
+        if (original != null) return original;
+        submitBooking(spotId, hours, label, isPriority, userId, future, null, requestKey);
+        return future;
+    }
+
+    // Callback variant of bookSpot for hot paths: no future, and the request object is pooled
+    public void bookSpot(String spotId, int hours, String label, boolean isPriority, String userId, BookingCallback callback) {
+        submitBooking(spotId, hours, label, isPriority, userId, null, callback, null);
+    }
+
+    private void submitBooking(String spotId, int hours, String label, boolean isPriority, String userId,
+                               CompletableFuture<Boolean> future, BookingCallback callback, String requestKey) {
+        // Spot already taken (or held by someone else): fail now instead of after queueing
+        ParkingSpot spot = spotFor(spotId);
+        if (spot == null || spot.isBooked() || spot.isSoftLockedByAnotherUser(userId) || expiryManager.isPending(spotId)) {
+            rejectedBookings.incrementAndGet();
+            ParkingRequest.complete(spotId, future, callback, false);
+            return;
+        }
+
+        // Over the user's rate, or queue full with nothing of a lower class to displace: turned away for now
+        UserProfile profile = userProfiles.get(userId);
+        int cls = BookingScheduler.classFor(profile, isPriority);
+        if (!admission.tryAcquireRate(userId, profile) || !admission.tryReserveSlot() && !shedLowerClassRequest(cls)) {
+            rejectedBookings.incrementAndGet();
+            forgetRequest(requestKey, future);
+            ParkingRequest.complete(spotId, future, callback, false);
+            return;
+        }
+
+        ParkingRequest request = obtainRequest().forSpot(spotId, hours, label, isPriority, userId, future, callback);
+        request.requestKey = requestKey;
+        enqueue(request, cls);
+    }
+
+    // Deduplication key of a client request: the operation, who asked, for which spot, and the client's request ID
+    private String requestKey(String operation, String userId, String spotId, String requestId) {
+        return lotId + "/" + operation + "/" + userId + "/" + spotId + "/" + requestId;
+    }
+
+    // Drop a request's cached result when it did not reach a terminal outcome
+    private void forgetRequest(String requestKey, CompletableFuture<Boolean> future) {
+        if (requestKey != null) requestResults.remove(requestKey, future);
+    }
+
+    // Queue an admitted request in its scheduling class and wake the booking drain
+    private void enqueue(ParkingRequest request, int cls) {
+        request.schedulingClass = cls;
+        request.enqueuedNanos = ParkingEvents.queueClock();
+        ParkingEvents.bookingEnqueued(lotId, request.spotId, request.spotIds == null ? 1 : request.spotIds.length, cls);
+        bookingQueue.offer(request, cls);
+        bookingDrain.signal();
+    }
+
+    // Take a request from the pool, or allocate one when the pool is empty
+    private ParkingRequest obtainRequest() {
+        ParkingRequest request = REQUEST_POOL.poll();
+        return request != null ? request : new ParkingRequest();
+    }
+
+    // Return a completed request to the pool; dropped if the pool is full
+    private void recycle(ParkingRequest request) {
+        request.clear();
+        REQUEST_POOL.offer(request);
+    }
+
+    // Complete a rejected booking immediately
+    private CompletableFuture<Boolean> reject() {
+        rejectedBookings.incrementAndGet();
+        return CompletableFuture.completedFuture(false);
+    }
+
+    // Remove the newest queued request of a lower class, handing its queue place to the caller
+    private boolean shedLowerClassRequest(int cls) {
+        ParkingRequest shed = bookingQueue.removeNewestBelow(cls);
+        if (shed == null) return false;
+        shedBookings.incrementAndGet();
+        forgetRequest(shed.requestKey, shed.future);
+        shed.complete(false);
+        recycle(shed);
+        return true;
+    }
+
     // Process a booking request from the queue
     private void processBooking(ParkingRequest request) {
+        ParkingEvents.BookingCompleted event = new ParkingEvents.BookingCompleted();
+        event.begin();
+        String outcome = "failed";
         try {
             bookingSemaphore.acquire(); 
             concurrentBookings.incrementAndGet();
 
-            ParkingSpot spot = parkingSpots.get(request.spotId);
-            long millis = "30 minutes".equals(request.label) ? 30 * 60 * 1000L : request.hours * 60L * 60 * 1000L;
-            boolean success = spot != null && spot.book(millis, request.userId);
+            boolean halfHour = "30 minutes".equals(request.label);
+            long millis = halfHour ? 30 * 60 * 1000L : request.hours * 60L * 60 * 1000L;
+            if (request.spotIds != null) {
+                if (processBookingTransaction(request, millis)) outcome = "booked";
+                return;
+            }
+
+            int index = getSpotIndex(request.spotId);
+            boolean success = index >= 0
+                && tryBookSpotUntil(request.userId, System.currentTimeMillis() + millis, request.spotId, true);
  
             if (success) {
                 bookingsProcessed.incrementAndGet();
+                forecaster.recordArrival(request.spotId, System.currentTimeMillis());
+                outcome = "system".equals(request.userId) ? "reserved" : "booked";
                 if (!"system".equals(request.userId)) {
-                    enqueueUpdate(request.spotId, "booked");
-                    String readable = "1 hour";
-                    if ("30 minutes".equals(request.label)) {
-                        readable = "30 minutes";
-                    } else if (request.hours > 1) {
-                        readable = request.hours + " hours";
-                    }
-                    enqueueUserMessage("Slot " + request.spotId + " booked for " + readable + ".");
+                    enqueueUpdate(request.spotId, SpotStatus.BOOKED);
+                    enqueueUserMessage(request.userId, MESSAGES.booked(index, request.hours, halfHour));
                 } else {
-                    enqueueUpdate(request.spotId, "reserved");
-                    enqueueUserMessage("Slot " + request.spotId + " reserved.");
+                    enqueueUpdate(request.spotId, SpotStatus.RESERVED);
+                    enqueueUserMessage(null, MESSAGES.reserved(index));
                 }
             } else {
                 failedBookings.incrementAndGet();
-                enqueueUpdate(request.spotId, "available");
-                enqueueUserMessage("Booking failed for spot " + request.spotId);
+                enqueueUpdate(request.spotId, SpotStatus.AVAILABLE);
+                enqueueUserMessage(recipient(request.userId),
+                    index >= 0 ? MESSAGES.failed(index) : "Booking failed for spot " + request.spotId);
             }
-            request.future.complete(success);
+            request.complete(success);
         } catch (InterruptedException e) {
-            request.future.completeExceptionally(e);
+            outcome = "interrupted";
+            forgetRequest(request.requestKey, request.future);
+            request.fail(e);
         } finally {
             concurrentBookings.decrementAndGet();
             bookingSemaphore.release();
+            event.end();
+            if (event.shouldCommit()) {
+                event.lotId = lotId;
+                event.spotId = request.spotId;
+                event.spots = request.spotIds == null ? 1 : request.spotIds.length;
+                event.userRole = BookingScheduler.className(request.schedulingClass);
+                event.queueWait = ParkingEvents.waitSince(request.enqueuedNanos);
+                event.outcome = outcome;
+                event.commit();
+            }
+            recycle(request);
+        }
+    }
+
+    // Submit an all-or-nothing booking of several spots for one user (e.g. a corporate fleet)
+    public CompletableFuture<Boolean> bookSpots(String userId, int hours, String label, String... spotIds) {
+        if (spotIds.length == 0) return CompletableFuture.completedFuture(false);
+        for (String spotId : spotIds) {
+            ParkingSpot spot = spotFor(spotId);
+            if (spot == null || spot.isBooked() || spot.isSoftLockedByAnotherUser(userId)) return reject();
+        }
+
+        UserProfile profile = userProfiles.get(userId);
+        if (!admission.tryAcquireRate(userId, profile)) return reject();
+        int cls = BookingScheduler.classFor(profile, false);
+        if (!admission.tryReserveSlot() && !shedLowerClassRequest(cls)) return reject();
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        enqueue(obtainRequest().forSpots(spotIds, hours, label, userId, future), cls);
+        return future;
+    }
+
+    // Run a queued multi-spot transaction and report the outcome
+    private boolean processBookingTransaction(ParkingRequest request, long millis) {
+        boolean success = tryBookSpotsNow(request.userId, millis, request.spotIds);
+        if (success) {
+            bookingsProcessed.incrementAndGet();
+            long now = System.currentTimeMillis();
+            for (String spotId : request.spotIds) {
+                forecaster.recordArrival(spotId, now);
+                enqueueUpdate(spotId, "booked");
+                if (userProfiles.containsKey(request.userId)) {
+                    userBookingDetails
+                        .computeIfAbsent(request.userId, k -> new ConcurrentHashMap<>())
+                        .put(spotId, "Fleet booking, Duration: " + request.label);
+                }
+            }
+            enqueueUserMessage(request.userId, "Fleet booking confirmed for " + String.join(", ", request.spotIds) + ".");
+        } else {
+            failedBookings.incrementAndGet();
+            enqueueUserMessage(request.userId, "Fleet booking failed for " + String.join(", ", request.spotIds) + "; no spots were booked.");
+        }
+        request.complete(success);
+        return success;
+    }
+
+    // Claim all spots or none. Claims follow SPOT_ORDER so competing transactions meet on the
+    // same first spot and one of them wins, and the role limit is checked under the user's lock
+    // together with the claim so racing requests cannot exceed it. The limit tightens for zones predicted to fill up.
+    boolean tryBookSpotsNow(String userId, long millis, String... spotIds) {
+        if (userId == null) return false;
+        String[] ordered = Arrays.stream(spotIds).distinct().sorted(SPOT_ORDER).toArray(String[]::new);
+        UserProfile profile = userProfiles.get(userId);
+        Set<String> owned = profile == null ? null : userBookings.get(userId);
+        if (owned == null) return claimInOrder(userId, millis, ordered);
+
+        int limit = bookingLimit(profile, ordered);
+        synchronized (owned) {
+            if (owned.size() + ordered.length > limit) return false;
+            if (!claimInOrder(userId, millis, ordered)) return false;
+            owned.addAll(Arrays.asList(ordered));
+            return true;
+        }
+    }
+
+    // Single-spot form of tryBookSpotsNow without the ordering and varargs copies; the booking ends at endMillis.
+    // New bookings get the zone's demand-adjusted limit; activated reservations and handed-over bookings were
+    // accepted earlier and only keep to the role's base limit.
+    private boolean tryBookSpotUntil(String userId, long endMillis, String spotId, boolean newBooking) {
+        if (userId == null) return false;
+        UserProfile profile = userProfiles.get(userId);
+        Set<String> owned = profile == null ? null : userBookings.get(userId);
+        if (owned == null) return claimSpot(userId, endMillis, spotId);
+
+        int limit = newBooking ? bookingLimit(profile, spotId) : profile.getMaxBookingsAllowed();
+        synchronized (owned) {
+            if (owned.size() >= limit) return false;
+            if (!claimSpot(userId, endMillis, spotId)) return false;
+            owned.add(spotId);
+            return true;
+        }
+    }
+
+    // Booking limit of a user for the given spots: the tightest of their zones' limits
+    private int bookingLimit(UserProfile profile, String... spotIds) {
+        int limit = profile.getMaxBookingsAllowed();
+        for (String spotId : spotIds) {
+            if (isHighDemand(spotId.substring(0, 1))) return Math.min(limit, profile.getMaxBookingsAllowed(true));
+        }
+        return limit;
+    }
+
+    // Book spots one by one in the given order, rolling back earlier claims on the first failure
+    private boolean claimInOrder(String userId, long millis, String[] ordered) {
+        long endMillis = System.currentTimeMillis() + millis;
+        for (int i = 0; i < ordered.length; i++) {
+            if (!claimSpot(userId, endMillis, ordered[i])) {
+                for (int j = i - 1; j >= 0; j--) spotFor(ordered[j]).cancelBooking();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Book one spot until endMillis unless it is held, awaiting expiry release, or reserved for part of that time.
+    // The reservation check and the booking happen under the spot's reservation lock so neither can slip in between.
+    // Expiry releases a spot under the same lock (spotLock), so the pending check cannot fall between the release
+    // and the spot turning expiry-pending.
+    private boolean claimSpot(String userId, long endMillis, String spotId) {
+        int index = getSpotIndex(spotId);
+        if (index < 0) return false;
+        ParkingSpot spot = getSpotAt(index);
+        if (spot.isSoftLockedByAnotherUser(userId)) return false;
+        synchronized (reservations.lockFor(index)) {
+            if (expiryManager.isPending(spotId)) return false;
+            long now = System.currentTimeMillis();
+            return endMillis > now && reservations.isFree(index, now, endMillis) && spot.book(now, endMillis - now, userId);
+        }
+    }
+
+    // Reserve a spot for a future window [startMillis, endMillis); returns the reservation ID, or -1 when the
+    // window is invalid, overlaps another reservation, or the spot's current booking runs into it
+    public long reserveSpot(String spotId, String userId, long startMillis, long endMillis) {
+        int index = getSpotIndex(spotId);
+        if (index < 0 || userId == null || endMillis <= startMillis || startMillis < System.currentTimeMillis()) {
+            return -1;
+        }
+        ParkingSpot spot = getSpotAt(index);
+        long id = reservationIds.incrementAndGet();
+        synchronized (reservations.lockFor(index)) {
+            if (spot.getExpirationTime() > startMillis) return -1;
+            if (!reservations.add(index, id, startMillis, endMillis, userId)) return -1;
+            bookingTimers.scheduleReservation(index, reservations.nextStart(index));
+        }
+        replicate(index); // Outside the spot lock: the log reads the reservations under its own lock
+        return id;
+    }
+
+    // Extend a running booking in place: the spot stays booked and only its warning and expiry move, so there is
+    // no cancel-and-rebook gap and no status update. Fails if the booking is not the user's, has already
+    // expired, or the extra time would run into an upcoming reservation.
+    public boolean extendBooking(String spotId, String userId, long extraMillis) {
+        int index = getSpotIndex(spotId);
+        if (index < 0 || userId == null || extraMillis <= 0) return false;
+        ParkingSpot spot = getSpotAt(index);
+        synchronized (reservations.lockFor(index)) {
+            long end = spot.getExpirationTime();
+            if (end == 0 || !userId.equals(spot.getBookedByUserId())) return false;
+            if (!reservations.isFree(index, end, end + extraMillis)) return false;
+            if (!spot.extendTo(end, end + extraMillis)) return false;
+        }
+        replicate(index); // Same status, so nothing passes the update buffer to ship the new end
+        return true;
+    }
+
+    // End of a spot's running booking in epoch millis, 0 if not booked
+    public long getBookingExpiry(String spotId) {
+        ParkingSpot spot = spotFor(spotId);
+        return spot == null ? 0 : spot.getExpirationTime();
+    }
+
+    // Cancel a user's reservation that has not started yet; false if there is none or it is another user's.
+    // IDs are sequential, so the owner check is what keeps users from cancelling each other's reservations.
+    public boolean cancelReservation(String spotId, long reservationId, String userId) {
+        int index = getSpotIndex(spotId);
+        if (index < 0 || userId == null) return false;
+        synchronized (reservations.lockFor(index)) {
+            if (!reservations.remove(index, reservationId, userId)) return false;
+            bookingTimers.scheduleReservation(index, reservations.nextStart(index));
+        }
+        replicate(index);
+        return true;
+    }
+
+    // Any spot in the zone ("*" or null for the whole lot) free for all of [startMillis, endMillis), or null
+    public String findFreeSpot(String zone, long startMillis, long endMillis) {
+        int[] range = zone == null || "*".equals(zone) ? new int[]{0, getSpotCount()} : getZoneRange(zone);
+        int index = reservations.findFree(range[0], range[1], startMillis, endMillis,
+            i -> getSpotIfCreated(i) == null || getSpotIfCreated(i).getExpirationTime() <= startMillis);
+        return index < 0 ? null : SPOT_IDS.get(index);
+    }
+
+    // Number of reservations of a spot that have not started yet
+    public int getReservationCount(String spotId) {
+        int index = getSpotIndex(spotId);
+        return index < 0 ? 0 : reservations.size(index);
+    }
+
+    // Called by the shared timer when a spot's next reservation starts: turn due reservations into bookings.
+    // A spot still held by an overstaying vehicle defers the reservation, retried every second until its window ends;
+    // a spot soft-locked by another user defers it until the hold ends. Anything else fails it with a notification.
+    void activateReservations(int index) {
+        String spotId = SPOT_IDS.get(index);
+        ParkingSpot spot = getSpotAt(index);
+        long now = System.currentTimeMillis();
+        long retryAt = 0;
+        ReservationIndex.Reservation due;
+        while ((due = reservations.pollDue(index, now)) != null) {
+            if (due.end <= now) {
+                deferredReservations.remove(due.id); // Window over before the spot came free
+                continue;
+            }
+            if (tryBookSpotUntil(due.owner, due.end, spotId, false)) {
+                deferredReservations.remove(due.id);
+                bookingsProcessed.incrementAndGet();
+                forecaster.recordArrival(spotId, now);
+                if ("system".equals(due.owner)) {
+                    enqueueUpdate(spotId, SpotStatus.RESERVED);
+                } else {
+                    enqueueUpdate(spotId, SpotStatus.BOOKED);
+                    if (userProfiles.containsKey(due.owner)) {
+                        userBookingDetails
+                            .computeIfAbsent(due.owner, k -> new ConcurrentHashMap<>())
+                            .put(spotId, "Reservation, Duration: " + (due.end - due.start) / 60000 + " minutes");
+                    }
+                    notifyUser(due.owner, "Your reservation for spot " + spotId + " has started.");
+                }
+                continue;
+            }
+            long holdEnd = spot.isSoftLockedByAnotherUser(due.owner) ? spot.getSoftLockExpiry() : 0;
+            if ((holdEnd > now || expiryManager.isPending(spotId))
+                    && reservations.add(index, due.id, due.start, due.end, due.owner)) {
+                if (deferredReservations.add(due.id)) {
+                    notifyUser(due.owner, holdEnd > now
+                        ? "Spot " + spotId + " is being booked by another user; your reservation starts if their hold lapses."
+                        : "Spot " + spotId + " is still occupied; your reservation starts once it is released.");
+                }
+                retryAt = holdEnd > now ? holdEnd : now + 1000;
+                break;
+            }
+            deferredReservations.remove(due.id);
+            failedBookings.incrementAndGet();
+            notifyUser(due.owner, "Your reservation for spot " + spotId + " could not start: the spot is not free.");
+        }
+        synchronized (reservations.lockFor(index)) {
+            long next = reservations.nextStart(index);
+            bookingTimers.scheduleReservation(index, retryAt != 0 && next <= now ? retryAt : next);
+        }
+        replicate(index); // Reservations left the index, whether or not they turned into bookings
+    }
+
+    // Gate matching: a spot currently booked by this user, or null. Users without a profile are looked up among
+    // the gate's own claims; an entry whose booking has since ended elsewhere is dropped.
+    public String findBookedSpot(String userId) {
+        Set<String> owned = userBookings.get(userId);
+        if (owned != null) {
+            synchronized (owned) {
+                for (String spotId : owned) return spotId;
+            }
+            return null;
+        }
+        String spotId = driveUpBookings.get(userId);
+        if (spotId == null) return null;
+        if (userId.equals(spotFor(spotId).getBookedByUserId())) return spotId;
+        driveUpBookings.remove(userId, spotId);
+        return null;
+    }
+
+    // Gate auto-assignment: claim the first free spot in lot order for a drive-up vehicle, null when full.
+    // Counted, forecast and published like a queued booking, so analytics and the standby see gate traffic.
+    String claimFreeSpot(String userId, long millis) {
+        for (String spotId : SPOT_IDS) {
+            ParkingSpot spot = spotFor(spotId);
+            if (spot.isBooked() || spot.isSoftLocked() || expiryManager.isPending(spotId)) continue;
+            if (!tryBookSpotsNow(userId, millis, spotId)) continue;
+            if (!userProfiles.containsKey(userId)) driveUpBookings.put(userId, spotId);
+            bookingsProcessed.incrementAndGet();
+            forecaster.recordArrival(spotId, System.currentTimeMillis());
+            enqueueUpdate(spotId, SpotStatus.BOOKED);
+            return spotId;
+        }
+        return null;
+    }
+
+    // Gate exit: release the vehicle's spot if it still holds it, and publish the spot as free
+    boolean releaseGateSpot(String userId, String spotId) {
+        int index = getSpotIndex(spotId);
+        if (index < 0 || userId == null) return false;
+        ParkingSpot spot = getSpotAt(index);
+        synchronized (reservations.lockFor(index)) {
+            if (!userId.equals(spot.getBookedByUserId()) || !spot.cancelBooking()) return false;
+            markAsUserUnbooked(spotId, userId);
+        }
+        enqueueUpdate(spotId, SpotStatus.AVAILABLE);
+        return true;
+    }
+
+    // Active bookings of this lot, e.g. to hand the lot over to another node
+    public List<BookingRecord> getActiveBookings() {
+        List<BookingRecord> active = new ArrayList<>();
+        for (int i = 0; i < SPOT_IDS.size(); i++) {
+            ParkingSpot spot = getSpotIfCreated(i);
+            if (spot == null) continue;
+            String userId = spot.getBookedByUserId();
+            long end = spot.getExpirationTime();
+            if (userId != null && end > 0) active.add(new BookingRecord(SPOT_IDS.get(i), userId, end));
+        }
+        return active;
+    }
+
+    // Re-create a booking handed over from another node with its original end time; false if the spot is taken
+    public boolean restoreBooking(BookingRecord booking) {
+        if (!tryBookSpotUntil(booking.userId, booking.endMillis, booking.spotId, false)) return false;
+        enqueueUpdate(booking.spotId, "system".equals(booking.userId) ? SpotStatus.RESERVED : SpotStatus.BOOKED);
+        return true;
+    }
+
+    // Drop bookings this lot no longer serves (handed over to another node)
+    public void releaseBookings(List<BookingRecord> bookings) {
+        for (BookingRecord booking : bookings) {
+            releaseSpotsNow(booking.userId, booking.spotId);
+            enqueueUpdate(booking.spotId, SpotStatus.AVAILABLE);
+        }
+    }
+
+    // Everything another node needs to carry the lot on; take it once the lot is quiet (see awaitQuiet)
+    public LotSnapshot snapshot() {
+        LotSnapshot snapshot = new LotSnapshot();
+        snapshot.bookings.addAll(getActiveBookings());
+        for (int i = 0; i < SPOT_IDS.size(); i++) {
+            ParkingSpot spot = getSpotIfCreated(i);
+            String spotId = SPOT_IDS.get(i);
+            String holder = spot == null ? null : spot.getSoftLockHolder();
+            if (holder != null && !spot.isBooked()) {
+                snapshot.softLocks.add(new BookingRecord(spotId, holder, spot.getSoftLockExpiry()));
+            }
+            snapshot.reservations.addAll(getReservations(i));
+        }
+        snapshot.expiries.addAll(expiryManager.snapshot());
+        requestResults.forEachLive(lotId + "/", (key, future, createdAt) -> {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                snapshot.requestResults.add(new LotSnapshot.RequestResult(key, future.join(), createdAt));
+            }
+        });
+        return snapshot;
+    }
+
+    // Re-create a snapshot taken on another node; returns the number of bookings restored
+    public int restore(LotSnapshot snapshot) {
+        int restored = 0;
+        for (BookingRecord booking : snapshot.bookings) {
+            if (restoreBooking(booking)) restored++;
+        }
+        long now = System.currentTimeMillis();
+        for (BookingRecord hold : snapshot.softLocks) {
+            ParkingSpot spot = spotFor(hold.spotId);
+            if (spot != null && hold.endMillis > now && spot.softLock(hold.userId, hold.endMillis - now)) {
+                enqueueUpdate(hold.spotId, SpotStatus.SOFT_LOCKED);
+            }
+        }
+        for (LotSnapshot.Reservation reservation : snapshot.reservations) restoreReservation(reservation);
+        for (BookingRecord expiry : snapshot.expiries) {
+            if (getSpotIndex(expiry.spotId) >= 0) expiryManager.restore(expiry.spotId, expiry.userId, expiry.endMillis);
+        }
+        for (LotSnapshot.RequestResult result : snapshot.requestResults) {
+            requestResults.restore(result.key, CompletableFuture.completedFuture(result.result), result.createdMillis);
+        }
+        return restored;
+    }
+
+    // Drop the state of a snapshot this lot handed over to another node, without notifying anyone
+    public void release(LotSnapshot snapshot) {
+        releaseBookings(snapshot.bookings);
+        for (BookingRecord hold : snapshot.softLocks) {
+            ParkingSpot spot = spotFor(hold.spotId);
+            if (spot != null) spot.releaseSoftLock(hold.userId);
+            enqueueUpdate(hold.spotId, SpotStatus.AVAILABLE);
+        }
+        for (LotSnapshot.Reservation reservation : snapshot.reservations) {
+            cancelReservation(reservation.spotId, reservation.id, reservation.owner);
+        }
+        for (BookingRecord expiry : snapshot.expiries) {
+            expiryManager.discard(expiry.spotId);
+            enqueueUpdate(expiry.spotId, SpotStatus.AVAILABLE);
+        }
+    }
+
+    // Put back a reservation handed over from another node under its original ID
+    public boolean restoreReservation(LotSnapshot.Reservation reservation) {
+        int index = getSpotIndex(reservation.spotId);
+        if (index < 0 || reservation.endMillis <= System.currentTimeMillis()) return false;
+        reservationIds.accumulateAndGet(reservation.id, Math::max); // IDs issued here from now on stay unique
+        synchronized (reservations.lockFor(index)) {
+            if (!reservations.add(index, reservation.id, reservation.startMillis, reservation.endMillis, reservation.owner)) {
+                return false;
+            }
+            bookingTimers.scheduleReservation(index, reservations.nextStart(index));
+        }
+        replicate(index);
+        return true;
+    }
+
+    // Wait until no booking is queued or being processed and buffered status updates are applied; false on timeout.
+    // Callers stop new requests first, e.g. ClusterNode fences the lot before exporting it.
+    public boolean awaitQuiet(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (bookingQueue.size() > 0 || concurrentBookings.get() > 0 || hasQueuedUpdates()) {
+            if (System.currentTimeMillis() >= deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // Synchronously release spots held by a user (used by fleet tooling and benchmarks)
+    void releaseSpotsNow(String userId, String... spotIds) {
+        for (String spotId : spotIds) {
+            ParkingSpot spot = spotFor(spotId);
+            if (spot != null) spot.cancelBooking();
+            markAsUserUnbooked(spotId, userId);
         }
     }
 
     // Cancel a booking and update UI
     public CompletableFuture<Boolean> cancelBooking(String spotId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
+        ParkingSpot spot = spotFor(spotId);
         if (spot == null) return CompletableFuture.completedFuture(false);
 
         return CompletableFuture.supplyAsync(() -> {
             boolean result = spot.cancelBooking();
-            if (result) {
-                String status = getSpotStatus(spotId);
-                enqueueUpdate(spotId, "available");
-                if (status.equals("reserved") || status.equals("reserved_occupied") ){
-                    enqueueUserMessage("Slot " + spotId + " is now available.");
-                } else {
-                    enqueueUserMessage("Booking for " + spotId + " cancelled.");        
-                }
-            }
+            if (result) announceCancel(spotId);
             return result;
         }, notificationExecutor); 
     }
 
+    // Cancel a user's own booking. The holder check and the cancel happen together under the spot lock, so a
+    // booking someone else makes in between is never cancelled; the spot also leaves the user's bookings.
+    public CompletableFuture<Boolean> cancelBooking(String spotId, String userId) {
+        int index = getSpotIndex(spotId);
+        if (index < 0 || userId == null) return CompletableFuture.completedFuture(false);
+        ParkingSpot spot = getSpotAt(index);
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (reservations.lockFor(index)) {
+                if (!userId.equals(spot.getBookedByUserId()) || !spot.cancelBooking()) return false;
+                markAsUserUnbooked(spotId, userId);
+            }
+            announceCancel(spotId);
+            return true;
+        }, notificationExecutor);
+    }
+
+    // Idempotent cancel of the user's own booking: a retry of the same cancel (user, spot and client request ID)
+    // gets the original result, so a repeated cancel does not report failure for a booking it already cancelled
+    public CompletableFuture<Boolean> cancelBooking(String spotId, String userId, String requestId) {
+        if (requestId == null) return cancelBooking(spotId, userId);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> original = requestResults.putIfAbsent(requestKey("cancel", userId, spotId, requestId), future);
+        if (original != null) return original;
+        cancelBooking(spotId, userId).whenComplete((result, error) -> {
+            if (error != null) future.completeExceptionally(error);
+            else future.complete(result);
+        });
+        return future;
+    }
+
+    // Status update and broadcast after a cancelled booking
+    private void announceCancel(String spotId) {
+        String status = getSpotStatus(spotId);
+        enqueueUpdate(spotId, "available");
+        if (status.equals("reserved") || status.equals("reserved_occupied") ){
+            enqueueUserMessage(null, "Slot " + spotId + " is now available.");
+        } else {
+            enqueueUserMessage(null, "Booking for " + spotId + " cancelled.");
+        }
+    }
+
     // ==== Utility and Helper Methods ====
     public String[] getAllBookedSpots() {
-        return parkingSpots.entrySet().stream()
-                .filter(entry -> entry.getValue().isBooked())
-                .map(Map.Entry::getKey)
-                .toArray(String[]::new);
+        SpotQuery query = query().booked(true);
+        return query.ids(query.filter());
+    }
+
+    // Start a lazy whole-lot query over spot indexes
+    public SpotQuery query() {
+        return new SpotQuery(this);
     }
     
     public Set<String> getAllUserIds() {
@@ -282,60 +990,82 @@ public class ParkingLotManager {
     }
     
     public String[] getSpotIds() {
-        return parkingSpots.keySet().toArray(new String[0]);
+        return SPOT_IDS.toArray(new String[0]);
+    }
+
+    // Holder of a spot's current booking, null when it is free
+    public String getBookedBy(String spotId) {
+        ParkingSpot spot = spotFor(spotId);
+        return spot == null ? null : spot.getBookedByUserId();
     }
 
     public boolean isBooked(String spotId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
+        ParkingSpot spot = spotFor(spotId);
         return spot != null && spot.isBooked();
     }
 
+    // Register a GUI window as its user's session and let it repaint every slot transition
     public void registerGUI(GUI gui) {
-        this.gui = gui;
+        registerSession(gui);
+        SpotEventBus.Subscription previous = guiSubscriptions.put(gui.getUserId(),
+            eventBus.subscribeLot(e -> gui.updateSlotStatus(e.getSpotId(), e.getStatus())));
+        if (previous != null) previous.close();
+    }
+
+    // Register a user session (replaces an earlier session of the same user)
+    public void registerSession(UserSession session) {
+        sessions.put(session.getUserId(), session);
+        notifications.registerSink(session.getUserId(), session::deliverNotifications);
+    }
+
+    // Remove a user session, e.g. when an API client disconnects or a window closes
+    public void unregisterSession(String userId) {
+        sessions.remove(userId);
+        notifications.unregisterSink(userId);
+        SpotEventBus.Subscription subscription = guiSubscriptions.remove(userId);
+        if (subscription != null) subscription.close();
     }
 
+    // Session of a user, or null if the user is not connected
+    public UserSession getSession(String userId) {
+        return userId == null ? null : sessions.get(userId);
+    }
+
+    // Notify every connected user
     public void notifyUser(String message) {
-        enqueueUserMessage(message);
-        showPopupMessage(message); 
+        notifyUser(null, message);
+    }
+
+    // Notify one user (system or null userId means everyone)
+    public void notifyUser(String userId, String message) {
+        enqueueUserMessage(recipient(userId), message);
+        showPopupMessage(userId, message);
+    }
+
+    // Route system bookings to everyone, user bookings to their owner
+    private static String recipient(String userId) {
+        return userId == null || "system".equals(userId) ? null : userId;
     }
     
-    // Show alert popups for booking expiry or warnings
-    private void showPopupMessage(String message) {
-        if (gui != null && (message.contains("Warning:") || message.contains("has expired"))) {
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    JDialog dialog = new JDialog(gui, "Alert", true);
-                    dialog.setSize(350, 150);
-                    dialog.setLocationRelativeTo(gui);
-
-                    JLabel label = new JLabel("<html><center>" + message + "</center></html>", SwingConstants.CENTER);
-                    label.setFont(new Font("Arial", Font.BOLD, 14));
-                    dialog.add(label, BorderLayout.CENTER);
-
-                    JButton okButton = new JButton("OK");
-                    okButton.addActionListener(e -> dialog.dispose());
-                    JPanel buttonPanel = new JPanel();
-                    buttonPanel.add(okButton);
-                    dialog.add(buttonPanel, BorderLayout.SOUTH);
-
-                    dialog.setVisible(true);
-                } catch (Exception ex) {
-                    System.err.println("⚠️ Failed to show popup message: " + ex.getMessage());
-                    ex.printStackTrace();
-                }
-            });
+    // Show alert popups for booking expiry or warnings, only in the affected user's session
+    private void showPopupMessage(String userId, String message) {
+        UserSession session = getSession(userId);
+        if (session != null && (message.contains("Warning:") || message.contains("has expired"))) {
+            session.showAlert(message);
         }
     }
 
     // Attempt soft lock by user
     public boolean trySoftLock(String spotId, String userId, long millis) {
-        ParkingSpot spot = parkingSpots.get(spotId);
+        ParkingSpot spot = spotFor(spotId);
         if (spot == null) return false;
 
         String status = getSpotStatus(spotId); // No userId — we check real-time view
         if (!"available".equals(status)) return false; // ❗ Prevent locking system-reserved
 
-        boolean locked = spot.softLock(userId, millis);
+        long hold = effectiveHoldMillis(spotId, millis);
+        boolean locked = spot.softLock(userId, hold);
+        ParkingEvents.softLockAcquire(this, spotId, userId, locked, hold);
         if (locked) {
             enqueueUpdate(spotId, "soft_locked");
         }
@@ -345,31 +1075,33 @@ public class ParkingLotManager {
     
     // Release a soft lock if the user currently holds it.
     public void releaseSoftLock(String spotId, String userId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
-        if (spot != null) spot.releaseSoftLock(userId);
+        ParkingSpot spot = spotFor(spotId);
+        if (spot == null) return;
+        spot.releaseSoftLock(userId);
+        replicate(getSpotIndex(spotId));
     }
     
     // Check if the spot is currently under any soft lock (regardless of user)
     public boolean isSoftLocked(String spotId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
+        ParkingSpot spot = spotFor(spotId);
         return spot != null && spot.isSoftLocked();
     }
 
     // Check if the current user holds the soft lock on the given spot
     public boolean isSoftLockedByUser(String spotId, String userId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
+        ParkingSpot spot = spotFor(spotId);
         return spot != null && spot.isSoftLockedBy(userId);
     }
 
     // Check if the spot is soft-locked by another user (not the current one)
     public boolean isSoftLockedByAnotherUser(String spotId, String userId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
+        ParkingSpot spot = spotFor(spotId);
         return spot != null && spot.isSoftLockedByAnotherUser(userId);
     }
 
-    // Register a status update listener for a specific spot
-    public void registerListener(String spotId, Consumer<String> listener) {
-        listeners.put(spotId, listener);
+    // Event bus for subscribing to spot, zone or lot-wide status transitions
+    public SpotEventBus getEventBus() {
+        return eventBus;
     }
 
     // Notify registered listeners that the status of a spot has changed
@@ -378,110 +1110,331 @@ public class ParkingLotManager {
     }
 
     // === Buffered Update System ===
+    // No time-based throttle: sensor chatter is debounced upstream, and dropping updates here lost real transitions
     private void enqueueUpdate(String spotId, String status) {
-        long now = System.currentTimeMillis();
-        long lastUpdate = lastUpdateTimes.getOrDefault(spotId, 0L);
+        Runnable task = updateTask(spotId, status);
+        BlockingQueue<Runnable> buffer = updateBuffer();
+        while (!buffer.offer(task)) applyQueuedUpdates(); // Full: help drain instead of blocking a shared worker
+        updateDrain.signal();
+    }
 
-        // Skip if update is too soon for this slot (less than 0.5 seconds)
-        if (now - lastUpdate < 500) {
-            System.out.println("Throttled UI update for " + spotId + " (" + status + ")");
-            return;
+    private boolean hasQueuedUpdates() {
+        BlockingQueue<Runnable> buffer = updateBuffer;
+        return buffer != null && !buffer.isEmpty();
+    }
+
+    // The update buffer and the update tasks are created by the lot's first update, so an idle lot holds neither
+    private BlockingQueue<Runnable> updateBuffer() {
+        BlockingQueue<Runnable> buffer = updateBuffer;
+        return buffer != null ? buffer : createUpdateState();
+    }
+
+    private synchronized BlockingQueue<Runnable> createUpdateState() {
+        if (updateBuffer == null) {
+            updateTasks = new AtomicReferenceArray<>(SPOT_IDS.size() * SpotStatus.count());
+            updateBuffer = new ArrayBlockingQueue<>(SPOT_IDS.size() * UPDATES_PER_SPOT); // No node per update
+        }
+        return updateBuffer;
+    }
+
+    // Reuse one task per spot and known status instead of a new closure per update
+    private Runnable updateTask(String spotId, String status) {
+        int index = getSpotIndex(spotId);
+        int code = SpotStatus.codeOf(status);
+        if (index < 0 || code < 0) return () -> applyUpdate(spotId, -1, status);
+
+        int slot = index * SpotStatus.count() + code;
+        AtomicReferenceArray<Runnable> tasks = updateTasks;
+        if (tasks == null) {
+            updateBuffer();
+            tasks = updateTasks;
         }
+        Runnable task = tasks.get(slot);
+        if (task == null) {
+            String name = SpotStatus.nameOf(code);
+            task = () -> applyUpdate(spotId, index, name);
+            tasks.set(slot, task); // Racing writers store equivalent tasks
+        }
+        return task;
+    }
 
-        // Update the timestamp
-        lastUpdateTimes.put(spotId, now);
-        
-        updateBuffer.offer(() -> {
-            cacheLock.lock();
-            try {
-                String current = spotStatusCache.get(spotId);
-                if (status.equals(current)) return; // skip duplicate
+    // Runs on the update drain: drop stale updates, dedup against the cache, then publish the transition.
+    // Updates are queued after the state change they report but built from what the caller saw, so one can arrive
+    // after the spot moved on (a losing booking's "available" behind the winner's "booked", a cancel's behind a
+    // rebooking). An update whose booked-ness contradicts the spot is skipped; the update of the latest change
+    // is queued after it and agrees.
+    private void applyUpdate(String spotId, int index, String status) {
+        if (index >= 0 && SpotStatus.isBookedStatus(SpotStatus.codeOf(status)) != getSpotAt(index).isBooked()) {
+            replicate(index);
+            return;
+        }
+        String current;
+        boolean changed;
+        cacheLock.lock();
+        try {
+            current = spotStatusCache.get(spotId);
+            changed = !status.equals(current); // Duplicates are not published
+            if (changed) {
                 spotStatusCache.put(spotId, status);
-            } finally {
-                cacheLock.unlock();
+                if (index >= 0) statusCodes.set(index, SpotStatus.codeOf(status));
             }
+        } finally {
+            cacheLock.unlock();
+        }
+        replicate(index); // Even for a repeated status: the booking behind it may have changed
+        if (changed) eventBus.publish(new SpotStatusEvent(spotId, current, status, System.currentTimeMillis()));
+    }
 
-            Consumer<String> listener = listeners.get(spotId);
-            if (listener != null) listener.accept(status);
+    // Ship a spot's current state to the standby when the engine replicates. Every booking, lock, reservation or
+    // status change (expiries included, through time_exceeded and the release after it) ends in a call here, and the log reads the state at that point, so the last entry of a spot is up to date.
+    private void replicate(int index) {
+        ReplicationLog log = engine.getReplicationLog();
+        if (log != null && index >= 0) log.record(this, index);
+    }
 
-            if (gui != null) gui.updateSlotStatus(spotId, status);
-        });
+    // A spot's reservations that have not started, in start order (read by the replication log)
+    List<LotSnapshot.Reservation> getReservations(int index) {
+        if (reservations.size(index) == 0) return Collections.emptyList();
+        String spotId = SPOT_IDS.get(index);
+        List<LotSnapshot.Reservation> list = new ArrayList<>();
+        for (ReservationIndex.Reservation reservation : reservations.list(index)) {
+            list.add(new LotSnapshot.Reservation(spotId, reservation.id, reservation.start, reservation.end,
+                reservation.owner));
+        }
+        return list;
     }
 
-    private void enqueueUserMessage(String message) {
-        updateBuffer.offer(() -> {
-            if (gui != null) gui.displayNotification(message);
-        });
+    // A spot's expired booking awaiting release (end is the grace deadline), null if none
+    BookingRecord getPendingExpiry(int index) {
+        return expiryManager.pendingExpiry(SPOT_IDS.get(index));
     }
-    
-    // Force-close active booking dialogs in GUI when soft lock expires
-    public void forceCloseBookingDialogs() {
-        if (gui != null) {
-            gui.closeBookingDialogs(); 
+
+    // Status code last applied from the update buffer
+    int getStatusCode(int index) {
+        return statusCodes.get(index);
+    }
+
+    // Lock guarding a spot's reservations and claims; taken before the spot's own monitor
+    Object spotLock(int index) {
+        return reservations.lockFor(index);
+    }
+
+    // Shared deadline table used by every spot instead of a Timer per booking
+    BookingTimers getBookingTimers() {
+        return bookingTimers;
+    }
+
+    // Dense index of a spot for primitive per-spot state, -1 if unknown
+    public int getSpotIndex(String spotId) {
+        Integer index = SPOT_INDEX.get(spotId);
+        return index == null ? -1 : index;
+    }
+
+    public String getSpotId(int index) {
+        return SPOT_IDS.get(index);
+    }
+
+    public int getSpotCount() {
+        return SPOT_IDS.size();
+    }
+
+    // Index range [first, last + 1) of a zone's spots, empty for unknown zones
+    public int[] getZoneRange(String zone) {
+        int[] range = ZONE_RANGES.get(zone);
+        return range == null ? new int[]{0, 0} : range.clone();
+    }
+
+    // The spot at an index, created on first use: an untouched spot is free, so idle lots hold no spot objects
+    ParkingSpot getSpotAt(int index) {
+        ParkingSpot spot = spotsByIndex.get(index);
+        if (spot != null) return spot;
+        spotsByIndex.compareAndSet(index, null, new ParkingSpot(SPOT_IDS.get(index), index, this));
+        return spotsByIndex.get(index);
+    }
+
+    // The spot if anything has touched it yet, null for one that is still free and untouched; for scans of every spot
+    ParkingSpot getSpotIfCreated(int index) {
+        return spotsByIndex.get(index);
+    }
+
+    boolean isRegisteredUser(String userId) {
+        return userProfiles.containsKey(userId);
+    }
+
+    // Status as getSpotStatus(spotId) reports it, without the cache lock or a scan of every user's bookings
+    int effectiveStatusCode(int index, ParkingSpot spot, boolean userBooked) {
+        if (userBooked) return SpotStatus.BOOKED_CODE;
+        if (spot.isSoftLocked()) return SpotStatus.SOFT_LOCKED_CODE;
+        return statusCodes.get(index);
+    }
+
+    // Feed a batch of raw sensor readings; only debounced transitions reach the spot status
+    public int processSensorReadings(int[] spotIndexes, boolean[] occupied, long[] timestamps, int count) {
+        ParkingEvents.SensorBatch event = new ParkingEvents.SensorBatch();
+        event.begin();
+        int transitions = occupancy().processReadings(spotIndexes, occupied, timestamps, count, occupancySink);
+        event.end();
+        if (event.shouldCommit()) {
+            event.lotId = lotId;
+            event.readings = count;
+            event.transitions = transitions;
+            event.commit();
         }
+        return transitions;
     }
-    
-    // Prompt user to acknowledge expiration (time exceed)
-    public void promptUserToAcknowledgeExpiry(String spotId, String userId) {
-        enqueueUpdate(spotId, "time_exceeded");
 
-        SwingUtilities.invokeLater(() -> {
-            try {
-                JDialog dialog = new JDialog(gui, "Booking Expired", true);
-                dialog.setSize(350, 160);
-                dialog.setLocationRelativeTo(gui);
-
-                JLabel label = new JLabel("<html><center>Booking for spot " + spotId + " has expired.<br>Please acknowledge to release the spot.</center></html>", SwingConstants.CENTER);
-                label.setFont(new Font("Arial", Font.BOLD, 14));
-                dialog.add(label, BorderLayout.CENTER);
-
-                JButton okButton = new JButton("OK");
-                okButton.addActionListener(e -> {
-                    dialog.dispose();
-                    cleanupAfterExpiry(spotId, userId);
-                });
-
-                JPanel buttonPanel = new JPanel();
-                buttonPanel.add(okButton);
-                dialog.add(buttonPanel, BorderLayout.SOUTH);
-
-                dialog.setVisible(true);
-            } catch (Exception ex) {
-                System.err.println("⚠️ Failed to prompt expiry acknowledgment for " + spotId);
-                ex.printStackTrace();
+    // Lots without sensors never allocate the debouncing state
+    private OccupancyStateMachine occupancy() {
+        OccupancyStateMachine machine = occupancy;
+        if (machine == null) {
+            synchronized (this) {
+                machine = occupancy;
+                if (machine == null) {
+                    machine = new OccupancyStateMachine(SPOT_IDS.size(), 3, 400, 5, 800); // Arrive fast, leave slow
+                    occupancy = machine;
+                }
             }
-        });
+        }
+        return machine;
     }
-    
-    // Clear expired booking after user confirmation
-    private void cleanupAfterExpiry(String spotId, String userId) {
-        ParkingSpot spot = parkingSpots.get(spotId);
-        if (spot != null) {
-            spot.cancelBooking(); // clear booking state
-            if (userId != null && !"system".equals(userId)) {
-                markAsUserUnbooked(spotId, userId);
+
+    // Debounced sensor occupancy of a spot
+    public boolean isSensorOccupied(String spotId) {
+        int index = getSpotIndex(spotId);
+        OccupancyStateMachine machine = occupancy;
+        return index >= 0 && machine != null && machine.isOccupied(index);
+    }
+
+    // Validate a confirmed occupancy change against the booking state before it becomes a status.
+    // Decisions use the spot itself, not the status cache, which may still lag behind the update buffer.
+    private void applyOccupancy(int index, boolean occupied, long timestamp) {
+        String spotId = SPOT_IDS.get(index);
+        ParkingSpot spot = getSpotAt(index);
+        ParkingEvents.sensorTransition(lotId, spotId, spot, occupied, timestamp);
+
+        if (occupied) {
+            if (expiryManager.isPending(spotId)) return; // Still time_exceeded until the vehicle leaves
+            if (spot.isBooked()) {
+                enqueueUpdate(spotId, isUserBooked(spotId) ? SpotStatus.BOOKED_OCCUPIED : SpotStatus.RESERVED_OCCUPIED);
+            } else {
+                enqueueUpdate(spotId, SpotStatus.WRONG_PARKING); // Nobody booked this spot
             }
-            notifyListeners(spotId, "available"); // white slot
-            notifyUser("Spot " + spotId + " is now available.");
+            return;
         }
+
+        // Vacated: back to the booked colour, or free; duplicates are dropped by the update buffer
+        if (expiryManager.isPending(spotId)) {
+            reportVehicleLeft(spotId);
+        } else if (spot.isBooked()) {
+            enqueueUpdate(spotId, isUserBooked(spotId) ? SpotStatus.BOOKED : SpotStatus.RESERVED);
+        } else if (!spot.isSoftLocked()) {
+            enqueueUpdate(spotId, SpotStatus.AVAILABLE);
+        }
+    }
+
+    // Notifications go through their own batched channel instead of the repaint buffer
+    private void enqueueUserMessage(String userId, String message) {
+        notifications.post(userId, message);
+    }
+    
+    // Force-close the active booking dialogs of the user whose soft lock expired
+    public void forceCloseBookingDialogs(String userId) {
+        UserSession session = getSession(userId);
+        if (session != null) {
+            session.closeBookingDialogs();
+        }
+    }
+    
+    // Hand an expired booking to the expiry state machine (called from the spot's expiry timer)
+    public void onBookingExpired(String spotId, String userId) {
+        expiryManager.onExpired(spotId, userId);
+    }
+
+    // Acknowledge an expired booking from the GUI or API; applied asynchronously
+    public void acknowledgeExpiry(String spotId, String userId) {
+        expiryManager.acknowledge(spotId, userId, ExpiryManager.AckSource.USER);
+    }
+
+    // Sensor reports the vehicle left; releases an expired spot without waiting for the owner
+    public void reportVehicleLeft(String spotId) {
+        expiryManager.acknowledge(spotId, null, ExpiryManager.AckSource.SENSOR);
     }
 
-    // Inner Class to store booking request details
+    // Check if a spot's booking expired and it has not been released yet
+    public boolean isExpiryPending(String spotId) {
+        return expiryManager.isPending(spotId);
+    }
+
+    // Expiry batch: the booking ended but the vehicle may still be there
+    void markExpired(String spotId, String userId) {
+        if (userId != null && !"system".equals(userId)) {
+            markAsUserUnbooked(spotId, userId);
+        }
+        enqueueUpdate(spotId, "time_exceeded");
+    }
+
+    // Expiry batch: release the spot after acknowledgment, vehicle exit or grace timeout
+    void releaseExpiredSpot(String spotId, String userId, ExpiryManager.AckSource source) {
+        ParkingSpot spot = spotFor(spotId);
+        if (spot == null || spot.isBooked()) return;
+        notifyListeners(spotId, "available"); // white slot
+        if (source == ExpiryManager.AckSource.GRACE_TIMEOUT && userId != null && !"system".equals(userId)) {
+            notifyUser(userId, "Spot " + spotId + " was released after the grace period.");
+        }
+        enqueueUserMessage(null, "Spot " + spotId + " is now available.");
+    }
+
+    // Inner Class to store booking request details; instances are pooled and reused
     private static class ParkingRequest {
-        final String spotId;
-        final int hours;
-        final String label;
-        final boolean isPriority;
-        final CompletableFuture<Boolean> future;
-        final String userId; 
-
-        ParkingRequest(String spotId, int hours, String label, boolean isPriority, CompletableFuture<Boolean> future, String userId) {
+        String spotId;
+        String[] spotIds; // Set only for multi-spot transactions
+        int hours;
+        String label;
+        boolean isPriority;
+        CompletableFuture<Boolean> future; // Exactly one of future and callback is set
+        BookingCallback callback;
+        String userId; 
+        String requestKey; // Deduplication key of an idempotent request, null otherwise
+        int schedulingClass; // Set when queued
+        long enqueuedNanos; // Queue entry time for recorded events, 0 when none records it
+
+        ParkingRequest forSpot(String spotId, int hours, String label, boolean isPriority, String userId,
+                               CompletableFuture<Boolean> future, BookingCallback callback) {
             this.spotId = spotId;
+            this.spotIds = null;
             this.hours = hours;
             this.label = label;
             this.isPriority = isPriority;
             this.future = future;
+            this.callback = callback;
             this.userId = userId;
+            this.requestKey = null;
+            return this;
+        }
+
+        ParkingRequest forSpots(String[] spotIds, int hours, String label, String userId, CompletableFuture<Boolean> future) {
+            forSpot(spotIds[0], hours, label, false, userId, future, null);
+            this.spotIds = spotIds.clone();
+            return this;
+        }
+
+        void complete(boolean success) {
+            complete(spotId, future, callback, success);
+        }
+
+        void fail(Throwable error) {
+            if (future != null) future.completeExceptionally(error);
+            else callback.onBookingResult(spotId, false);
+        }
+
+        // Drop references so a pooled request does not keep callers' objects alive
+        void clear() {
+            forSpot(null, 0, null, false, null, null, null);
+        }
+
+        static void complete(String spotId, CompletableFuture<Boolean> future, BookingCallback callback, boolean success) {
+            if (future != null) future.complete(success);
+            else if (callback != null) callback.onBookingResult(spotId, success);
         }
     }
 
@@ -1,19 +1,15 @@
 package smartparking;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Objects;
 
 // Represents an individual parking slot in the smart car parking system
 public class ParkingSpot {
     private final String id;
+    private final int index; // Dense spot index, also the slot in the shared deadline table
     private final AtomicBoolean booked; // Flag to indicate if the spot is booked
-    private volatile Timer timer; // Timer for booking expiration
     private volatile long expirationTime; // Expiration time in ms
     private final ParkingLotManager manager; // Reference to system manager
-    private TimerTask warningTask; // Timer task that triggers a warning 15 minutes before booking expires
-    private TimerTask expiryTask; // Timer task that triggers when the booking fully expires
     
     // Soft-lock related fields
     private volatile boolean softLocked = false;
@@ -22,8 +18,9 @@ public class ParkingSpot {
     private volatile String bookedByUserId = null;
     
     // Constructor to initialize parking spot with unique ID and reference to manager
-    public ParkingSpot(String id, ParkingLotManager manager) {
+    public ParkingSpot(String id, int index, ParkingLotManager manager) {
         this.id = id;
+        this.index = index;
         this.booked = new AtomicBoolean(false);
         this.manager = manager;
     }
@@ -40,6 +37,11 @@ public class ParkingSpot {
 
     // Method to book the spot for a given duration (in milliseconds)
     public boolean book(long millis, String userId) {
+        return book(System.currentTimeMillis(), millis, userId);
+    }
+
+    // Book starting at a given time, so callers that checked [now, now + millis) book exactly that window
+    boolean book(long now, long millis, String userId) {
         if (userId == null) return false;
         if (!booked.compareAndSet(false, true)) return false;
 
@@ -49,8 +51,8 @@ public class ParkingSpot {
         lockedByUserId = null;
         this.bookedByUserId = userId;
 
-        this.expirationTime = System.currentTimeMillis() + millis;
-        startTimers(millis); // Start countdown timers
+        this.expirationTime = now + millis;
+        startTimers(now, millis); // Start countdown timers
         return true;
     }
 
@@ -62,9 +64,7 @@ public class ParkingSpot {
         
         // Atomic state change
         if (booked.compareAndSet(true, false)) {
-            if (warningTask != null) warningTask.cancel();
-            if (expiryTask != null) expiryTask.cancel();
-            if (timer != null) timer.cancel();
+            manager.getBookingTimers().cancelBooking(index);
             return true;
         }
         return false;
@@ -80,20 +80,7 @@ public class ParkingSpot {
             lockedByUserId = userId;
 
             // Schedule automatic soft lock release
-            new Timer(true).schedule(new TimerTask() {
-                public void run() {
-                    synchronized (ParkingSpot.this) {
-                        if (softLocked && System.currentTimeMillis() >= softLockExpiry &&
-                            userId.equals(lockedByUserId) && !booked.get()) {
-                        
-                            releaseSoftLock(userId);
-                            manager.notifyUser("Your hold on " + id + " has expired.");
-                            manager.forceCloseBookingDialogs();
-                            manager.notifyListeners(id, "available");  // GUI will repaint
-                        }
-                    }
-                }
-            }, durationMillis);
+            manager.getBookingTimers().scheduleSoftLock(index, softLockExpiry);
             return true;
         }
         return false;
@@ -131,36 +118,78 @@ public class ParkingSpot {
         return softLocked && System.currentTimeMillis() < softLockExpiry;
     }
 
-    // Internal method to start timers for warnings and expiration
-    private synchronized void startTimers(long millis) {
-        if (timer != null) timer.cancel();
-        timer = new Timer(true);
-
+    // Internal method to set the warning and expiration deadlines in the shared timer table
+    private void startTimers(long now, long millis) {
         long warningDelay = Math.max(0, millis - (15 * 60 * 1000)); // Warn 15 mins before expiry
+        manager.getBookingTimers().scheduleBooking(index, now + warningDelay, expirationTime);
+    }
 
-        // Schedule expiration warning (user bookings only)
-        warningTask = new TimerTask() {
-            public void run() {
-                if (booked.get() && bookedByUserId != null && !"system".equals(bookedByUserId)) {
-                    manager.notifyUser("Warning: Booking for spot " + id + " expires in 15 minutes");
-                }
-            }
-        };
-        timer.schedule(warningTask, warningDelay);
-
-        // Schedule booking expiration
-        expiryTask = new TimerTask() {
-            public void run() {
-                if (cancelBooking()) {
-                    if (bookedByUserId != null && !"system".equals(bookedByUserId)) {
-                        manager.markAsUserUnbooked(id, bookedByUserId);
-                    }
-                    manager.notifyListeners(id, "time_exceeded");
-                    manager.promptUserToAcknowledgeExpiry(id, bookedByUserId);
+    // Expiration warning (user bookings only)
+    void onWarningDue() {
+        if (booked.get() && bookedByUserId != null && !"system".equals(bookedByUserId)) {
+            manager.notifyUser(bookedByUserId, "Warning: Booking for spot " + id + " expires in 15 minutes");
+        }
+    }
+
+    // Move the end of the running booking from expectedEnd to newEnd and reschedule its deadlines in place
+    synchronized boolean extendTo(long expectedEnd, long newEnd) {
+        if (!booked.get() || expirationTime != expectedEnd) return false;
+        expirationTime = newEnd;
+        long now = System.currentTimeMillis();
+        startTimers(now, newEnd - now);
+        return true;
+    }
+
+    // Booking expiration; ignored if the deadline belongs to a booking that was replaced or extended.
+    // Release and expiry hand-off happen under the manager's spot lock, so no claim books the spot in between.
+    void onExpiryDue(long deadline) {
+        synchronized (manager.spotLock(index)) {
+            synchronized (this) {
+                boolean expired = deadline == expirationTime && cancelBooking();
+                ParkingEvents.bookingExpiry(manager.getLotId(), id, deadline, expired);
+                if (expired) {
+                    manager.onBookingExpired(id, bookedByUserId);
                 }
             }
-        };
-        timer.schedule(expiryTask, millis);
+        }
+    }
+
+    // Automatic soft lock release
+    synchronized void onSoftLockDue() {
+        String userId = lockedByUserId;
+        if (softLocked && userId != null && System.currentTimeMillis() >= softLockExpiry && !booked.get()) {
+            ParkingEvents.softLockExpired(manager, id, userId, softLockExpiry);
+            releaseSoftLock(userId);
+            manager.notifyUser(userId, "Your hold on " + id + " has expired.");
+            manager.forceCloseBookingDialogs(userId);
+            manager.notifyListeners(id, "available");  // GUI will repaint
+        }
+    }
+
+    // An advance reservation of this spot starts
+    void onReservationDue() {
+        manager.activateReservations(index);
+    }
+
+    // End of the current booking, 0 when not booked
+    public long getExpirationTime() {
+        return booked.get() ? expirationTime : 0;
+    }
+
+    // Owner of the current booking, null when not booked
+    public String getBookedByUserId() {
+        return booked.get() ? bookedByUserId : null;
+    }
+
+    // Holder of an unexpired soft lock, null when there is none
+    String getSoftLockHolder() {
+        String holder = lockedByUserId;
+        return isSoftLocked() ? holder : null;
+    }
+
+    // End of the soft lock in epoch millis; only meaningful while getSoftLockHolder() is not null
+    long getSoftLockExpiry() {
+        return softLockExpiry;
     }
 
     // Method to get the remaining time for the booking
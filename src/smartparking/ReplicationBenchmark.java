@@ -0,0 +1,193 @@
+package smartparking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Primary/standby replication harness: a primary engine ships booking state over loopback to a standby engine while
+// clients book, cancel, extend and soft-lock, and readers query the standby. Reports write throughput, replication
+// lag and batch sizes, checks the replica against the primary (also over the standby's query port), then drops the
+// primary and times the failover.
+// Usage: java -cp SmartParking.jar smartparking.ReplicationBenchmark [seconds] [writers] [readers] [lots]
+public class ReplicationBenchmark {
+    private static final long FAILOVER_TIMEOUT_MILLIS = 400;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int lotCount = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        ParkingEngine standbyEngine = new ParkingEngine(2, 1);
+        ReplicationStandby standby = new ReplicationStandby(standbyEngine, 0, FAILOVER_TIMEOUT_MILLIS);
+        int queryPort = standby.startQueryPort(0);
+        standby.start();
+
+        ParkingEngine primary = new ParkingEngine(2, 1);
+        String[] lots = new String[lotCount];
+        for (int i = 0; i < lotCount; i++) lots[i] = primary.createLot("site-" + i).getLotId();
+        String[] spots = primary.getLot(lots[0]).getSpotIds();
+        ReplicationLog log = primary.replicateTo("127.0.0.1", standby.getPort());
+
+        AtomicLong writes = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        for (int w = 0; w < writers; w++) {
+            String user = "writer-" + w;
+            pool.execute(() -> writeLoop(primary, lots, spots, user, end, writes));
+        }
+        for (int r = 0; r < readers; r++) {
+            pool.execute(() -> readLoop(standby, lots, spots, end, reads));
+        }
+
+        long maxLag = 0;
+        long lagSum = 0;
+        int samples = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(100);
+            long lag = log.getLagMillis();
+            maxLag = Math.max(maxLag, lag);
+            lagSum += lag;
+            samples++;
+        }
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+
+        MetricsRegistry metrics = primary.getMetrics();
+        long batches = metrics.get("replication.batches");
+        long entries = metrics.get("replication.entries");
+        System.out.printf("writes: %,.0f ops/s on the primary; reads: %,.0f ops/s on the standby%n",
+            writes.get() / (double) seconds, reads.get() / (double) seconds);
+        System.out.printf("replication: %,d entries in %,d batches (%.1f per batch), lag avg %d ms, max %d ms%n",
+            entries, batches, batches == 0 ? 0.0 : entries / (double) batches, samples == 0 ? 0 : lagSum / samples, maxLag);
+
+        // Let the primary's update buffers drain and the standby catch up before comparing
+        Thread.sleep(200);
+        while (log.getLagEntries() > 0) Thread.sleep(10);
+        System.out.println("replica mismatches while running: " + mismatches(primary, lots, standby::getActiveBookings));
+        System.out.println("status mismatches over the query port: "
+            + queryPortMismatches(queryPort, primary.getLot(lots[0]), spots));
+
+        // Drop the primary without warning and wait for the standby to take over
+        Set<String> before = new HashSet<>();
+        for (String lot : lots) primary.getLot(lot).getActiveBookings().forEach(b -> before.add(key(lot, b)));
+        long dropped = System.nanoTime();
+        log.close();
+        while (!standby.isPromoted()) Thread.sleep(1);
+        System.out.printf("failover: promoted %d ms after the primary dropped (timeout %d ms)%n",
+            (System.nanoTime() - dropped) / 1_000_000, FAILOVER_TIMEOUT_MILLIS);
+
+        Thread.sleep(100); // Restored bookings go through the standby's update buffers
+        Set<String> after = new HashSet<>();
+        for (String lot : lots) standbyEngine.getLot(lot).getActiveBookings().forEach(b -> after.add(key(lot, b)));
+        Set<String> lost = new HashSet<>(before);
+        lost.removeAll(after);
+        Set<String> extra = new HashSet<>(after);
+        extra.removeAll(before);
+        System.out.println("bookings on primary: " + before.size() + ", on promoted standby: " + after.size()
+            + ", lost: " + lost.size() + ", extra: " + extra.size());
+
+        String freeSpot = null;
+        ParkingLotManager firstLot = standbyEngine.getLot(lots[0]);
+        for (String spot : spots) {
+            if (!firstLot.isBooked(spot)) {
+                freeSpot = spot;
+                break;
+            }
+        }
+        boolean booked = freeSpot != null && firstLot.bookSpot(freeSpot, 1, "1 hour", false, "after-failover").get();
+        System.out.println("write on promoted standby: " + (booked ? "booked " + lots[0] + "/" + freeSpot : "failed"));
+        standby.close();
+        System.exit(0);
+    }
+
+    // Book, then cancel, extend or keep; now and then hold a spot with a soft lock or cancel whatever is booked,
+    // so the lots settle at about three quarters full instead of filling up
+    private static void writeLoop(ParkingEngine engine, String[] lots, String[] spots, String user, long end,
+                                  AtomicLong writes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long done = 0;
+        while (System.nanoTime() < end) {
+            ParkingLotManager lot = engine.getLot(lots[random.nextInt(lots.length)]);
+            String spot = spots[random.nextInt(spots.length)];
+            int action = random.nextInt(10);
+            try {
+                if (action == 0) {
+                    if (lot.trySoftLock(spot, user, 2000)) lot.releaseSoftLock(spot, user);
+                } else if (action == 1) {
+                    lot.cancelBooking(spot).get();
+                } else if (lot.bookSpot(spot, 1, "1 hour", false, user).get()) {
+                    if (action < 7) lot.cancelBooking(spot).get();
+                    else if (action < 8) lot.extendBooking(spot, user, 60_000);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            done++;
+        }
+        writes.addAndGet(done);
+    }
+
+    private static void readLoop(ReplicationStandby standby, String[] lots, String[] spots, long end, AtomicLong reads) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long done = 0;
+        while (System.nanoTime() < end) {
+            String lot = lots[random.nextInt(lots.length)];
+            if (random.nextBoolean()) standby.getSpotStatus(lot, spots[random.nextInt(spots.length)], null);
+            else standby.getFreeSpots(lot, "A");
+            done++;
+        }
+        reads.addAndGet(done);
+    }
+
+    // Lots whose replicated bookings differ from the primary's
+    private static int mismatches(ParkingEngine primary, String[] lots,
+                                  Function<String, List<BookingRecord>> replica) {
+        int mismatched = 0;
+        for (String lot : lots) {
+            Set<String> expected = new HashSet<>();
+            primary.getLot(lot).getActiveBookings().forEach(b -> expected.add(key(lot, b)));
+            Set<String> actual = new HashSet<>();
+            replica.apply(lot).forEach(b -> actual.add(key(lot, b)));
+            if (!expected.equals(actual)) mismatched++;
+        }
+        return mismatched;
+    }
+
+    // Spots of a lot whose status read over the standby's query port differs from the primary's
+    private static int queryPortMismatches(int port, ParkingLotManager lot, String[] spots) throws IOException {
+        int mismatched = 0;
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            for (String spot : spots) {
+                out.writeByte(ClusterProtocol.OP_STATUS);
+                out.writeUTF(lot.getLotId());
+                out.writeUTF(spot);
+                out.writeUTF("");
+                out.flush();
+                if (in.readByte() != ClusterProtocol.OK || !in.readUTF().equals(lot.getSpotStatus(spot, null))) {
+                    mismatched++;
+                }
+            }
+        }
+        return mismatched;
+    }
+
+    private static String key(String lot, BookingRecord booking) {
+        return lot + "/" + booking.spotId + "/" + booking.userId + "/" + booking.endMillis;
+    }
+}
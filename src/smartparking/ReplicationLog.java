@@ -0,0 +1,368 @@
+package smartparking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Primary side of asynchronous log-shipping replication to a hot standby (ReplicationStandby)
+// Lots record a spot's full state (status, booking owner and end, soft lock, expiry awaiting release, reservations)
+// after every change; a state equal to the last one recorded for the spot is skipped. Recording takes only the lot's
+// own log lock and appends to a lock-free queue, so lots never contend with each other or with the shipper, and
+// bookings never wait for the standby. One shipper thread sends the recorded entries in batches and waits for each
+// batch's ack, so entries recorded during a round trip go out together in the next batch. Entries are idempotent
+// per spot, which lets a new connection or an overflowed log start over from a snapshot of every lot. The snapshot
+// is read one lot at a time under that lot's log lock; entries the lot recorded before its turn are dropped, since
+// the snapshot already carries their state.
+//
+// Frames (primary -> standby): byte type, long last sequence, long oldest unacked record time (0 if none),
+// int count, then per entry: lot, spot, byte status code, owner ("" if none), long end, lock holder ("" if none),
+// long lock end, expired booking's owner ("" if none), long grace deadline, int reservation count and per
+// reservation: long ID, long start, long end, owner. A SNAPSHOT frame replaces the standby's state, a BATCH
+// updates it, a HEARTBEAT (no entries) keeps an idle link alive. The standby answers every frame with the long
+// sequence it has applied.
+public class ReplicationLog implements AutoCloseable {
+    static final byte FRAME_SNAPSHOT = 1;
+    static final byte FRAME_BATCH = 2;
+    static final byte FRAME_HEARTBEAT = 3;
+
+    static final long HEARTBEAT_MILLIS = 100; // Idle links send a heartbeat this often; the standby's timeout is longer
+    private static final long RECONNECT_MILLIS = 200;
+    private static final int MAX_BATCH = 1024; // Entries per frame
+    private static final int MAX_PENDING = 1 << 16; // Beyond this the log is dropped and the standby resynced
+
+    private final ParkingEngine engine;
+    private final String host;
+    private final int port;
+    private final Thread shipper;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ConcurrentMap<String, LotLog> lotLogs = new ConcurrentHashMap<>();
+    private final AtomicLong lastSeq = new AtomicLong(); // Sequence of the newest recorded entry
+    private long shippedSeq; // Highest sequence sent or folded into a snapshot; shipper thread only
+    private volatile boolean resync = true; // Next frame is a snapshot
+    private volatile boolean shipperWaiting; // The shipper may be waiting on this for entries
+    private volatile long inFlightOldestMillis; // Record time of the oldest entry sent but not acked, 0 if none
+    private volatile long ackedSeq;
+    private volatile long batches;
+    private volatile long shipped;
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private volatile Socket socket;
+
+    // Per-lot recording state, guarded by itself
+    private static final class LotLog {
+        final Entry[] last; // Last state recorded per spot, to skip unchanged states
+        long snapshotSeq; // Entries up to this sequence are older than the lot's part of the last snapshot
+
+        LotLog(int spots) {
+            this.last = new Entry[spots];
+        }
+    }
+
+    // One spot's state at the time it was recorded
+    static final class Entry {
+        final String lotId;
+        final String spotId;
+        final byte status;
+        final String bookedBy; // Null when not booked
+        final long endMillis;
+        final String lockHolder; // Null when not soft-locked
+        final long lockEndMillis;
+        final String expiredBy; // Owner of an expired booking awaiting release, null when none
+        final long graceDeadline;
+        final List<LotSnapshot.Reservation> reservations; // Not started yet, in start order
+        final long recordedMillis;
+        long seq; // Set when recorded, 0 for snapshot entries
+
+        Entry(String lotId, String spotId, byte status, String bookedBy, long endMillis, String lockHolder,
+              long lockEndMillis, String expiredBy, long graceDeadline, List<LotSnapshot.Reservation> reservations,
+              long recordedMillis) {
+            this.lotId = lotId;
+            this.spotId = spotId;
+            this.status = status;
+            this.bookedBy = bookedBy;
+            this.endMillis = endMillis;
+            this.lockHolder = lockHolder;
+            this.lockEndMillis = lockEndMillis;
+            this.expiredBy = expiredBy;
+            this.graceDeadline = graceDeadline;
+            this.reservations = reservations;
+            this.recordedMillis = recordedMillis;
+        }
+
+        boolean sameState(Entry other) {
+            return other != null && status == other.status && endMillis == other.endMillis
+                && lockEndMillis == other.lockEndMillis && graceDeadline == other.graceDeadline
+                && Objects.equals(bookedBy, other.bookedBy) && Objects.equals(lockHolder, other.lockHolder)
+                && Objects.equals(expiredBy, other.expiredBy) && sameReservations(other.reservations);
+        }
+
+        // Reservation IDs are never reused and a reservation never changes, so the IDs tell the lists apart
+        private boolean sameReservations(List<LotSnapshot.Reservation> other) {
+            if (reservations.size() != other.size()) return false;
+            for (int i = 0; i < reservations.size(); i++) {
+                if (reservations.get(i).id != other.get(i).id) return false;
+            }
+            return true;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(lotId);
+            out.writeUTF(spotId);
+            out.writeByte(status);
+            out.writeUTF(ClusterProtocol.orEmpty(bookedBy));
+            out.writeLong(endMillis);
+            out.writeUTF(ClusterProtocol.orEmpty(lockHolder));
+            out.writeLong(lockEndMillis);
+            out.writeUTF(ClusterProtocol.orEmpty(expiredBy));
+            out.writeLong(graceDeadline);
+            out.writeInt(reservations.size());
+            for (LotSnapshot.Reservation reservation : reservations) {
+                out.writeLong(reservation.id);
+                out.writeLong(reservation.startMillis);
+                out.writeLong(reservation.endMillis);
+                out.writeUTF(reservation.owner);
+            }
+        }
+
+        static Entry read(DataInputStream in) throws IOException {
+            String lotId = in.readUTF();
+            String spotId = in.readUTF();
+            byte status = in.readByte();
+            String bookedBy = ClusterProtocol.orNull(in.readUTF());
+            long endMillis = in.readLong();
+            String lockHolder = ClusterProtocol.orNull(in.readUTF());
+            long lockEndMillis = in.readLong();
+            String expiredBy = ClusterProtocol.orNull(in.readUTF());
+            long graceDeadline = in.readLong();
+            int count = in.readInt();
+            List<LotSnapshot.Reservation> reservations = count == 0 ? Collections.emptyList() : new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                reservations.add(new LotSnapshot.Reservation(spotId, in.readLong(), in.readLong(), in.readLong(),
+                    in.readUTF()));
+            }
+            return new Entry(lotId, spotId, status, bookedBy, endMillis, lockHolder, lockEndMillis, expiredBy,
+                graceDeadline, reservations, 0);
+        }
+    }
+
+    // Constructor: created and started through ParkingEngine.replicateTo
+    ReplicationLog(ParkingEngine engine, String host, int port) {
+        this.engine = engine;
+        this.host = host;
+        this.port = port;
+        this.shipper = new Thread(this::shipLoop, "ReplicationShipper");
+        shipper.setDaemon(true);
+        MetricsRegistry metrics = engine.getMetrics();
+        metrics.register("replication.lag.millis", this::getLagMillis);
+        metrics.register("replication.lag.entries", this::getLagEntries);
+        metrics.register("replication.batches", () -> batches);
+        metrics.register("replication.entries", () -> shipped);
+        metrics.register("replication.connected", () -> connected ? 1 : 0);
+    }
+
+    void start() {
+        shipper.start();
+    }
+
+    // Record the current state of a lot's spot; called by the lot after every change, never under its spot locks
+    void record(ParkingLotManager lot, int index) {
+        if (resync) return; // The coming snapshot reads the state anyway
+        LotLog lotLog = lotLogs.computeIfAbsent(lot.getLotId(), id -> new LotLog(lot.getSpotCount()));
+        synchronized (lotLog) {
+            Entry entry = entryFor(lot, index, System.currentTimeMillis());
+            if (entry.sameState(lotLog.last[index])) return; // Repeated status updates of an unchanged spot
+            if (pendingCount.get() >= MAX_PENDING) {
+                resync = true; // Standby too far behind or away: start over from a snapshot
+                return;
+            }
+            lotLog.last[index] = entry;
+            entry.seq = lastSeq.incrementAndGet();
+            pendingCount.incrementAndGet();
+            pending.offer(entry);
+        }
+        if (shipperWaiting) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    // Age of the oldest change the standby has not acknowledged yet, 0 when it is up to date
+    public long getLagMillis() {
+        long oldest = oldestUnackedMillis();
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    // Changes recorded but not yet acknowledged by the standby
+    public long getLagEntries() {
+        return Math.max(0, lastSeq.get() - ackedSeq);
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    // Stop shipping and drop the link at once; the standby sees the primary disappear
+    @Override
+    public void close() {
+        closed = true;
+        shipper.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    // Connect, then send frames and wait for their acks until the link breaks; reconnects start with a snapshot
+    private void shipLoop() {
+        while (!closed) {
+            try (Socket link = new Socket()) {
+                link.connect(new InetSocketAddress(host, port), (int) RECONNECT_MILLIS * 5);
+                link.setTcpNoDelay(true);
+                socket = link;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(link.getOutputStream(), 1 << 16));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(link.getInputStream()));
+                resync = true;
+                connected = true;
+                while (!closed) {
+                    ship(out, in);
+                }
+            } catch (IOException e) {
+                if (!closed) System.err.println("⚠️ Replication link to " + host + ":" + port + " down: " + e.getMessage());
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                connected = false;
+                inFlightOldestMillis = 0;
+            }
+            sleepQuietly(RECONNECT_MILLIS);
+        }
+    }
+
+    // Send one frame and wait for its ack
+    private void ship(DataOutputStream out, DataInputStream in) throws IOException, InterruptedException {
+        byte type;
+        long oldest;
+        List<Entry> entries = new ArrayList<>();
+        if (resync) {
+            type = FRAME_SNAPSHOT;
+            oldest = snapshot(entries);
+        } else {
+            if (pending.isEmpty()) awaitEntries();
+            oldest = takeBatch(entries);
+            type = entries.isEmpty() ? FRAME_HEARTBEAT : FRAME_BATCH;
+        }
+        inFlightOldestMillis = oldest;
+
+        out.writeByte(type);
+        out.writeLong(shippedSeq);
+        out.writeLong(oldest);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) entry.write(out);
+        out.flush();
+        long applied = in.readLong();
+
+        ackedSeq = Math.max(ackedSeq, applied);
+        inFlightOldestMillis = 0;
+        if (type != FRAME_HEARTBEAT) {
+            batches++;
+            shipped += entries.size();
+        }
+    }
+
+    // Read every lot into entries, one lot at a time under its log lock; returns the snapshot time. Recording resumes
+    // before the first lot is read, so a change during the snapshot is either in it or recorded after it.
+    private long snapshot(List<Entry> entries) {
+        resync = false;
+        long folded = lastSeq.get(); // Everything recorded so far is dropped or folded into the snapshot
+        while (pending.poll() != null) pendingCount.decrementAndGet();
+        long now = System.currentTimeMillis();
+        for (ParkingLotManager lot : engine.getLots()) {
+            LotLog lotLog = lotLogs.computeIfAbsent(lot.getLotId(), id -> new LotLog(lot.getSpotCount()));
+            synchronized (lotLog) {
+                for (int i = 0; i < lotLog.last.length; i++) {
+                    lotLog.last[i] = entryFor(lot, i, now);
+                    entries.add(lotLog.last[i]);
+                }
+                lotLog.snapshotSeq = lastSeq.get();
+            }
+        }
+        shippedSeq = Math.max(shippedSeq, folded);
+        ackedSeq = Math.max(ackedSeq, folded);
+        return now;
+    }
+
+    // Move up to MAX_BATCH recorded entries into entries, skipping those a snapshot superseded; returns the record
+    // time of the oldest one, 0 if none
+    private long takeBatch(List<Entry> entries) {
+        long oldest = 0;
+        Entry entry;
+        while (entries.size() < MAX_BATCH && (entry = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            shippedSeq = Math.max(shippedSeq, entry.seq);
+            LotLog lotLog = lotLogs.get(entry.lotId);
+            synchronized (lotLog) {
+                if (entry.seq <= lotLog.snapshotSeq) continue;
+            }
+            if (oldest == 0) oldest = entry.recordedMillis;
+            entries.add(entry);
+        }
+        return oldest;
+    }
+
+    // Wait up to a heartbeat interval for the first entry to be recorded
+    private void awaitEntries() throws InterruptedException {
+        synchronized (this) {
+            shipperWaiting = true;
+            try {
+                if (pending.isEmpty()) wait(HEARTBEAT_MILLIS);
+            } finally {
+                shipperWaiting = false;
+            }
+        }
+    }
+
+    private long oldestUnackedMillis() {
+        long inFlight = inFlightOldestMillis;
+        if (inFlight != 0) return inFlight;
+        Entry first = pending.peek();
+        return first == null ? 0 : first.recordedMillis;
+    }
+
+    private static Entry entryFor(ParkingLotManager lot, int index, long now) {
+        ParkingSpot spot = lot.getSpotIfCreated(index); // Null for a spot nothing has touched: free, no hold
+        String lockHolder = spot == null ? null : spot.getSoftLockHolder();
+        BookingRecord expiry = lot.getPendingExpiry(index);
+        return new Entry(lot.getLotId(), lot.getSpotId(index), (byte) lot.getStatusCode(index),
+            spot == null ? null : spot.getBookedByUserId(), spot == null ? 0 : spot.getExpirationTime(),
+            lockHolder, lockHolder == null ? 0 : spot.getSoftLockExpiry(),
+            expiry == null ? null : expiry.userId, expiry == null ? 0 : expiry.endMillis, lot.getReservations(index), now);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
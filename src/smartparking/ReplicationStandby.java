@@ -0,0 +1,391 @@
+package smartparking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Hot standby of a primary engine: applies the primary's ReplicationLog frames as they arrive and serves read-only
+// spot status and zone availability from the replica, which also carries reservations and expiries awaiting
+// release. Replicated state is kept in plain per-lot tables rather than in live lots, so no timers or expiry run on
+// it twice. When the primary goes silent for longer than the failover
+// timeout (or its link drops), the replica is restored into this engine's lots and they take writes from then on.
+// There is no fencing: whoever runs the standby must make sure a primary that comes back stays out.
+// Clients read from the standby in process, or over its query port: ClusterProtocol STATUS and PING only, with every
+// other op refused, so a dashboard or router can fall back to it while the primary is down.
+// Usage: java -cp SmartParking.jar smartparking.ReplicationStandby [replicationPort] [queryPort] [failoverMillis]
+//        (prints "READY <replicationPort> <queryPort>" once listening)
+public class ReplicationStandby implements AutoCloseable {
+    private final ParkingEngine engine; // Lots of the replica; they hold the bookings once promoted
+    private final ServerSocket server;
+    private final long failoverTimeoutMillis;
+    private Thread receiver;
+    private ServerSocket queryServer; // Read-only ClusterProtocol port, null until startQueryPort
+    private final ExecutorService queryConnections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, LotReplica> replicas = new ConcurrentHashMap<>();
+    private final List<Runnable> promotionListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean promoted;
+    private volatile boolean closed;
+    private volatile long appliedSeq;
+    private volatile long appliedEntries;
+    private volatile long lagMillis; // Age of the oldest change in the last applied frame, 0 when caught up
+    private volatile long lastFrameMillis; // When the last frame (or heartbeat) arrived
+    private volatile long failoverMillis = -1; // Last frame to promotion complete, -1 until promoted
+
+    // Replicated spot state of one lot, indexed like the lot's spots; guarded by itself
+    private static class LotReplica {
+        final ParkingLotManager lot; // Same spot layout on both sides
+        final byte[] status;
+        final String[] bookedBy;
+        final long[] endMillis;
+        final String[] lockHolder;
+        final long[] lockEndMillis;
+        final String[] expiredBy;
+        final long[] graceDeadline;
+        final List<List<LotSnapshot.Reservation>> reservations;
+
+        LotReplica(ParkingLotManager lot) {
+            int spots = lot.getSpotCount();
+            this.lot = lot;
+            this.status = new byte[spots];
+            this.bookedBy = new String[spots];
+            this.endMillis = new long[spots];
+            this.lockHolder = new String[spots];
+            this.lockEndMillis = new long[spots];
+            this.expiredBy = new String[spots];
+            this.graceDeadline = new long[spots];
+            this.reservations = new ArrayList<>(Collections.nCopies(spots, Collections.emptyList()));
+        }
+
+        synchronized void apply(ReplicationLog.Entry entry) {
+            int index = lot.getSpotIndex(entry.spotId);
+            if (index < 0) return;
+            status[index] = entry.status;
+            bookedBy[index] = entry.bookedBy;
+            endMillis[index] = entry.endMillis;
+            lockHolder[index] = entry.lockHolder;
+            lockEndMillis[index] = entry.lockEndMillis;
+            expiredBy[index] = entry.expiredBy;
+            graceDeadline[index] = entry.graceDeadline;
+            reservations.set(index, entry.reservations);
+        }
+
+        synchronized void clear() {
+            Arrays.fill(status, (byte) SpotStatus.AVAILABLE_CODE);
+            Arrays.fill(bookedBy, null);
+            Arrays.fill(endMillis, 0);
+            Arrays.fill(lockHolder, null);
+            Arrays.fill(lockEndMillis, 0);
+            Arrays.fill(expiredBy, null);
+            Arrays.fill(graceDeadline, 0);
+            Collections.fill(reservations, Collections.emptyList());
+        }
+
+        // Same answer as ParkingLotManager.getSpotStatus: a live soft lock shows as held, except to its holder
+        synchronized String statusOf(int index, String userId, long now) {
+            if (status[index] != SpotStatus.BOOKED_CODE && lockHolder[index] != null && lockEndMillis[index] > now) {
+                return lockHolder[index].equals(userId) ? SpotStatus.AVAILABLE : SpotStatus.SOFT_LOCKED;
+            }
+            return SpotStatus.nameOf(status[index]);
+        }
+
+        // Spots in [first, last) that are available, unbooked and not held
+        synchronized int countFree(int first, int last, long now) {
+            int free = 0;
+            for (int i = first; i < last; i++) {
+                if (status[i] == SpotStatus.AVAILABLE_CODE && bookedBy[i] == null
+                        && (lockHolder[i] == null || lockEndMillis[i] <= now)) {
+                    free++;
+                }
+            }
+            return free;
+        }
+
+        synchronized List<BookingRecord> activeBookings(long now) {
+            List<BookingRecord> active = new ArrayList<>();
+            for (int i = 0; i < bookedBy.length; i++) {
+                if (bookedBy[i] != null && endMillis[i] > now) {
+                    active.add(new BookingRecord(lot.getSpotId(i), bookedBy[i], endMillis[i]));
+                }
+            }
+            return active;
+        }
+
+        // Re-create the replicated state in the live lot. Bookings, holds, reservations and expiries go through
+        // ParkingLotManager.restore, so their timers and the expiry state machine run on them again; an expiry
+        // comes back as time_exceeded from its restored ExpiryManager entry and is released at its grace deadline.
+        synchronized void restore(long now) {
+            LotSnapshot snapshot = new LotSnapshot();
+            for (int i = 0; i < bookedBy.length; i++) {
+                String spotId = lot.getSpotId(i);
+                if (bookedBy[i] != null && endMillis[i] > now) {
+                    snapshot.bookings.add(new BookingRecord(spotId, bookedBy[i], endMillis[i]));
+                }
+                if (lockHolder[i] != null && lockEndMillis[i] > now) {
+                    snapshot.softLocks.add(new BookingRecord(spotId, lockHolder[i], lockEndMillis[i]));
+                }
+                if (expiredBy[i] != null) snapshot.expiries.add(new BookingRecord(spotId, expiredBy[i], graceDeadline[i]));
+                snapshot.reservations.addAll(reservations.get(i));
+            }
+            lot.restore(snapshot);
+            for (int i = 0; i < bookedBy.length; i++) {
+                if (isSensorStatus(status[i])) lot.notifyListeners(lot.getSpotId(i), SpotStatus.nameOf(status[i]));
+            }
+        }
+
+        // Occupancy colours come from sensors, not from restored state, so they are re-applied as they were
+        private static boolean isSensorStatus(byte code) {
+            String name = SpotStatus.nameOf(code);
+            return SpotStatus.BOOKED_OCCUPIED.equals(name) || SpotStatus.RESERVED_OCCUPIED.equals(name)
+                || SpotStatus.WRONG_PARKING.equals(name);
+        }
+    }
+
+    // Constructor: listens on loopback (port 0 picks a free port) and promotes itself after failoverTimeoutMillis
+    // without a frame from a primary that was connected
+    public ReplicationStandby(ParkingEngine engine, int port, long failoverTimeoutMillis) throws IOException {
+        if (failoverTimeoutMillis <= ReplicationLog.HEARTBEAT_MILLIS) {
+            throw new IllegalArgumentException("Failover timeout must exceed the heartbeat interval");
+        }
+        this.engine = engine;
+        this.failoverTimeoutMillis = failoverTimeoutMillis;
+        this.server = new ServerSocket();
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        MetricsRegistry metrics = engine.getMetrics();
+        metrics.register("replication.standby.lag.millis", () -> lagMillis);
+        metrics.register("replication.standby.applied", () -> appliedEntries);
+        metrics.register("replication.standby.promoted", () -> promoted ? 1 : 0);
+    }
+
+    public synchronized void start() {
+        if (receiver != null) return;
+        receiver = new Thread(this::receiveLoop, "ReplicationStandby");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Answer read-only queries over ClusterProtocol on loopback (port 0 picks a free port); returns the bound port.
+    // The port stays open after promotion and then answers from the live lots.
+    public synchronized int startQueryPort(int port) throws IOException {
+        if (queryServer != null) return queryServer.getLocalPort();
+        ServerSocket listening = new ServerSocket();
+        listening.bind(new InetSocketAddress("127.0.0.1", port));
+        queryServer = listening;
+        queryConnections.execute(() -> acceptQueries(listening));
+        return listening.getLocalPort();
+    }
+
+    // Run when the standby has taken over
+    public void onPromoted(Runnable listener) {
+        promotionListeners.add(listener);
+    }
+
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    // Primary-side age of the changes last applied here; 0 while caught up
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    // Silence before the takeover plus the restore, -1 until promoted
+    public long getFailoverMillis() {
+        return failoverMillis;
+    }
+
+    // Read-only spot status from the replica; after promotion the live lot answers
+    public String getSpotStatus(String lotId, String spotId, String userId) {
+        if (promoted) return engine.route(lotId).getSpotStatus(spotId, userId);
+        LotReplica replica = replicas.get(lotId);
+        int index = replica == null ? -1 : replica.lot.getSpotIndex(spotId);
+        if (index < 0) return SpotStatus.AVAILABLE;
+        return replica.statusOf(index, userId, System.currentTimeMillis());
+    }
+
+    // Free spots of a lot's zone ("*" for the whole lot) from the replica
+    public int getFreeSpots(String lotId, String zone) {
+        LotReplica replica = replicas.get(lotId);
+        if (replica == null) return 0;
+        int[] range = "*".equals(zone) ? new int[]{0, replica.lot.getSpotCount()} : replica.lot.getZoneRange(zone);
+        return replica.countFree(range[0], range[1], System.currentTimeMillis());
+    }
+
+    // Replicated bookings of a lot that have not ended
+    public List<BookingRecord> getActiveBookings(String lotId) {
+        LotReplica replica = replicas.get(lotId);
+        return replica == null ? new ArrayList<>() : replica.activeBookings(System.currentTimeMillis());
+    }
+
+    // Take over now: restore the replica into the live lots and stop listening for the primary
+    public synchronized void promote() {
+        if (promoted) return;
+        long now = System.currentTimeMillis();
+        for (LotReplica replica : replicas.values()) replica.restore(now);
+        promoted = true;
+        failoverMillis = System.currentTimeMillis() - (lastFrameMillis == 0 ? now : lastFrameMillis);
+        closeServer();
+        System.out.println("🟢 Standby promoted after " + failoverMillis + " ms; serving " + replicas.size() + " lots");
+        promotionListeners.forEach(Runnable::run);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeServer();
+        synchronized (this) {
+            if (queryServer != null) closeQuietly(queryServer);
+        }
+        queryConnections.shutdownNow();
+    }
+
+    // Accept the primary and apply its frames; a link that breaks or goes quiet after it carried frames fails over
+    private void receiveLoop() {
+        while (!closed && !promoted) {
+            try (Socket link = server.accept()) {
+                link.setTcpNoDelay(true);
+                link.setSoTimeout((int) failoverTimeoutMillis);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(link.getInputStream(), 1 << 16));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(link.getOutputStream()));
+                while (!closed) {
+                    applyFrame(in);
+                    out.writeLong(appliedSeq);
+                    out.flush();
+                }
+            } catch (SocketTimeoutException e) {
+                // Like a dropped link: only a primary that carried frames fails over, not a stray connection
+                if (lastFrameMillis != 0) {
+                    System.err.println("⚠️ Primary silent for " + failoverTimeoutMillis + " ms");
+                    promote();
+                }
+            } catch (IOException e) {
+                if (closed || promoted) return;
+                if (lastFrameMillis != 0) {
+                    System.err.println("⚠️ Primary link lost: " + e.getMessage());
+                    promote();
+                }
+            }
+        }
+    }
+
+    private void applyFrame(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        long seq = in.readLong();
+        long oldest = in.readLong();
+        int count = in.readInt();
+        if (type == ReplicationLog.FRAME_SNAPSHOT) replicas.values().forEach(LotReplica::clear);
+        for (int i = 0; i < count; i++) {
+            ReplicationLog.Entry entry = ReplicationLog.Entry.read(in);
+            replicas.computeIfAbsent(entry.lotId, id -> new LotReplica(engine.getOrCreateLot(id))).apply(entry);
+        }
+        long now = System.currentTimeMillis();
+        appliedSeq = seq;
+        appliedEntries += count;
+        lagMillis = oldest == 0 ? 0 : Math.max(0, now - oldest);
+        lastFrameMillis = now;
+    }
+
+    private void acceptQueries(ServerSocket listening) {
+        while (!listening.isClosed()) {
+            try {
+                Socket socket = listening.accept();
+                socket.setTcpNoDelay(true);
+                queryConnections.execute(() -> serveQueries(socket));
+            } catch (IOException e) {
+                if (!listening.isClosed()) System.err.println("⚠️ Standby query accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Request loop of one query connection; see ClusterProtocol for the frames
+    private void serveQueries(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                switch (op) {
+                    case ClusterProtocol.OP_STATUS -> {
+                        String lotId = in.readUTF();
+                        String spotId = in.readUTF();
+                        String userId = ClusterProtocol.orNull(in.readUTF());
+                        if (replicas.containsKey(lotId)) {
+                            out.writeByte(ClusterProtocol.OK);
+                            out.writeUTF(getSpotStatus(lotId, spotId, userId));
+                        } else {
+                            out.writeByte(ClusterProtocol.NOT_OWNER);
+                            out.writeUTF("Lot " + lotId + " is not replicated here");
+                        }
+                    }
+                    case ClusterProtocol.OP_PING -> {
+                        out.writeByte(ClusterProtocol.OK);
+                        out.writeUTF((promoted ? "promoted standby" : "standby") + " with " + replicas.size()
+                            + " lots, applied seq " + appliedSeq + ", lag " + lagMillis + " ms");
+                    }
+                    default -> {
+                        // Fields of other ops are not read, so the stream position is lost: answer and close
+                        out.writeByte(ClusterProtocol.ERROR);
+                        out.writeUTF("Read-only standby: op " + op + " refused; closing the connection");
+                        out.flush();
+                        return;
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private void closeServer() {
+        closeQuietly(server);
+    }
+
+    private static void closeQuietly(ServerSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int queryPort = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long failoverMillis = args.length > 2 ? Long.parseLong(args[2]) : 2_000;
+        ParkingEngine engine = new ParkingEngine(Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+        ReplicationStandby standby = new ReplicationStandby(engine, port, failoverMillis);
+        int boundQueryPort = standby.startQueryPort(queryPort);
+        standby.start();
+        System.out.println("READY " + standby.getPort() + " " + boundQueryPort);
+        Thread.currentThread().join(); // Serve until the process is stopped
+    }
+}
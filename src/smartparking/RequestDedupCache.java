@@ -0,0 +1,126 @@
+package smartparking;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Client request ID to the result of its first submission, so retried requests are answered instead of re-run
+// Open-addressed table of fixed size: a lookup hashes to a slot and probes a few neighbours, reading entries
+// without locks. Entries older than the time-to-live count as empty and are overwritten in place; when every slot
+// in the probe window is live the oldest one is evicted, so memory never grows past the table.
+public class RequestDedupCache<V> {
+    private static final int PROBES = 8; // Slots checked per lookup
+
+    private final AtomicReferenceArray<Entry<V>> slots;
+    private final int mask;
+    private final int shift; // Keeps the top bits of the mixed hash
+    private final long ttlMillis;
+
+    // Immutable so readers never see a half-written entry
+    private static final class Entry<V> {
+        final String key;
+        final V value;
+        final long createdAt;
+
+        Entry(String key, V value, long createdAt) {
+            this.key = key;
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+
+    // Constructor: capacity is rounded up to a power of two
+    public RequestDedupCache(int capacity, long ttlMillis) {
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.shift = 32 - Integer.numberOfTrailingZeros(size);
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Result stored for the key, null if unknown or expired
+    public V get(String key) {
+        long now = System.currentTimeMillis();
+        int home = slotOf(key);
+        for (int i = 0; i < PROBES; i++) {
+            Entry<V> entry = slots.get((home + i) & mask);
+            if (entry != null && entry.key.equals(key) && now - entry.createdAt < ttlMillis) return entry.value;
+        }
+        return null;
+    }
+
+    // Receives live entries from forEachLive
+    public interface EntryVisitor<V> {
+        void visit(String key, V value, long createdAt);
+    }
+
+    // Store the value unless the key is already live; returns the earlier value, or null if this one was stored
+    public V putIfAbsent(String key, V value) {
+        return putIfAbsent(key, value, 0);
+    }
+
+    // Re-create an entry moved from another cache with its original age, unless the key is already live
+    public void restore(String key, V value, long createdAt) {
+        if (System.currentTimeMillis() - createdAt < ttlMillis) putIfAbsent(key, value, createdAt);
+    }
+
+    // Visit every live entry whose key starts with the prefix; a full scan, for moving a lot's entries
+    public void forEachLive(String prefix, EntryVisitor<V> visitor) {
+        long now = System.currentTimeMillis();
+        for (int slot = 0; slot < slots.length(); slot++) {
+            Entry<V> entry = slots.get(slot);
+            if (entry != null && now - entry.createdAt < ttlMillis && entry.key.startsWith(prefix)) {
+                visitor.visit(entry.key, entry.value, entry.createdAt);
+            }
+        }
+    }
+
+    // createdAt 0 stamps the entry with the current time
+    private V putIfAbsent(String key, V value, long createdAt) {
+        int home = slotOf(key);
+        Entry<V> fresh = null;
+        while (true) {
+            long now = System.currentTimeMillis();
+            int target = -1;
+            Entry<V> victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (home + i) & mask;
+                Entry<V> entry = slots.get(slot);
+                boolean live = entry != null && now - entry.createdAt < ttlMillis;
+                if (live && entry.key.equals(key)) return entry.value;
+                if (!live) {
+                    // First free or expired slot wins, so racing writers of one key collide on the same slot
+                    if (oldest != Long.MIN_VALUE) {
+                        target = slot;
+                        victim = entry;
+                        oldest = Long.MIN_VALUE;
+                    }
+                } else if (entry.createdAt < oldest) {
+                    target = slot;
+                    victim = entry;
+                    oldest = entry.createdAt;
+                }
+            }
+            if (fresh == null) fresh = new Entry<>(key, value, createdAt == 0 ? now : createdAt);
+            if (slots.compareAndSet(target, victim, fresh)) return null;
+            // Lost the slot to another writer: rescan, it may have stored this very key
+        }
+    }
+
+    // Forget the key if it still maps to this value, so a retry runs the request again
+    public void remove(String key, V value) {
+        int home = slotOf(key);
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+            Entry<V> entry = slots.get(slot);
+            if (entry != null && entry.key.equals(key) && entry.value == value) {
+                slots.compareAndSet(slot, entry, null);
+                return;
+            }
+        }
+    }
+
+    // Fibonacci hashing: client IDs are often sequential, and their String hashes would cluster in adjacent slots
+    private int slotOf(String key) {
+        return (key.hashCode() * 0x9E3779B9) >>> shift;
+    }
+}
@@ -0,0 +1,205 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+// Future-dated reservations per spot, kept as sorted primitive interval arrays
+// Intervals of a spot never overlap, so a conflict check is one binary search for the last reservation starting
+// before the requested end. Each spot has its own lock; callers that must check and book atomically hold it
+// through lockFor(spot). Memory is about 28 bytes per reservation, so millions fit comfortably. A spot's lock and
+// arrays are created on its first lockFor or add, so a spot that was never booked or reserved costs one empty slot.
+public class ReservationIndex {
+    private final AtomicReferenceArray<Intervals> spots; // Null until first needed; reads treat null as no reservations
+
+    // Reservations of one spot, sorted by start time
+    private static class Intervals {
+        private static final long[] NO_TIMES = new long[0];
+        private static final String[] NO_OWNERS = new String[0];
+
+        long[] starts = NO_TIMES;
+        long[] ends = NO_TIMES;
+        long[] ids = NO_TIMES;
+        String[] owners = NO_OWNERS;
+        int size;
+
+        // Position of the last interval starting before time, -1 if none
+        int lastStartingBefore(long time) {
+            int lo = 0, hi = size - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < time) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        boolean isFree(long start, long end) {
+            int before = lastStartingBefore(end);
+            return before < 0 || ends[before] <= start;
+        }
+
+        void insert(long start, long end, long id, String owner) {
+            if (size == starts.length) grow();
+            int at = lastStartingBefore(start) + 1;
+            int tail = size - at;
+            System.arraycopy(starts, at, starts, at + 1, tail);
+            System.arraycopy(ends, at, ends, at + 1, tail);
+            System.arraycopy(ids, at, ids, at + 1, tail);
+            System.arraycopy(owners, at, owners, at + 1, tail);
+            starts[at] = start;
+            ends[at] = end;
+            ids[at] = id;
+            owners[at] = owner;
+            size++;
+        }
+
+        void removeAt(int at) {
+            int tail = size - at - 1;
+            System.arraycopy(starts, at + 1, starts, at, tail);
+            System.arraycopy(ends, at + 1, ends, at, tail);
+            System.arraycopy(ids, at + 1, ids, at, tail);
+            System.arraycopy(owners, at + 1, owners, at, tail);
+            owners[--size] = null;
+        }
+
+        int indexOf(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) return i;
+            }
+            return -1;
+        }
+
+        private void grow() {
+            int capacity = Math.max(4, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+        }
+    }
+
+    // A reservation taken out of the index when it starts
+    public static class Reservation {
+        public final long id;
+        public final int spot;
+        public final long start;
+        public final long end;
+        public final String owner;
+
+        Reservation(long id, int spot, long start, long end, String owner) {
+            this.id = id;
+            this.spot = spot;
+            this.start = start;
+            this.end = end;
+            this.owner = owner;
+        }
+    }
+
+    // Constructor
+    public ReservationIndex(int spotCount) {
+        this.spots = new AtomicReferenceArray<>(spotCount);
+    }
+
+    // Lock guarding a spot's reservations; hold it to combine a check with a booking
+    public Object lockFor(int spot) {
+        return intervals(spot);
+    }
+
+    // A spot's intervals, created on first use; once set they are never replaced, so the lock stays the same
+    private Intervals intervals(int spot) {
+        Intervals intervals = spots.get(spot);
+        if (intervals != null) return intervals;
+        spots.compareAndSet(spot, null, new Intervals());
+        return spots.get(spot);
+    }
+
+    // True if no reservation of the spot overlaps [start, end): O(log n)
+    public boolean isFree(int spot, long start, long end) {
+        Intervals intervals = spots.get(spot);
+        if (intervals == null) return true;
+        synchronized (intervals) {
+            return intervals.isFree(start, end);
+        }
+    }
+
+    // Add a reservation unless it overlaps another one; false on conflict
+    public boolean add(int spot, long id, long start, long end, String owner) {
+        Intervals intervals = intervals(spot);
+        synchronized (intervals) {
+            if (!intervals.isFree(start, end)) return false;
+            intervals.insert(start, end, id, owner);
+            return true;
+        }
+    }
+
+    // Remove a reservation if it belongs to owner; false if there is no such reservation or it is someone else's
+    public boolean remove(int spot, long id, String owner) {
+        Intervals intervals = spots.get(spot);
+        if (intervals == null) return false;
+        synchronized (intervals) {
+            int at = intervals.indexOf(id);
+            if (at < 0 || !intervals.owners[at].equals(owner)) return false;
+            intervals.removeAt(at);
+            return true;
+        }
+    }
+
+    // Remove and return the earliest reservation if it starts at or before now, null otherwise
+    public Reservation pollDue(int spot, long now) {
+        Intervals intervals = spots.get(spot);
+        if (intervals == null) return null;
+        synchronized (intervals) {
+            if (intervals.size == 0 || intervals.starts[0] > now) return null;
+            Reservation due = new Reservation(intervals.ids[0], spot, intervals.starts[0], intervals.ends[0],
+                intervals.owners[0]);
+            intervals.removeAt(0);
+            return due;
+        }
+    }
+
+    // Copy of a spot's reservations in start order
+    public List<Reservation> list(int spot) {
+        Intervals intervals = spots.get(spot);
+        if (intervals == null) return new ArrayList<>();
+        synchronized (intervals) {
+            List<Reservation> list = new ArrayList<>(intervals.size);
+            for (int i = 0; i < intervals.size; i++) {
+                list.add(new Reservation(intervals.ids[i], spot, intervals.starts[i], intervals.ends[i], intervals.owners[i]));
+            }
+            return list;
+        }
+    }
+
+    // Start of the earliest reservation of a spot, 0 if none
+    public long nextStart(int spot) {
+        Intervals intervals = spots.get(spot);
+        if (intervals == null) return 0;
+        synchronized (intervals) {
+            return intervals.size == 0 ? 0 : intervals.starts[0];
+        }
+    }
+
+    // First spot in [from, to) with no reservation overlapping [start, end) that also passes the extra check
+    // (e.g. no active booking running into the window), -1 if none
+    public int findFree(int from, int to, long start, long end, IntPredicate eligible) {
+        for (int spot = from; spot < to; spot++) {
+            if (isFree(spot, start, end) && eligible.test(spot)) return spot;
+        }
+        return -1;
+    }
+
+    public int size(int spot) {
+        Intervals intervals = spots.get(spot);
+        if (intervals == null) return 0;
+        synchronized (intervals) {
+            return intervals.size;
+        }
+    }
+}
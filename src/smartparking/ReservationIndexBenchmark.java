@@ -0,0 +1,59 @@
+package smartparking;
+
+import java.util.Random;
+
+// Scale check for the reservation index: fills a large lot with millions of non-overlapping reservations,
+// then times conflict checks and "any spot free for [t1, t2) in this zone" queries
+// Usage: java -cp SmartParking.jar smartparking.ReservationIndexBenchmark [spots] [reservationsPerSpot] [queries]
+public class ReservationIndexBenchmark {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    public static void main(String[] args) {
+        int spots = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int perSpot = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        int zoneSize = 500; // Spots per zone in the synthetic lot
+
+        ReservationIndex index = new ReservationIndex(spots);
+        Random random = new Random(7);
+        long[] cursor = new long[spots]; // Next free time per spot while generating
+        long id = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < perSpot; round++) {
+            for (int spot = 0; spot < spots; spot++) {
+                long from = cursor[spot] + random.nextInt(24) * HOUR;
+                long to = from + (1 + random.nextInt(8)) * HOUR;
+                if (!index.add(spot, ++id, from, to, "user-" + (id % 1000))) throw new IllegalStateException("conflict");
+                cursor[spot] = to;
+            }
+        }
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("loaded %,d reservations on %,d spots in %d ms%n", id, spots, loadMillis);
+
+        // Conflict checks against random windows inside the booked horizon
+        long horizon = perSpot * 16 * HOUR;
+        int free = 0;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            long from = (long) (random.nextDouble() * horizon);
+            if (index.isFree(random.nextInt(spots), from, from + 2 * HOUR)) free++;
+        }
+        double checkNanos = (System.nanoTime() - start) / (double) queries;
+        System.out.printf("conflict check: %.0f ns each (%d of %d windows free)%n", checkNanos, free, queries);
+
+        // Zone availability queries
+        int zones = Math.max(1, spots / zoneSize);
+        int found = 0;
+        int zoneQueries = queries / 10;
+        start = System.nanoTime();
+        for (int q = 0; q < zoneQueries; q++) {
+            int zone = random.nextInt(zones);
+            long from = (long) (random.nextDouble() * horizon);
+            int lo = zone * zoneSize;
+            if (index.findFree(lo, Math.min(spots, lo + zoneSize), from, from + 2 * HOUR, s -> true) >= 0) found++;
+        }
+        double zoneMicros = (System.nanoTime() - start) / 1000.0 / zoneQueries;
+        System.out.printf("zone query (%d spots): %.1f us each (%d of %d found a spot)%n",
+            zoneSize, zoneMicros, found, zoneQueries);
+    }
+}
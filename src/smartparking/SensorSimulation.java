@@ -5,7 +5,6 @@ import java.util.concurrent.*;
 import java.util.concurrent.TimeUnit;
 import javax.swing.SwingUtilities;
 import javax.swing.JOptionPane;
-import java.util.stream.Collectors;
 
 // Class to simulate sensor behavior for the smart car parking system
 public class SensorSimulation {
@@ -15,41 +14,92 @@ public class SensorSimulation {
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1); // For delayed tasks
     private final Set<String> userSimulatedSlots = ConcurrentHashMap.newKeySet(); // Track user-booked slots that have been simulated
 
+    // Raw sensor model: ground truth per spot, sampled with chatter and handed to the manager in bulk
+    private static final long SAMPLE_INTERVAL_MILLIS = 200;
+    private static final double CHATTER_PROBABILITY = 0.03; // Chance a single reading is wrong
+    private final boolean[] vehiclePresent;
+    private final int[] readingSpots;
+    private final boolean[] readingValues;
+    private final long[] readingTimes;
+
     // Constructor
     public SensorSimulation(ParkingLotManager manager) {
         this.parkingLotManager = manager;
         this.random = new Random();
+        int spotCount = manager.getSpotCount();
+        this.vehiclePresent = new boolean[spotCount];
+        this.readingSpots = new int[spotCount];
+        this.readingValues = new boolean[spotCount];
+        this.readingTimes = new long[spotCount];
+        for (int i = 0; i < spotCount; i++) readingSpots[i] = i;
+    }
+
+    // Sample every sensor once; runs on the scheduler thread only, so the buffers are reused
+    private void sampleSensors() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < vehiclePresent.length; i++) {
+            boolean present = vehiclePresent[i];
+            readingValues[i] = random.nextDouble() < CHATTER_PROBABILITY ? !present : present;
+            readingTimes[i] = now;
+        }
+        parkingLotManager.processSensorReadings(readingSpots, readingValues, readingTimes, vehiclePresent.length);
+    }
+
+    // A vehicle arrives at or leaves a spot; the sensors pick it up on the next samples
+    private void setVehicle(String spotId, boolean present) {
+        int index = parkingLotManager.getSpotIndex(spotId);
+        if (index >= 0) vehiclePresent[index] = present;
+    }
+
+    private boolean hasVehicle(String spotId) {
+        int index = parkingLotManager.getSpotIndex(spotId);
+        return index >= 0 && vehiclePresent[index];
     }
 
     // Main simulation loop — periodically simulates car arrivals and wrong parking behavior
     public void run() {
         running = true;
+        scheduler.scheduleAtFixedRate(this::sampleSensors, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS,
+            TimeUnit.MILLISECONDS);
 
         while (running) {
             try {
                 TimeUnit.SECONDS.sleep(30); // Simulate sensor polling interval
-                String[] allSpots = parkingLotManager.getSpotIds();
                 
                 // === SYSTEM-RESERVED SLOT BEHAVIOR ===
-                for (String spotId : allSpots) {
-                    // Skip user bookings and soft-locked slots
-                    if (parkingLotManager.isUserBooked(spotId)) continue;
-                    if (parkingLotManager.isSoftLocked(spotId)) continue;
-
+                // Skip user bookings and soft-locked slots
+                BitSet systemSpots = parkingLotManager.query().userBooked(false).statusNot(SpotStatus.SOFT_LOCKED).filter();
+                for (int i = systemSpots.nextSetBit(0); i >= 0; i = systemSpots.nextSetBit(i + 1)) {
+                    String spotId = parkingLotManager.getSpotId(i);
                     String currentStatus = parkingLotManager.getSpotStatus(spotId);
+
+                    // A released slot has no vehicle left in it
+                    if ("available".equals(currentStatus) && hasVehicle(spotId)) {
+                        setVehicle(spotId, false);
+                        continue;
+                    }
+
+                    // 30% chance the car leaves an expired slot, which releases it without acknowledgment
+                    if ("time_exceeded".equals(currentStatus) && random.nextDouble() < 0.3) {
+                        if (hasVehicle(spotId)) {
+                            setVehicle(spotId, false); // Sensor confirms the exit
+                        } else {
+                            parkingLotManager.reportVehicleLeft(spotId); // Never occupied
+                        }
+                        continue;
+                    }
                     
                     // 20% chance a car exit early from system-reserved slot
                     if ("reserved_occupied".equals(currentStatus) && random.nextDouble() < 0.2) {
-                        parkingLotManager.notifyListeners(spotId, "reserved");
+                        setVehicle(spotId, false);
                         continue;
                     }
 
-                    // 80% chance of a car entering system-reserved slot
+                    // 80% chance of a car entering system-reserved slot; the manager only accepts it while booked
                     if ("reserved".equals(currentStatus) && random.nextDouble() < 0.8) {
                         TimeUnit.SECONDS.sleep(5);
-                        if (parkingLotManager.isBooked(spotId) &&
-                            "reserved".equals(parkingLotManager.getSpotStatus(spotId))) {
-                            parkingLotManager.notifyListeners(spotId, "reserved_occupied");
+                        if (parkingLotManager.isBooked(spotId)) {
+                            setVehicle(spotId, true);
                             System.out.println("🚗 Car entered spot " + spotId);
                         }
                     }
@@ -57,15 +107,16 @@ public class SensorSimulation {
 
                 // === USER-BOOKED SLOT BEHAVIOR ===
                 // 50% chance of correct/wrong parking per user-booked slot
-                for (String spotId : allSpots) {
-                    if (!parkingLotManager.isUserBooked(spotId)) continue;
+                BitSet userSpots = parkingLotManager.query().userBooked(true).filter();
+                for (int i = userSpots.nextSetBit(0); i >= 0; i = userSpots.nextSetBit(i + 1)) {
+                    String spotId = parkingLotManager.getSpotId(i);
                     if (userSimulatedSlots.contains(spotId)) continue;
 
                     userSimulatedSlots.add(spotId); // Prevent re-simulating
                     scheduler.schedule(() -> {
                         boolean simulateCorrectParking = random.nextBoolean(); // 50%
                         if (simulateCorrectParking) {
-                            parkingLotManager.notifyListeners(spotId, "booked_occupied");
+                            setVehicle(spotId, true);
                         } else {
                             simulateWrongParkingCorrection(spotId);
                         }
@@ -87,29 +138,21 @@ public class SensorSimulation {
         String carInfo = userBookings.getOrDefault(correctSpot, "unknown");
         String carPlate = carInfo.contains("Plate: ") ? carInfo.split(",")[0].replace("Plate: ", "") : "UNKNOWN";
 
-        List<String> allSpots = Arrays.asList(parkingLotManager.getSpotIds());
-        List<String> availableWrongSpots = allSpots.stream()
-            .filter(spot -> !spot.equals(correctSpot))
-            .filter(spot -> !parkingLotManager.isUserBooked(spot))
-            .filter(spot -> !"booked".equals(parkingLotManager.getSpotStatus(spot)))
-            .filter(spot -> !"reserved_occupied".equals(parkingLotManager.getSpotStatus(spot)))
-            .filter(spot -> !"booked_occupied".equals(parkingLotManager.getSpotStatus(spot)))
-            .collect(Collectors.toList());
-
-        // Enforce live check to remove any slot that is still booked by the user
-        availableWrongSpots.removeIf(spot -> parkingLotManager.isUserBooked(spot));
-        
+        // Free or system-reserved spots other than the booked one, evaluated in one pass over the status table
+        BitSet availableWrongSpots = parkingLotManager.query()
+            .exclude(correctSpot)
+            .userBooked(false)
+            .statusNot(SpotStatus.BOOKED, SpotStatus.RESERVED_OCCUPIED, SpotStatus.BOOKED_OCCUPIED)
+            .filter();
         if (availableWrongSpots.isEmpty()) return;
-        Collections.shuffle(availableWrongSpots);
-        String wrongSpot = availableWrongSpots.get(0);
+        String wrongSpot = parkingLotManager.getSpotId(SpotQuery.randomIndex(availableWrongSpots, random));
 
         scheduler.schedule(() -> {
             if (!parkingLotManager.isBooked(correctSpot) || !parkingLotManager.isUserBooked(correctSpot)) {
-                parkingLotManager.notifyListeners(wrongSpot, "available");
                 return;
             }
 
-            parkingLotManager.notifyListeners(wrongSpot, "wrong_parking");
+            setVehicle(wrongSpot, true); // Confirmed as wrong_parking since nobody booked it
 
             SwingUtilities.invokeLater(() -> {
                 JOptionPane.showMessageDialog(null,
@@ -121,11 +164,10 @@ public class SensorSimulation {
                     JOptionPane.WARNING_MESSAGE
                 );
 
-                if (!parkingLotManager.isBooked(correctSpot) || !parkingLotManager.isUserBooked(correctSpot)) {
-                    parkingLotManager.notifyListeners(wrongSpot, "available");
-                } else {
-                    parkingLotManager.notifyListeners(wrongSpot, "available");
-                    parkingLotManager.notifyListeners(correctSpot, "booked_occupied");
+                // Vehicle moves out of the wrong slot, and into the correct one if it is still booked
+                setVehicle(wrongSpot, false);
+                if (parkingLotManager.isBooked(correctSpot) && parkingLotManager.isUserBooked(correctSpot)) {
+                    setVehicle(correctSpot, true);
                 }
             });
         }, 15, TimeUnit.SECONDS);
@@ -145,5 +187,6 @@ public class SensorSimulation {
     // Stop the simulation loop
     public void stop() {
         running = false;
+        scheduler.shutdown();
     }
 }
@@ -0,0 +1,39 @@
+package smartparking;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+// Drains one lot's queue on a shared executor, never on two threads at once
+// Producers queue their work and call signal(); a turn handles one batch and reschedules itself while work remains,
+// so a busy lot cannot hold a worker indefinitely and an idle lot costs no thread at all.
+class SerialDrain implements Runnable {
+    private final Executor executor;
+    private final Runnable batch; // Handles a bounded amount of queued work
+    private final BooleanSupplier hasWork;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SerialDrain(Executor executor, Runnable batch, BooleanSupplier hasWork) {
+        this.executor = executor;
+        this.batch = batch;
+        this.hasWork = hasWork;
+    }
+
+    // Schedule a turn unless one is already pending or running
+    void signal() {
+        if (scheduled.compareAndSet(false, true)) executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            batch.run();
+        } catch (RuntimeException ex) {
+            System.err.println("⚠️ Drain failed: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+        scheduled.set(false);
+        // Work queued after the batch's last poll would otherwise wait for the next signal
+        if (hasWork.getAsBoolean()) signal();
+    }
+}
@@ -0,0 +1,80 @@
+package smartparking;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Spill-over check for the availability aggregator: lots on a grid, one of them booked past its capacity through
+// bookNearest. Reports how many bookings spilled and how far, the cost of a recommend() call, and the availability
+// publish rate seen by a subscriber. Exits with status 1 if nothing spilled or the publish rate exceeds its bound.
+// Usage: java -cp SmartParking.jar smartparking.SpillOverBenchmark [lots] [overbookPercent] [recommendCalls]
+public class SpillOverBenchmark {
+    private static final long MAX_PUBLISHES_PER_SECOND = 2; // ParkingEngine publishes at most every 500 ms
+
+    public static void main(String[] args) throws Exception {
+        int lotCount = args.length > 0 ? Integer.parseInt(args[0]) : 25;
+        int overbook = args.length > 1 ? Integer.parseInt(args[1]) : 150;
+        int calls = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        ParkingEngine engine = new ParkingEngine(Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+        AvailabilityAggregator availability = engine.getAvailability();
+        AtomicInteger snapshots = new AtomicInteger();
+        availability.subscribe(snapshot -> snapshots.incrementAndGet());
+        int side = (int) Math.ceil(Math.sqrt(lotCount));
+        String[] lotIds = new String[lotCount];
+        for (int i = 0; i < lotCount; i++) {
+            lotIds[i] = "lot-" + i;
+            engine.createLot(lotIds[i], i % side, i / side); // One unit apart; lot-0 sits in a corner
+        }
+
+        // Book the corner lot past its capacity, one request at a time so each sees the previous one's counts
+        String origin = lotIds[0];
+        int requests = engine.route(origin).getSpotCount() * overbook / 100;
+        int local = 0, spilled = 0, refused = 0;
+        double farthest = 0;
+        long publishesBefore = availability.getPublishCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            CompletableFuture<ParkingEngine.Placement> booking =
+                engine.bookNearest(origin, null, 1, "1 hour", false, "spill-user-" + i);
+            ParkingEngine.Placement placement = booking.get();
+            if (placement == null) {
+                refused++;
+            } else if (!placement.spilled) {
+                local++;
+            } else {
+                spilled++;
+                int lot = Integer.parseInt(placement.lotId.substring("lot-".length()));
+                farthest = Math.max(farthest, Math.hypot(lot % side, lot / side));
+            }
+        }
+        long bookMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        Thread.sleep(1_000); // Let the last transitions reach the counts and one more publish tick run
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long publishes = availability.getPublishCount() - publishesBefore;
+        System.out.printf("%d requests at %s (%d spots): %d local, %d spilled (farthest %.1f units), %d refused in %d ms%n",
+            requests, origin, engine.route(origin).getSpotCount(), local, spilled, farthest, refused, bookMillis);
+        System.out.printf("availability: %d publishes in %.1f s (%.2f/s), %d snapshots to the subscriber%n",
+            publishes, seconds, publishes / seconds, snapshots.get());
+
+        // Recommendation cost once the counts have settled, from random lots and zones
+        Random random = new Random(11);
+        String[] zones = ParkingAnalytics.ZONES;
+        int found = 0;
+        for (int i = 0; i < calls / 10; i++) { // Warm-up
+            if (availability.recommend(lotIds[random.nextInt(lotCount)], zones[random.nextInt(zones.length)]) != null) found++;
+        }
+        found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            if (availability.recommend(lotIds[random.nextInt(lotCount)], zones[random.nextInt(zones.length)]) != null) found++;
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("recommend: %,d calls, %.0f ns per call, %d with a recommendation; full lot now recommends %s%n",
+            calls, (double) nanos / calls, found, availability.recommend(origin, null));
+
+        boolean ok = spilled > 0 && publishes <= (long) Math.ceil(seconds * MAX_PUBLISHES_PER_SECOND) + 1;
+        System.out.println(ok ? "Spill-over check passed" : "Spill-over check FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,106 @@
+package smartparking;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Typed event bus for spot status transitions with subscribers per spot, per zone and for the whole lot
+// Subscriber lists are copy-on-write, so dispatch iterates the current array without copying it.
+// Every subscriber owns a serial mailbox drained on the shared executor: events reach it exactly once,
+// in publish order, and a slow or failing subscriber never delays the publisher or other subscribers.
+public class SpotEventBus {
+    private static final int DRAIN_BATCH = 64; // Events handled per mailbox turn before yielding the worker
+
+    private final Executor executor; // Shared workers that drain subscriber mailboxes
+    private final ConcurrentMap<String, List<Subscription>> spotSubscribers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<Subscription>> zoneSubscribers = new ConcurrentHashMap<>();
+    private final List<Subscription> lotSubscribers = new CopyOnWriteArrayList<>();
+
+    // A single subscriber with its own mailbox
+    public class Subscription implements AutoCloseable, Runnable {
+        private final SpotListener listener;
+        private final List<Subscription> owner; // List this subscription is registered in
+        private final Queue<SpotStatusEvent> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscription(SpotListener listener, List<Subscription> owner) {
+            this.listener = listener;
+            this.owner = owner;
+        }
+
+        void deliver(SpotStatusEvent event) {
+            if (closed) return;
+            mailbox.offer(event);
+            if (scheduled.compareAndSet(false, true)) executor.execute(this);
+        }
+
+        // Drain a batch of the mailbox on a worker thread
+        @Override
+        public void run() {
+            for (int i = 0; i < DRAIN_BATCH && !closed; i++) {
+                SpotStatusEvent event = mailbox.poll();
+                if (event == null) break;
+                try {
+                    listener.onStatusChange(event);
+                } catch (RuntimeException ex) {
+                    System.err.println("⚠️ Spot listener failed on " + event + ": " + ex.getMessage());
+                    ex.printStackTrace();
+                }
+            }
+            scheduled.set(false);
+            // Reschedule if events arrived after the last poll or the batch limit was hit
+            if (!mailbox.isEmpty() && !closed && scheduled.compareAndSet(false, true)) executor.execute(this);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            owner.remove(this);
+            mailbox.clear();
+        }
+    }
+
+    // Constructor
+    public SpotEventBus(Executor executor) {
+        this.executor = executor;
+    }
+
+    // Subscribe to one spot
+    public Subscription subscribeSpot(String spotId, SpotListener listener) {
+        return register(spotSubscribers.computeIfAbsent(spotId, k -> new CopyOnWriteArrayList<>()), listener);
+    }
+
+    // Subscribe to every spot in a zone
+    public Subscription subscribeZone(String zone, SpotListener listener) {
+        return register(zoneSubscribers.computeIfAbsent(zone, k -> new CopyOnWriteArrayList<>()), listener);
+    }
+
+    // Subscribe to every spot in the lot
+    public Subscription subscribeLot(SpotListener listener) {
+        return register(lotSubscribers, listener);
+    }
+
+    // Hand an event to every matching subscriber's mailbox; never runs listener code on the caller
+    public void publish(SpotStatusEvent event) {
+        dispatch(spotSubscribers.get(event.getSpotId()), event);
+        dispatch(zoneSubscribers.get(event.getZone()), event);
+        dispatch(lotSubscribers, event);
+    }
+
+    private Subscription register(List<Subscription> list, SpotListener listener) {
+        Subscription subscription = new Subscription(listener, list);
+        list.add(subscription);
+        return subscription;
+    }
+
+    private static void dispatch(List<Subscription> subscriptions, SpotStatusEvent event) {
+        if (subscriptions == null) return;
+        for (Subscription subscription : subscriptions) subscription.deliver(event);
+    }
+}
@@ -0,0 +1,187 @@
+package smartparking;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fan-out publisher of spot status transitions for remote dashboards
+// Publishing never blocks: each subscriber has a bounded buffer, and once it is full newer events are
+// coalesced per spot so a slow consumer receives only the latest status of each spot it fell behind on.
+// A ring of recent events lets reconnecting clients resume from the last sequence number they saw.
+public class SpotEventPublisher {
+    private final AtomicLong sequence = new AtomicLong();
+    private final int historySize;
+    private volatile AtomicReferenceArray<SpotEvent> history; // Recent events indexed by seq % capacity, made on first use
+    private final int bufferSize; // Per-subscriber buffer before coalescing kicks in
+    private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+
+    // A single status transition
+    public static class SpotEvent {
+        public final long seq;
+        public final String spotId;
+        public final String status;
+        public final long timestamp;
+
+        SpotEvent(long seq, String spotId, String status, long timestamp) {
+            this.seq = seq;
+            this.spotId = spotId;
+            this.status = status;
+            this.timestamp = timestamp;
+        }
+
+        // JSON payload used on the wire
+        public String toJson() {
+            return "{\"seq\":" + seq + ",\"spot\":" + BookingApiServer.quote(spotId)
+                + ",\"status\":" + BookingApiServer.quote(status) + ",\"ts\":" + timestamp + "}";
+        }
+    }
+
+    // A subscriber's view of the stream, drained by its own writer thread
+    public class Subscription implements AutoCloseable {
+        private final String zone; // null for the whole lot
+        private final ArrayDeque<SpotEvent> buffer = new ArrayDeque<>();
+        private final LinkedHashMap<String, SpotEvent> coalesced = new LinkedHashMap<>(); // Overflow, latest per spot
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private long coalescedCount; // Events replaced while the subscriber was behind
+        private volatile boolean closed;
+
+        Subscription(String zone) {
+            this.zone = zone;
+        }
+
+        boolean accepts(SpotEvent event) {
+            return zone == null || event.spotId.startsWith(zone);
+        }
+
+        // Called by the publisher; never blocks on the consumer
+        void offer(SpotEvent event) {
+            lock.lock();
+            try {
+                if (buffer.size() < bufferSize && coalesced.isEmpty()) {
+                    buffer.addLast(event);
+                } else {
+                    // Re-insert so the map stays in sequence order
+                    if (coalesced.remove(event.spotId) != null) coalescedCount++;
+                    coalesced.put(event.spotId, event);
+                }
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Wait up to the timeout for events and return all that are pending (empty on timeout)
+        public List<SpotEvent> poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long remaining = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            try {
+                while (buffer.isEmpty() && coalesced.isEmpty() && !closed) {
+                    if (remaining <= 0) return List.of();
+                    remaining = available.awaitNanos(remaining);
+                }
+                List<SpotEvent> batch = new ArrayList<>(buffer.size() + coalesced.size());
+                batch.addAll(buffer);
+                batch.addAll(coalesced.values());
+                buffer.clear();
+                coalesced.clear();
+                return batch;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long getCoalescedCount() {
+            lock.lock();
+            try {
+                return coalescedCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscribers.remove(this);
+            lock.lock();
+            try {
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Constructor
+    public SpotEventPublisher(int historySize, int bufferSize) {
+        this.historySize = historySize;
+        this.bufferSize = bufferSize;
+    }
+
+    // Publish a transition to every interested subscriber
+    public void publish(String spotId, String status) {
+        SpotEvent event = new SpotEvent(sequence.incrementAndGet(), spotId, status, System.currentTimeMillis());
+        AtomicReferenceArray<SpotEvent> ring = history;
+        if (ring == null) ring = createHistory();
+        ring.set((int) (event.seq % historySize), event);
+        for (Subscription subscription : subscribers) {
+            if (subscription.accepts(event)) subscription.offer(event);
+        }
+    }
+
+    // Subscribe to a zone (null for the whole lot)
+    public Subscription subscribe(String zone) {
+        Subscription subscription = new Subscription(zone);
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    // Collect the events after lastSeq for a subscription that was registered first, so nothing published
+    // in between is lost. Returns false when they already left the history and the client must resync, and also
+    // when lastSeq is ahead of this publisher (it restarted since the client's last event), which is a gap too.
+    public boolean replay(Subscription subscription, long lastSeq, List<SpotEvent> out) {
+        long newest = sequence.get();
+        if (lastSeq > newest || newest - lastSeq > historySize) return false;
+        AtomicReferenceArray<SpotEvent> ring = history;
+        if (ring == null) return true; // Nothing published yet
+        for (long seq = lastSeq + 1; seq <= newest; seq++) {
+            SpotEvent event = ring.get((int) (seq % historySize));
+            if (event != null && event.seq == seq && subscription.accepts(event)) out.add(event);
+        }
+        return true;
+    }
+
+    private synchronized AtomicReferenceArray<SpotEvent> createHistory() {
+        if (history == null) history = new AtomicReferenceArray<>(historySize);
+        return history;
+    }
+
+    // Drop events already delivered through replay from a freshly polled batch
+    public static void skipUpTo(List<SpotEvent> batch, long seq) {
+        Iterator<SpotEvent> it = batch.iterator();
+        while (it.hasNext()) {
+            if (it.next().seq <= seq) it.remove();
+        }
+    }
+
+    public long getLastSequence() {
+        return sequence.get();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+}
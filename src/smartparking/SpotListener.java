@@ -0,0 +1,7 @@
+package smartparking;
+
+// Subscriber callback for spot status transitions
+@FunctionalInterface
+public interface SpotListener {
+    void onStatusChange(SpotStatusEvent event);
+}
@@ -0,0 +1,232 @@
+package smartparking;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lazy whole-lot query over spot indexes
+// Predicates are only collected until a terminal operation (count, filter, findAny) runs. Large lots are split
+// into partitions evaluated in parallel on the common fork/join pool; results are counts, bitsets of spot
+// indexes or a single index, so nothing copies the spot key set. Statuses are read from the primitive status
+// table without taking the status cache lock.
+public class SpotQuery {
+    private static final int PARTITION_SIZE = 1024; // Spots per fork/join leaf; smaller lots run inline
+
+    private final ParkingLotManager manager;
+    private int statusMask = SpotStatus.allMask();
+    private int from;
+    private int to;
+    private Boolean booked; // null: either
+    private Boolean userBooked;
+    private String owner;
+    private int excluded = -1;
+
+    SpotQuery(ParkingLotManager manager) {
+        this.manager = manager;
+        this.to = manager.getSpotCount();
+    }
+
+    // Keep spots whose effective status is one of the given statuses
+    public SpotQuery status(String... statuses) {
+        statusMask &= SpotStatus.maskOf(statuses);
+        return this;
+    }
+
+    // Drop spots whose effective status is one of the given statuses
+    public SpotQuery statusNot(String... statuses) {
+        statusMask &= ~SpotStatus.maskOf(statuses);
+        return this;
+    }
+
+    // Restrict to a zone; zones are contiguous index ranges, so this narrows the scan itself
+    public SpotQuery zone(String zone) {
+        int[] range = manager.getZoneRange(zone);
+        from = Math.max(from, range[0]);
+        to = Math.min(to, range[1]);
+        return this;
+    }
+
+    public SpotQuery booked(boolean value) {
+        booked = value;
+        return this;
+    }
+
+    // Booked by a registered user, as opposed to the system simulation or unbooked
+    public SpotQuery userBooked(boolean value) {
+        userBooked = value;
+        return this;
+    }
+
+    public SpotQuery owner(String userId) {
+        owner = userId;
+        return this;
+    }
+
+    public SpotQuery exclude(String spotId) {
+        excluded = manager.getSpotIndex(spotId);
+        return this;
+    }
+
+    // Number of matching spots
+    public int count() {
+        if (from >= to) return 0;
+        if (to - from <= PARTITION_SIZE) return countRange(from, to);
+        return ForkJoinPool.commonPool().invoke(new CountTask(from, to));
+    }
+
+    // Indexes of all matching spots
+    public BitSet filter() {
+        if (from >= to) return new BitSet();
+        long[] words = new long[(to + 63) >>> 6];
+        if (to - from <= PARTITION_SIZE) {
+            filterRange(from, to, words);
+        } else {
+            ForkJoinPool.commonPool().invoke(new FilterTask(from, to, words));
+        }
+        return BitSet.valueOf(words);
+    }
+
+    // Index of some matching spot, -1 if none; partitions stop as soon as any of them finds one
+    public int findAny() {
+        if (from >= to) return -1;
+        AtomicInteger found = new AtomicInteger(-1);
+        if (to - from <= PARTITION_SIZE) {
+            findRange(from, to, found);
+        } else {
+            ForkJoinPool.commonPool().invoke(new FindTask(from, to, found));
+        }
+        return found.get();
+    }
+
+    // Spot IDs of a result, for callers that still need strings
+    public String[] ids(BitSet indexes) {
+        String[] ids = new String[indexes.cardinality()];
+        int n = 0;
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) ids[n++] = manager.getSpotId(i);
+        return ids;
+    }
+
+    // Uniformly random index from a result, -1 if empty
+    public static int randomIndex(BitSet indexes, Random random) {
+        int size = indexes.cardinality();
+        if (size == 0) return -1;
+        int skip = random.nextInt(size);
+        int i = indexes.nextSetBit(0);
+        while (skip-- > 0) i = indexes.nextSetBit(i + 1);
+        return i;
+    }
+
+    private boolean matches(int index) {
+        if (index == excluded) return false;
+        ParkingSpot spot = manager.getSpotAt(index);
+        String bookedBy = spot.getBookedByUserId();
+        if (booked != null && booked != (bookedBy != null)) return false;
+        if (owner != null && !owner.equals(bookedBy)) return false;
+        boolean byUser = bookedBy != null && manager.isRegisteredUser(bookedBy);
+        if (userBooked != null && userBooked != byUser) return false;
+        return (statusMask & (1 << manager.effectiveStatusCode(index, spot, byUser))) != 0;
+    }
+
+    private int countRange(int lo, int hi) {
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            if (matches(i)) count++;
+        }
+        return count;
+    }
+
+    private void filterRange(int lo, int hi, long[] words) {
+        for (int i = lo; i < hi; i++) {
+            if (matches(i)) words[i >>> 6] |= 1L << i;
+        }
+    }
+
+    private void findRange(int lo, int hi, AtomicInteger found) {
+        for (int i = lo; i < hi && found.get() < 0; i++) {
+            if (matches(i)) {
+                found.compareAndSet(-1, i);
+                return;
+            }
+        }
+    }
+
+    // Split point aligned to 64 so parallel filter leaves never share a bitset word
+    private static int split(int lo, int hi) {
+        int mid = ((lo + hi) >>> 1) & ~63;
+        return mid <= lo ? hi : mid;
+    }
+
+    private class CountTask extends RecursiveTask<Integer> {
+        private final int lo;
+        private final int hi;
+
+        CountTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Integer compute() {
+            int mid = split(lo, hi);
+            if (hi - lo <= PARTITION_SIZE || mid >= hi) return countRange(lo, hi);
+            CountTask left = new CountTask(lo, mid);
+            left.fork();
+            return new CountTask(mid, hi).compute() + left.join();
+        }
+    }
+
+    private class FilterTask extends RecursiveTask<Void> {
+        private final int lo;
+        private final int hi;
+        private final long[] words;
+
+        FilterTask(int lo, int hi, long[] words) {
+            this.lo = lo;
+            this.hi = hi;
+            this.words = words;
+        }
+
+        @Override
+        protected Void compute() {
+            int mid = split(lo, hi);
+            if (hi - lo <= PARTITION_SIZE || mid >= hi) {
+                filterRange(lo, hi, words);
+                return null;
+            }
+            FilterTask left = new FilterTask(lo, mid, words);
+            left.fork();
+            new FilterTask(mid, hi, words).compute();
+            left.join();
+            return null;
+        }
+    }
+
+    private class FindTask extends RecursiveTask<Void> {
+        private final int lo;
+        private final int hi;
+        private final AtomicInteger found;
+
+        FindTask(int lo, int hi, AtomicInteger found) {
+            this.lo = lo;
+            this.hi = hi;
+            this.found = found;
+        }
+
+        @Override
+        protected Void compute() {
+            if (found.get() >= 0) return null; // Another partition already answered
+            int mid = split(lo, hi);
+            if (hi - lo <= PARTITION_SIZE || mid >= hi) {
+                findRange(lo, hi, found);
+                return null;
+            }
+            FindTask left = new FindTask(lo, mid, found);
+            left.fork();
+            new FindTask(mid, hi, found).compute();
+            left.join();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package smartparking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Concurrency stress harness for spot state: worker threads hammer a handful of spots of one lot with queued
+// bookings, direct bookings that expire within milliseconds, fleet bookings, extensions, cancels, soft-lock holds,
+// reservations that start within milliseconds and expiry acknowledgments. Each thread acts for its own users and
+// follows the GUI and API call sequences, so users contend with each other the way real sessions do: a user picks a
+// spot that looks free and stays within the role's booking limit, and the harness users are exempt from the per-user
+// rate limit, so what gets rejected is lost races rather than throttled requests. The harness keeps a ledger of the
+// bookings it was told succeeded; a reservation enters it once its spot is seen booked by, or expired for, its owner.
+//
+// Checked while running: a spot is never booked while another user's reported booking of it still runs, and no
+// user's booking index exceeds the role's limit. Checked at the end of every round, once workers stopped and holds,
+// expiries, the update buffer and the expiry batches settled: spot owners, the ledger, the per-user booking index and
+// the status cache all agree. At the end every operation must have succeeded at least once, and at least
+// MIN_SUCCESS_RATIO of all attempts must have succeeded. Exits with status 1 otherwise, so it can gate a change.
+// Usage: java -cp SmartParking.jar smartparking.SpotStateStress [seconds] [threads] [spots] [usersPerThread]
+public class SpotStateStress {
+    private static final long ROUND_MILLIS = 250; // Short rounds: every settle is another look at a fresh interleaving
+    private static final long REPORT_MILLIS = 5000;
+    private static final long SETTLE_MILLIS = 30_000; // Holds can stretch to 15 s when the zone looks busy
+    private static final long BOOKING_TIMEOUT_SECONDS = 5;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final long RESERVATION_FORGET_MILLIS = 5000; // Past its end without starting: failed or deferred out
+    private static final double MIN_SUCCESS_RATIO = 0.5;
+    private static final int MAX_REPORTED = 20;
+
+    private static final String[] OPS = {
+        "book", "book-expiring", "fleet", "extend", "cancel", "hold", "acknowledge", "reserve", "reservation-start"};
+    private static final int BOOK = 0;
+    private static final int BOOK_EXPIRING = 1;
+    private static final int FLEET = 2;
+    private static final int EXTEND = 3;
+    private static final int CANCEL = 4;
+    private static final int HOLD = 5;
+    private static final int ACKNOWLEDGE = 6;
+    private static final int RESERVE = 7;
+    private static final int RESERVATION_START = 8; // Attempts: reservations accepted; successes: seen started
+
+    private final ParkingLotManager lot;
+    private final String[] spotIds;
+    private final int[] spotIndexes;
+    private final String[][] usersByThread;
+    private final Map<String, Integer> limits = new HashMap<>();
+    private final Set<String> fleetUsers = new HashSet<>();
+    private final AtomicReferenceArray<Claim> claims; // Ledger: the booking of each spot the harness was told about
+    private final ConcurrentMap<Long, Scheduled> scheduled = new ConcurrentHashMap<>(); // Reservations by ID
+    private final LongAdder[] attempts = new LongAdder[OPS.length];
+    private final LongAdder[] successes = new LongAdder[OPS.length];
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+    private volatile boolean stopped;
+
+    // A booking reported as successful; its end is a lower bound of the real end
+    private static final class Claim {
+        final String userId;
+        final long endMillis;
+        final boolean expiring; // Short booking left to expire
+        final boolean extended; // Extended once already; extensions stay rare so spots keep turning over
+
+        Claim(String userId, long endMillis, boolean expiring) {
+            this(userId, endMillis, expiring, false);
+        }
+
+        Claim(String userId, long endMillis, boolean expiring, boolean extended) {
+            this.userId = userId;
+            this.endMillis = endMillis;
+            this.expiring = expiring;
+            this.extended = extended;
+        }
+    }
+
+    // A reservation the harness made that has not been seen starting yet
+    private static final class Scheduled {
+        final long id;
+        final int spot;
+        final String userId;
+        final long startMillis;
+        final long endMillis;
+
+        Scheduled(long id, int spot, String userId, long startMillis, long endMillis) {
+            this.id = id;
+            this.spot = spot;
+            this.userId = userId;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        int spots = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int usersPerThread = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        ParkingEngine engine = new ParkingEngine(4, 2);
+        SpotStateStress stress = new SpotStateStress(engine.createLot("stress"), threads, spots, usersPerThread);
+        System.out.printf("%d threads, %d users, %d contended spots, %d s%n",
+            threads, threads * usersPerThread, spots, seconds);
+        boolean passed = stress.run(seconds);
+        System.exit(passed ? 0 : 1);
+    }
+
+    // Constructor: contends on the first spots of the lot; users cycle through the roles and their limits
+    SpotStateStress(ParkingLotManager lot, int threads, int spots, int usersPerThread) {
+        this.lot = lot;
+        this.spotIds = new String[spots];
+        this.spotIndexes = new int[spots];
+        for (int i = 0; i < spots; i++) {
+            spotIndexes[i] = i;
+            spotIds[i] = lot.getSpotId(i);
+        }
+        this.claims = new AtomicReferenceArray<>(spots);
+        UserProfile.Role[] roles = UserProfile.Role.values();
+        this.usersByThread = new String[threads][usersPerThread];
+        for (int t = 0; t < threads; t++) {
+            for (int u = 0; u < usersPerThread; u++) {
+                int number = t * usersPerThread + u;
+                UserProfile profile = new UserProfile(String.format("stress-%03d", number), roles[number % roles.length]);
+                lot.registerUser(profile);
+                lot.exemptFromRateLimit(profile.getUserId());
+                limits.put(profile.getUserId(), profile.getMaxBookingsAllowed());
+                if (profile.getMaxBookingsAllowed() > 1) fleetUsers.add(profile.getUserId());
+                usersByThread[t][u] = profile.getUserId();
+            }
+        }
+        for (int i = 0; i < OPS.length; i++) {
+            attempts[i] = new LongAdder();
+            successes[i] = new LongAdder();
+        }
+    }
+
+    // Storm and settle in rounds until the time is up; true when no invariant was violated
+    boolean run(int seconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long nextReport = start + TimeUnit.MILLISECONDS.toNanos(REPORT_MILLIS);
+        int round = 0;
+        long maxSettle = 0;
+        while (System.nanoTime() < end) {
+            round++;
+            storm();
+            long settleStart = System.nanoTime();
+            List<String> inconsistent = settle();
+            maxSettle = Math.max(maxSettle, System.nanoTime() - settleStart);
+            for (String problem : inconsistent) violation("round " + round + ": " + problem);
+            if (System.nanoTime() >= nextReport || System.nanoTime() >= end) {
+                System.out.printf("%3d s: %d rounds, %,d ops, slowest settle %d ms, %d violations%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), round, totalAttempts(),
+                    TimeUnit.NANOSECONDS.toMillis(maxSettle), violations.size());
+                nextReport += TimeUnit.MILLISECONDS.toNanos(REPORT_MILLIS);
+            }
+        }
+
+        long totalSuccesses = 0;
+        for (int i = 0; i < OPS.length; i++) {
+            System.out.printf("  %-17s %,10d attempts %,10d succeeded%n", OPS[i], attempts[i].sum(), successes[i].sum());
+            if (successes[i].sum() == 0) violation(OPS[i] + " never succeeded");
+            totalSuccesses += successes[i].sum();
+        }
+        double ratio = totalSuccesses / (double) Math.max(1, totalAttempts());
+        System.out.printf("  success ratio %.1f%% (minimum %.0f%%)%n", 100 * ratio, 100 * MIN_SUCCESS_RATIO);
+        if (ratio < MIN_SUCCESS_RATIO) violation(String.format("success ratio %.3f below %.2f", ratio, MIN_SUCCESS_RATIO));
+        if (violations.isEmpty()) {
+            System.out.println("PASS: no invariant violated in " + round + " rounds");
+            return true;
+        }
+        System.out.println("FAIL: " + violations.size() + " violations, first ones:");
+        violations.stream().limit(MAX_REPORTED).forEach(v -> System.out.println("  " + v));
+        return false;
+    }
+
+    // One round of concurrent operations; the calling thread samples the user limits meanwhile
+    private void storm() throws InterruptedException {
+        stopped = false;
+        List<Thread> workers = new ArrayList<>();
+        for (String[] users : usersByThread) {
+            Thread worker = new Thread(() -> work(users), "Stress-" + workers.size());
+            workers.add(worker);
+            worker.start();
+        }
+        long roundEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ROUND_MILLIS);
+        while (System.nanoTime() < roundEnd) {
+            for (String[] users : usersByThread) {
+                for (String user : users) checkLimit(user);
+            }
+            Thread.sleep(1);
+        }
+        stopped = true;
+        for (Thread worker : workers) worker.join();
+    }
+
+    // Each step one user does one thing: a user at the booking limit, and half the time one with any booking, looks
+    // after their bookings; anyone else goes for a free spot. A step with nothing to do (no free spot, nothing to
+    // cancel) yields instead of sending a request bound to be refused.
+    private void work(String[] users) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!stopped) {
+            String user = users[random.nextInt(users.length)];
+            int from = random.nextInt(spotIds.length);
+            int roll = random.nextInt(100);
+            int owned = lot.getUserBookingCount(user);
+            boolean acted;
+            try {
+                adoptStarted(from);
+                if (owned >= limits.get(user) || owned > 0 && random.nextBoolean()) {
+                    if (roll < 25) acted = extendOwn(user, from);
+                    else if (roll < 85) acted = cancelOwn(user, from);
+                    else acted = acknowledgeExpired(user);
+                } else {
+                    if (roll < 25) acted = bookFree(user, from);
+                    else if (roll < 45) acted = bookExpiring(user, from, 20 + random.nextInt(180));
+                    else if (roll < 60) acted = bookFleet(user, from, 2 + random.nextInt(2));
+                    else if (roll < 85) acted = hold(user, from, 20 + random.nextInt(80), random.nextInt(4));
+                    else acted = reserve(user, from, 10 + random.nextInt(90), 20 + random.nextInt(130));
+                }
+            } catch (Exception e) {
+                violation("operation failed for " + user + " near " + spotIds[from] + ": " + e);
+                acted = true;
+            }
+            if (!acted) Thread.yield();
+        }
+    }
+
+    // First spot from the given one on that is not booked, held, expired or reserved; -1 if none
+    private int freeSpot(int from) {
+        for (int i = 0; i < spotIds.length; i++) {
+            int spot = (from + i) % spotIds.length;
+            ParkingSpot state = lot.getSpotAt(spotIndexes[spot]);
+            if (!state.isBooked() && !state.isSoftLocked() && !lot.isExpiryPending(spotIds[spot])
+                    && lot.getReservationCount(spotIds[spot]) == 0) {
+                return spot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean underLimit(String user, int more) {
+        return lot.getUserBookingCount(user) + more <= limits.get(user);
+    }
+
+    // Book a spot that looks free, as a user picks one on the map
+    private boolean bookFree(String user, int from) throws Exception {
+        int spot = freeSpot(from);
+        if (spot < 0 || !underLimit(user, 1)) return false;
+        bookQueued(user, spot);
+        return true;
+    }
+
+    // Booking through the queue, as the GUI and the API submit it
+    private boolean bookQueued(String user, int spot) throws Exception {
+        attempts[BOOK].increment();
+        long start = System.currentTimeMillis();
+        boolean booked;
+        try {
+            booked = lot.bookSpot(spotIds[spot], 1, "1 hour", false, user).get(BOOKING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            violation("booking of " + spotIds[spot] + " by " + user + " not completed after " + BOOKING_TIMEOUT_SECONDS + " s");
+            return false;
+        }
+        if (booked) claimed(BOOK, user, spot, new Claim(user, start + HOUR_MILLIS, false));
+        return booked;
+    }
+
+    // A booking with an explicit end a few milliseconds away, left to the expiry timer
+    private boolean bookExpiring(String user, int from, long millis) {
+        int spot = freeSpot(from);
+        if (spot < 0 || !underLimit(user, 1)) return false;
+        attempts[BOOK_EXPIRING].increment();
+        long endMillis = System.currentTimeMillis() + millis;
+        if (lot.restoreBooking(new BookingRecord(spotIds[spot], user, endMillis))) {
+            claimed(BOOK_EXPIRING, user, spot, new Claim(user, endMillis, true));
+        }
+        return true;
+    }
+
+    // All-or-nothing booking of several free-looking spots, as a fleet account books them
+    private boolean bookFleet(String user, int from, int count) throws Exception {
+        if (!fleetUsers.contains(user) || !underLimit(user, count)) return false;
+        int[] picked = new int[count];
+        int found = 0;
+        for (int i = 0; i < spotIds.length && found < count; i++) {
+            int spot = freeSpot((from + i) % spotIds.length);
+            boolean duplicate = false;
+            for (int j = 0; j < found; j++) duplicate |= picked[j] == spot;
+            if (spot >= 0 && !duplicate) picked[found++] = spot;
+        }
+        if (found < count) return false;
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) ids[i] = spotIds[picked[i]];
+        attempts[FLEET].increment();
+        long start = System.currentTimeMillis();
+        boolean booked;
+        try {
+            booked = lot.bookSpots(user, 1, "1 hour", ids).get(BOOKING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            violation("fleet booking of " + String.join(", ", ids) + " by " + user + " not completed after "
+                + BOOKING_TIMEOUT_SECONDS + " s");
+            return true;
+        }
+        if (booked) {
+            successes[FLEET].increment();
+            for (int spot : picked) record(user, spot, new Claim(user, start + HOUR_MILLIS, false));
+        }
+        return true;
+    }
+
+    // Extend one of the user's bookings once: an hour-long one by half an hour, a short one by a few milliseconds
+    // so the extension races its expiry timer
+    private boolean extendOwn(String user, int from) {
+        for (int i = 0; i < spotIds.length; i++) {
+            int spot = (from + i) % spotIds.length;
+            Claim claim = claims.get(spot);
+            if (claim == null || !claim.userId.equals(user) || claim.extended) continue;
+            long extra = claim.expiring ? 10 + ThreadLocalRandom.current().nextInt(90) : HOUR_MILLIS / 2;
+            attempts[EXTEND].increment();
+            if (lot.extendBooking(spotIds[spot], user, extra)) {
+                successes[EXTEND].increment();
+                claims.compareAndSet(spot, claim, new Claim(user, claim.endMillis + extra, claim.expiring, true));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Reserve a free-looking spot for a short window starting a few milliseconds from now
+    private boolean reserve(String user, int from, long startInMillis, long millis) {
+        int spot = freeSpot(from);
+        if (spot < 0 || !underLimit(user, 1)) return false;
+        attempts[RESERVE].increment();
+        long start = System.currentTimeMillis() + startInMillis;
+        long id = lot.reserveSpot(spotIds[spot], user, start, start + millis);
+        if (id >= 0) {
+            successes[RESERVE].increment();
+            attempts[RESERVATION_START].increment();
+            scheduled.put(id, new Scheduled(id, spot, user, start, start + millis));
+        }
+        return true;
+    }
+
+    // A reservation that started booked its spot without telling the harness: once the spot is seen booked by the
+    // owner until the reservation's end, or expired for the owner after it, put that booking in the ledger
+    private void adoptStarted(int spot) {
+        if (scheduled.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        ParkingSpot state = lot.getSpotAt(spotIndexes[spot]);
+        String owner = state.getBookedByUserId();
+        long end = state.getExpirationTime();
+        BookingRecord expired = owner == null ? lot.getPendingExpiry(spotIndexes[spot]) : null;
+        String user = owner != null ? owner : expired == null ? null : expired.userId;
+        for (Scheduled reservation : scheduled.values()) {
+            if (reservation.endMillis + RESERVATION_FORGET_MILLIS < now) {
+                scheduled.remove(reservation.id, reservation); // Never started: failed, or deferred past its end
+                continue;
+            }
+            if (user == null || reservation.spot != spot || !reservation.userId.equals(user)) continue;
+            if (reservation.startMillis > now || owner != null && reservation.endMillis != end) continue;
+            Claim claim = claims.get(spot);
+            if (claim != null && claim.userId.equals(user)) continue; // The user's own booking, already in the ledger
+            if (scheduled.remove(reservation.id, reservation)) {
+                claimed(RESERVATION_START, user, spot, new Claim(user, reservation.endMillis, true));
+            }
+        }
+    }
+
+    private void claimed(int op, String user, int spot, Claim claim) {
+        successes[op].increment();
+        record(user, spot, claim);
+    }
+
+    // Record a reported booking; the spot's previous booking must have ended by the time this call returned
+    private void record(String user, int spot, Claim claim) {
+        long returned = System.currentTimeMillis();
+        Claim previous = claims.getAndSet(spot, claim);
+        if (previous != null && previous.endMillis > returned) {
+            violation("double booking: " + user + " booked " + spotIds[spot] + " while the booking of "
+                + previous.userId + " runs " + (previous.endMillis - returned) + " ms longer");
+        }
+        checkLimit(user);
+    }
+
+    // Cancel one of the user's bookings as the API does; the manager checks the holder and updates the user's bookings
+    private boolean cancelOwn(String user, int from) throws Exception {
+        for (int i = 0; i < spotIds.length; i++) {
+            int spot = (from + i) % spotIds.length;
+            Claim claim = claims.get(spot);
+            if (claim == null || !claim.userId.equals(user)) continue;
+            if (claim.expiring && claim.endMillis > System.currentTimeMillis()) continue; // Only race the expiry timer
+            attempts[CANCEL].increment();
+            if (!claims.compareAndSet(spot, claim, null)) return true; // Released first, so a later booking is not a double
+            if (lot.cancelBooking(spotIds[spot], user).get(BOOKING_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                successes[CANCEL].increment();
+            } else {
+                claims.compareAndSet(spot, null, claim); // Expired meanwhile: keep it for the acknowledgment
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Hold a spot as the booking dialog does, then book it, give it up, or walk away and let the hold lapse
+    private boolean hold(String user, int from, long millis, int next) throws Exception {
+        int spot = freeSpot(from);
+        if (spot < 0) return false;
+        attempts[HOLD].increment();
+        if (!lot.trySoftLock(spotIds[spot], user, millis)) return true;
+        successes[HOLD].increment();
+        if (next < 2 && underLimit(user, 1) && bookQueued(user, spot)) return true;
+        if (next < 3) {
+            lot.releaseSoftLock(spotIds[spot], user);
+            lot.notifyListeners(spotIds[spot], SpotStatus.AVAILABLE);
+        }
+        return true;
+    }
+
+    // Acknowledge the user's expired bookings so their spots are released
+    private boolean acknowledgeExpired(String user) {
+        boolean acted = false;
+        for (int spot = 0; spot < spotIds.length; spot++) {
+            Claim claim = claims.get(spot);
+            if (claim == null || !claim.userId.equals(user) || !lot.isExpiryPending(spotIds[spot])) continue;
+            attempts[ACKNOWLEDGE].increment();
+            acted = true;
+            if (claims.compareAndSet(spot, claim, null)) {
+                successes[ACKNOWLEDGE].increment();
+                lot.acknowledgeExpiry(spotIds[spot], user);
+            }
+        }
+        return acted;
+    }
+
+    // Wait for holds and short bookings to run out, acknowledge expiries, then for the state to agree.
+    // Returns what still disagrees when the wait times out, nothing when it settled.
+    private List<String> settle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS);
+        List<String> inconsistent;
+        do {
+            for (int spot = 0; spot < spotIds.length; spot++) {
+                adoptStarted(spot);
+                Claim claim = claims.get(spot);
+                if (claim != null && claim.expiring) acknowledgeExpired(claim.userId);
+            }
+            inconsistent = inconsistencies();
+            if (inconsistent.isEmpty()) return inconsistent;
+            Thread.sleep(25);
+        } while (System.nanoTime() < deadline);
+        return inconsistent;
+    }
+
+    // Disagreements between spot state, ledger, user index and status cache; empty when consistent and settled
+    private List<String> inconsistencies() {
+        List<String> found = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Map<String, Integer> owned = new HashMap<>();
+        for (int spot = 0; spot < spotIds.length; spot++) {
+            String spotId = spotIds[spot];
+            ParkingSpot state = lot.getSpotAt(spotIndexes[spot]);
+            String owner = state.getBookedByUserId();
+            Claim claim = claims.get(spot);
+            if (owner != null) owned.merge(owner, 1, Integer::sum);
+
+            if (state.isSoftLocked()) {
+                found.add(spotId + " still held");
+            } else if (lot.isExpiryPending(spotId)) {
+                found.add(spotId + " expired and not released yet");
+            } else if (claim != null && claim.expiring && claim.endMillis <= now && owner != null) {
+                found.add(spotId + " past its end and not expired yet");
+            }
+            if (owner != null && (claim == null || !claim.userId.equals(owner))) {
+                found.add(spotId + " booked by " + owner + " but reported to " + (claim == null ? "nobody" : claim.userId));
+            }
+            if (owner == null && claim != null && claim.endMillis > now) {
+                found.add(spotId + " reported booked by " + claim.userId + " but free");
+            }
+            if ((owner != null) != lot.isUserBooked(spotId)) {
+                found.add(spotId + (owner != null ? " booked but missing from" : " free but still in") + " the user index");
+            }
+            String expected = owner != null ? SpotStatus.BOOKED : SpotStatus.AVAILABLE;
+            String cached = SpotStatus.nameOf(lot.getStatusCode(spotIndexes[spot]));
+            if (!expected.equals(cached)) found.add(spotId + " is " + cached + " in the status cache but " + expected);
+        }
+        for (Map.Entry<String, Integer> limit : limits.entrySet()) {
+            String user = limit.getKey();
+            int spots = owned.getOrDefault(user, 0);
+            int indexed = lot.getUserBookingCount(user);
+            if (spots > limit.getValue()) found.add(user + " owns " + spots + " spots over the limit of " + limit.getValue());
+            if (indexed != spots) found.add(user + " owns " + spots + " spots but the user index has " + indexed);
+        }
+        return found;
+    }
+
+    private void checkLimit(String user) {
+        int count = lot.getUserBookingCount(user);
+        int limit = limits.get(user);
+        if (count > limit) violation(user + " has " + count + " bookings over the limit of " + limit);
+    }
+
+    private void violation(String message) {
+        violations.add(message);
+    }
+
+    private long totalAttempts() {
+        long total = 0;
+        for (LongAdder adder : attempts) total += adder.sum();
+        return total;
+    }
+}
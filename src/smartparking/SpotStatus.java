@@ -0,0 +1,64 @@
+package smartparking;
+
+// Spot status names and their compact codes for primitive per-spot tables and bit masks
+public final class SpotStatus {
+    public static final String AVAILABLE = "available";
+    public static final String SOFT_LOCKED = "soft_locked";
+    public static final String BOOKED = "booked";
+    public static final String BOOKED_OCCUPIED = "booked_occupied";
+    public static final String RESERVED = "reserved";
+    public static final String RESERVED_OCCUPIED = "reserved_occupied";
+    public static final String TIME_EXCEEDED = "time_exceeded";
+    public static final String WRONG_PARKING = "wrong_parking";
+
+    // Index in this array is the status code
+    private static final String[] NAMES = {
+        AVAILABLE, SOFT_LOCKED, BOOKED, BOOKED_OCCUPIED, RESERVED, RESERVED_OCCUPIED, TIME_EXCEEDED, WRONG_PARKING
+    };
+
+    public static final int AVAILABLE_CODE = 0;
+    public static final int SOFT_LOCKED_CODE = 1;
+    public static final int BOOKED_CODE = 2;
+
+    private static final int BOOKED_MASK = maskOf(BOOKED, BOOKED_OCCUPIED, RESERVED, RESERVED_OCCUPIED);
+
+    private SpotStatus() {
+    }
+
+    // Code of a status name, -1 if unknown
+    public static int codeOf(String status) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(status)) return i;
+        }
+        return -1;
+    }
+
+    public static String nameOf(int code) {
+        return NAMES[code];
+    }
+
+    // Bit mask with one bit per status code
+    public static int maskOf(String... statuses) {
+        int mask = 0;
+        for (String status : statuses) {
+            int code = codeOf(status);
+            if (code < 0) throw new IllegalArgumentException("Unknown status " + status);
+            mask |= 1 << code;
+        }
+        return mask;
+    }
+
+    // Number of status codes; codes run from 0 to count() - 1
+    public static int count() {
+        return NAMES.length;
+    }
+
+    public static int allMask() {
+        return (1 << NAMES.length) - 1;
+    }
+
+    // Whether a status describes a booked spot (booked or reserved, with or without a vehicle)
+    public static boolean isBookedStatus(int code) {
+        return (BOOKED_MASK & (1 << code)) != 0;
+    }
+}
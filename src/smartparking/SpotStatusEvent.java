@@ -0,0 +1,33 @@
+package smartparking;
+
+// Immutable spot status transition delivered through the SpotEventBus
+public class SpotStatusEvent {
+    private final String spotId;
+    private final String previousStatus; // null when the spot had no cached status yet
+    private final String status;
+    private final long timestamp;
+
+    // Constructor
+    public SpotStatusEvent(String spotId, String previousStatus, String status, long timestamp) {
+        this.spotId = spotId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.timestamp = timestamp;
+    }
+
+    public String getSpotId() { return spotId; }
+
+    public String getPreviousStatus() { return previousStatus; }
+
+    public String getStatus() { return status; }
+
+    public long getTimestamp() { return timestamp; }
+
+    // Zone letter of the spot, e.g. "C" for "C7"
+    public String getZone() { return spotId.substring(0, 1); }
+
+    @Override
+    public String toString() {
+        return spotId + ": " + previousStatus + " -> " + status;
+    }
+}
@@ -28,6 +28,15 @@ public class UserProfile {
         };
     }
 
+    // Method to determine booking limit when the target zone is predicted to hit capacity
+    public int getMaxBookingsAllowed(boolean highDemand) {
+        if (!highDemand) return getMaxBookingsAllowed();
+        return switch (role) {
+            case REGULAR, VIP -> 1;
+            case CORPORATE -> 3;
+        };
+    }
+
     // Override to return a readable string with role and shortened user ID
     // Example: "VIP User [a1b2c3]"
     @Override
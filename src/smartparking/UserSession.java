@@ -0,0 +1,22 @@
+package smartparking;
+
+import java.util.List;
+
+// A connected user (GUI window or API client) that receives only its own prompts and notifications
+public interface UserSession {
+    // ID of the user this session belongs to
+    String getUserId();
+
+    // Batch of notification texts for this user (and broadcasts)
+    void deliverNotifications(List<String> messages);
+
+    // Alert that needs the user's attention, e.g. an expiry warning or an expired hold
+    void showAlert(String message);
+
+    // Ask the user to acknowledge expired bookings (one call per expiry batch); the session answers
+    // through acknowledgeExpiry, and unacknowledged spots are released after the grace period anyway
+    void promptExpiry(List<String> spotIds);
+
+    // Abort any booking in progress, e.g. after the user's soft lock expired
+    void closeBookingDialogs();
+}
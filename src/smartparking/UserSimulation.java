@@ -2,7 +2,7 @@ package smartparking;
 
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
-import java.util.Arrays;
+import java.util.BitSet;
 
 // Class to simulate random user behavior for bookings and cancellations
 public class UserSimulation {
@@ -42,18 +42,14 @@ public class UserSimulation {
 
     // Method to simulate booking a random available slot
     private void handleBooking() {
-        String[] allSpots = parkingLotManager.getSpotIds();
-
-        // Filter to find all non-booked (available) spots
-        String[] availableSpots = Arrays.stream(allSpots)
-                .filter(spot -> !parkingLotManager.isBooked(spot))
-                .toArray(String[]::new);
+        // Find all non-booked (available) spots
+        BitSet availableSpots = parkingLotManager.query().booked(false).filter();
 
         // 60% chance to book a spot
-        if (availableSpots.length == 0 || random.nextDouble() >= 0.6) return;
+        if (availableSpots.isEmpty() || random.nextDouble() >= 0.6) return;
 
         // Pick a random available spot
-        String spot = availableSpots[random.nextInt(availableSpots.length)];
+        String spot = parkingLotManager.getSpotId(SpotQuery.randomIndex(availableSpots, random));
         
         // Randomly determine duration from 1–24 hours
         int hours = random.nextInt(24) + 1;
@@ -68,15 +64,13 @@ public class UserSimulation {
     // Method to simulate cancelling a random system-booked slot
     private void handleCancellation() {
         // Filter only non-user (system) bookings
-        String[] systemBooked = Arrays.stream(parkingLotManager.getAllBookedSpots())
-                .filter(spot -> !parkingLotManager.isUserBooked(spot))
-                .toArray(String[]::new);
+        BitSet systemBooked = parkingLotManager.query().booked(true).userBooked(false).filter();
 
         // 5% chance to cancel a system-booked spot
-        if (systemBooked.length == 0 || random.nextDouble() >= 0.05) return;
+        if (systemBooked.isEmpty() || random.nextDouble() >= 0.05) return;
         
         // Pick a random system-booked spot to cancel
-        String spot = systemBooked[random.nextInt(systemBooked.length)];
+        String spot = parkingLotManager.getSpotId(SpotQuery.randomIndex(systemBooked, random));
         
         // Cancel booking asynchronously
         parkingLotManager.cancelBooking(spot);